@@ -0,0 +1,123 @@
+package org.stzverev.cardcostapi.benchmark;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.FileAppender;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.stzverev.cardcostapi.web.AccessLog;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Cost of logging a successful card cost request on the request thread. {@code perRequestLines} is the former
+ * logging of several synchronous lines per request, the other benchmarks write a single access log record
+ * synchronously, through the asynchronous appender and through the asynchronous appender with sampling.
+ * Lines are written to a file, so the synchronous appender pays for the I/O on the request thread.
+ */
+@State(Scope.Benchmark)
+@Threads(4)
+public class AccessLogBenchmark {
+
+    @Param({"0.01"})
+    private double sampleRate;
+
+    private final LoggerContext context = new LoggerContext();
+
+    private Path syncFile;
+
+    private Path asyncFile;
+
+    private Logger syncLogger;
+
+    private AccessLog syncAccessLog;
+
+    private AccessLog asyncAccessLog;
+
+    private AccessLog sampledAccessLog;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        syncFile = Files.createTempFile("access-log-sync", ".log");
+        asyncFile = Files.createTempFile("access-log-async", ".log");
+        context.start();
+        final Appender<ILoggingEvent> fileAppender = fileAppender(syncFile);
+        final AsyncAppender asyncAppender = new AsyncAppender();
+        asyncAppender.setContext(context);
+        asyncAppender.setQueueSize(8192);
+        asyncAppender.setDiscardingThreshold(0);
+        asyncAppender.setNeverBlock(true);
+        asyncAppender.addAppender(fileAppender(asyncFile));
+        asyncAppender.start();
+
+        syncLogger = logger("sync", fileAppender);
+        syncAccessLog = new AccessLog(syncLogger, 1.0, Duration.ofSeconds(1));
+        asyncAccessLog = new AccessLog(logger("async", asyncAppender), 1.0, Duration.ofSeconds(1));
+        sampledAccessLog = new AccessLog(logger("sampled", asyncAppender), sampleRate, Duration.ofSeconds(1));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.stop();
+        Files.deleteIfExists(syncFile);
+        Files.deleteIfExists(asyncFile);
+    }
+
+    @Benchmark
+    public void perRequestLines() {
+        final String iinInfo = "IINInfo[iin=45717360, country=DK]";
+        syncLogger.info("Card info provided: {}", iinInfo);
+        syncLogger.info("iin is fetched from cache: {}", iinInfo);
+        syncLogger.info("Country is found: {}", "DK");
+    }
+
+    @Benchmark
+    public void synchronousRecord() {
+        syncAccessLog.log("POST", "/countryCost/cardCost", 200, 1_500_000, "DK", null);
+    }
+
+    @Benchmark
+    public void asynchronousRecord() {
+        asyncAccessLog.log("POST", "/countryCost/cardCost", 200, 1_500_000, "DK", null);
+    }
+
+    @Benchmark
+    public void asynchronousSampledRecord() {
+        sampledAccessLog.log("POST", "/countryCost/cardCost", 200, 1_500_000, "DK", null);
+    }
+
+    private Appender<ILoggingEvent> fileAppender(final Path file) {
+        final PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d{yyyy-MM-dd'T'HH:mm:ss.SSSXXX} %-5level access %kvp %msg%n");
+        encoder.start();
+        final FileAppender<ILoggingEvent> appender = new FileAppender<>();
+        appender.setContext(context);
+        appender.setFile(file.toString());
+        appender.setEncoder(encoder);
+        appender.start();
+        return appender;
+    }
+
+    private Logger logger(final String name, final Appender<ILoggingEvent> appender) {
+        final Logger logger = context.getLogger(name);
+        logger.setLevel(ch.qos.logback.classic.Level.INFO);
+        logger.setAdditive(false);
+        logger.addAppender(appender);
+        return logger;
+    }
+
+}
@@ -0,0 +1,126 @@
+package org.stzverev.cardcostapi.benchmark;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.stzverev.cardcostapi.configuration.properties.CardCostBatchConfig;
+import org.stzverev.cardcostapi.configuration.properties.CountryCostTableConfig;
+import org.stzverev.cardcostapi.configuration.properties.IINInfoCacheConfig;
+import org.stzverev.cardcostapi.domain.entity.CurrencyCostEntity;
+import org.stzverev.cardcostapi.domain.entity.IINCacheEntity;
+import org.stzverev.cardcostapi.domain.repository.CurrencyCostRepository;
+import org.stzverev.cardcostapi.model.CardCostRequest;
+import org.stzverev.cardcostapi.model.CardCostResponse;
+import org.stzverev.cardcostapi.service.CardCostMetrics;
+import org.stzverev.cardcostapi.service.CardCostResult;
+import org.stzverev.cardcostapi.service.CardCostService;
+import org.stzverev.cardcostapi.service.cardinfoprovider.IINExtractor;
+import org.stzverev.cardcostapi.service.cardinfoprovider.IINInfo;
+import org.stzverev.cardcostapi.service.cardinfoprovider.IINInfoProvider;
+import org.stzverev.cardcostapi.service.cardinfoprovider.cache.IINAdaptiveTtl;
+import org.stzverev.cardcostapi.service.cardinfoprovider.cache.IINCacheAnalytics;
+import org.stzverev.cardcostapi.service.cardinfoprovider.cache.IINCacheExpiration;
+import org.stzverev.cardcostapi.service.cardinfoprovider.cache.IINCacheMetrics;
+import org.stzverev.cardcostapi.service.cardinfoprovider.cache.IINCacheProvider;
+import org.stzverev.cardcostapi.service.cardinfoprovider.cache.IINCacheStore;
+import org.stzverev.cardcostapi.service.cardinfoprovider.cache.IINCacheWriter;
+import org.stzverev.cardcostapi.service.cardinfoprovider.cache.IINLocalCache;
+import org.stzverev.cardcostapi.service.cardinfoprovider.cache.IINPrefixIndex;
+import org.stzverev.cardcostapi.service.countrycost.CountryCostTableProvider;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * The card cost request path with Redis and Mongo replaced by in-memory stubs. Every card is cached,
+ * so the binlist stub is never called.
+ */
+@State(Scope.Benchmark)
+public class CardCostBenchmark {
+
+    private static final String CARD_NUMBER = "4571736012345678";
+
+    private final IINExtractor iinExtractor = new IINExtractor();
+
+    private IINCacheProvider localCacheProvider;
+
+    private IINCacheProvider redisCacheProvider;
+
+    private CardCostService cardCostService;
+
+    private CardCostRequest request;
+
+    private List<CardCostRequest> batch;
+
+    @Setup
+    public void setUp() {
+        final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final IINInfoProvider binList = cardNumber -> Mono.just(new IINInfo(iinExtractor.getIin(cardNumber), "DK"));
+        final Map<String, IINCacheEntity> redisData = Stubs.redisData();
+        redisData.put("45717360", new IINCacheEntity("45717360", "DK", null));
+        final IINCacheStore store = Stubs.cacheStore(redisData);
+        final IINCacheMetrics cacheMetrics = new IINCacheMetrics(meterRegistry);
+        final IINCacheExpiration expiration = new IINCacheExpiration(Duration.ofMinutes(1), Duration.ofHours(1),
+                Duration.ofMinutes(1), 0.1);
+        final IINCacheWriter cacheWriter = new IINCacheWriter(store,
+                new IINInfoCacheConfig.WriteBehindConfig(), cacheMetrics);
+        localCacheProvider = Stubs.initialized(new IINCacheProvider(binList, iinExtractor, expiration,
+                store, new IINLocalCache(10_000, Duration.ofMinutes(1)), IINPrefixIndex.disabled(),
+                cacheMetrics, cacheWriter, new IINCacheAnalytics(new IINInfoCacheConfig.AnalyticsConfig()),
+                new IINAdaptiveTtl(Duration.ofDays(7), 4, 32_768)));
+        redisCacheProvider = new IINCacheProvider(binList, iinExtractor, expiration,
+                store, IINLocalCache.disabled(), IINPrefixIndex.disabled(), cacheMetrics, cacheWriter,
+                IINCacheAnalytics.disabled(), IINAdaptiveTtl.disabled());
+
+        final CurrencyCostRepository costRepository = Stubs.costRepository(List.of(
+                CurrencyCostEntity.builder().issuingCountry("DK").cost(15).build(),
+                CurrencyCostEntity.builder().issuingCountry("").cost(10).build()));
+        final CountryCostTableConfig tableConfig = new CountryCostTableConfig();
+        tableConfig.setChangeStreamEnabled(false);
+        final CardCostMetrics metrics = new CardCostMetrics(meterRegistry);
+        final CountryCostTableProvider tableProvider = Stubs.initialized(
+                new CountryCostTableProvider(costRepository, null, tableConfig, metrics));
+        tableProvider.ready().block();
+        cardCostService = new CardCostService(localCacheProvider, costRepository, tableProvider, iinExtractor,
+                new CardCostBatchConfig(), metrics, Validation.buildDefaultValidatorFactory().getValidator());
+
+        request = new CardCostRequest(CARD_NUMBER);
+        batch = IntStream.range(0, 100)
+                .mapToObj(i -> new CardCostRequest(i % 2 == 0 ? CARD_NUMBER : "5" + CARD_NUMBER))
+                .toList();
+        redisData.put("54571736", new IINCacheEntity("54571736", "US", null));
+        localCacheProvider.getCardInfoByNumber(CARD_NUMBER).block();
+    }
+
+    @Benchmark
+    public IINInfo cacheLocalHit() {
+        return localCacheProvider.getCardInfoByNumber(CARD_NUMBER).block();
+    }
+
+    @Benchmark
+    public IINInfo cacheRedisHit() {
+        return redisCacheProvider.getCardInfoByNumber(CARD_NUMBER).block();
+    }
+
+    @Benchmark
+    public CardCostResponse getCardCost() {
+        return cardCostService.getCardCost(request).block();
+    }
+
+    /**
+     * Batch of 100 cards of two IINs, one of them resolved by the common cost.
+     */
+    @Benchmark
+    public CardCostResult getCardCosts() {
+        return cardCostService.getCardCosts(Flux.fromIterable(batch)).blockLast();
+    }
+
+}
@@ -0,0 +1,25 @@
+package org.stzverev.cardcostapi.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.stzverev.cardcostapi.service.cardinfoprovider.IINExtractor;
+
+@State(Scope.Benchmark)
+public class IINExtractorBenchmark {
+
+    private final IINExtractor iinExtractor = new IINExtractor();
+
+    private final String cardNumber = "4571736012345678";
+
+    @Benchmark
+    public String getIin() {
+        return iinExtractor.getIin(cardNumber);
+    }
+
+    @Benchmark
+    public long getIinKey() {
+        return iinExtractor.getIinKey(cardNumber);
+    }
+
+}
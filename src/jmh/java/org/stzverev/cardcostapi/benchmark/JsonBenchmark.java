@@ -0,0 +1,51 @@
+package org.stzverev.cardcostapi.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.stzverev.cardcostapi.domain.entity.IINCacheEntity;
+import org.stzverev.cardcostapi.model.CardCostRequest;
+import org.stzverev.cardcostapi.model.CardCostResponse;
+
+import java.io.IOException;
+
+/**
+ * Jackson (de)serialization of the card cost request and response bodies and of the IIN cache entries.
+ */
+@State(Scope.Benchmark)
+public class JsonBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final byte[] request = "{\"card_number\":\"4571736012345678\"}".getBytes();
+
+    private final CardCostResponse response = new CardCostResponse("DK", 15L);
+
+    private final IINCacheEntity cacheEntity = new IINCacheEntity("45717360", "DK", 1_700_000_000_000L);
+
+    private final byte[] serializedCacheEntity =
+            "{\"iin\":\"45717360\",\"issuingCountry\":\"DK\",\"softExpiresAt\":1700000000000}".getBytes();
+
+    @Benchmark
+    public CardCostRequest readRequest() throws IOException {
+        return objectMapper.readValue(request, CardCostRequest.class);
+    }
+
+    @Benchmark
+    public byte[] writeResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public IINCacheEntity readCacheEntity() throws IOException {
+        return objectMapper.readValue(serializedCacheEntity, IINCacheEntity.class);
+    }
+
+    @Benchmark
+    public byte[] writeCacheEntity() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(cacheEntity);
+    }
+
+}
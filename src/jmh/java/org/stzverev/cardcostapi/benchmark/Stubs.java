@@ -0,0 +1,99 @@
+package org.stzverev.cardcostapi.benchmark;
+
+import jakarta.annotation.PostConstruct;
+import org.stzverev.cardcostapi.domain.entity.CurrencyCostEntity;
+import org.stzverev.cardcostapi.domain.entity.IINCacheEntity;
+import org.stzverev.cardcostapi.domain.repository.CurrencyCostRepository;
+import org.stzverev.cardcostapi.service.cardinfoprovider.cache.IINCacheStore;
+import org.stzverev.cardcostapi.service.cardinfoprovider.cache.IINCacheWrite;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * In-memory stubs of Redis and Mongo, so benchmarks measure the code of the service without network calls.
+ */
+final class Stubs {
+
+    private Stubs() {
+    }
+
+    static Map<String, IINCacheEntity> redisData() {
+        return new ConcurrentHashMap<>();
+    }
+
+    static IINCacheStore cacheStore(final Map<String, IINCacheEntity> data) {
+        return new MapIINCacheStore(data);
+    }
+
+    /**
+     * Only the full read of the costs is stubbed, benchmarks don't change costs.
+     */
+    static CurrencyCostRepository costRepository(final List<CurrencyCostEntity> costs) {
+        final CurrencyCostRepository repository = mock(CurrencyCostRepository.class);
+        when(repository.findAll()).thenReturn(Flux.fromIterable(costs));
+        return repository;
+    }
+
+    /**
+     * Invokes {@link PostConstruct} methods of the bean the same way the container does.
+     */
+    static <T> T initialized(final T bean) {
+        for (final Method method : bean.getClass().getDeclaredMethods()) {
+            if (method.isAnnotationPresent(PostConstruct.class)) {
+                method.setAccessible(true);
+                try {
+                    method.invoke(bean);
+                } catch (IllegalAccessException | InvocationTargetException e) {
+                    throw new IllegalStateException("Error initializing " + bean.getClass(), e);
+                }
+            }
+        }
+        return bean;
+    }
+
+    /**
+     * IIN cache store on a map. Entries never expire, benchmarks are shorter than any time to live.
+     */
+    private static final class MapIINCacheStore implements IINCacheStore {
+
+        private final Map<String, IINCacheEntity> data;
+
+        private MapIINCacheStore(final Map<String, IINCacheEntity> data) {
+            this.data = data;
+        }
+
+        @Override
+        public Mono<IINCacheEntity> get(final String iin) {
+            return Mono.justOrEmpty(data.get(iin));
+        }
+
+        @Override
+        public Mono<List<IINCacheEntity>> multiGet(final List<String> iins) {
+            final List<IINCacheEntity> values = new ArrayList<>(iins.size());
+            for (final String iin : iins) {
+                values.add(data.get(iin));
+            }
+            return Mono.just(values);
+        }
+
+        @Override
+        public Mono<Integer> writeAll(final List<IINCacheWrite> writes) {
+            for (final IINCacheWrite write : writes) {
+                data.put(write.iin(), write.entity());
+            }
+            return Mono.just(writes.size());
+        }
+
+    }
+
+}
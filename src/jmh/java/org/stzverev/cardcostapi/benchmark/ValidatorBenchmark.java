@@ -0,0 +1,40 @@
+package org.stzverev.cardcostapi.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.stzverev.cardcostapi.validator.CardNumberValidator;
+import org.stzverev.cardcostapi.validator.IsoTwoValidator;
+
+/**
+ * Validation of every card cost and country cost request.
+ */
+@State(Scope.Benchmark)
+public class ValidatorBenchmark {
+
+    private final CardNumberValidator cardNumberValidator = new CardNumberValidator();
+
+    private final IsoTwoValidator isoTwoValidator = new IsoTwoValidator();
+
+    private final String validCardNumber = "4571736012345678";
+
+    private final String invalidCardNumber = "45717360123456a8";
+
+    private final String country = "DK";
+
+    @Benchmark
+    public boolean cardNumberValid() {
+        return cardNumberValidator.isValid(validCardNumber, null);
+    }
+
+    @Benchmark
+    public boolean cardNumberInvalid() {
+        return cardNumberValidator.isValid(invalidCardNumber, null);
+    }
+
+    @Benchmark
+    public boolean isoTwo() {
+        return isoTwoValidator.isValid(country, null);
+    }
+
+}
@@ -0,0 +1,82 @@
+package org.stzverev.cardcostapi.loadtest;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Card numbers of the load test. Most requests pick an IIN of the hot set by a Zipf distribution, so a few IINs
+ * are requested much more often than the rest, like real traffic. A share of requests gets an IIN which was never
+ * requested before and misses every cache tier. IINs start with 3, 4 or 5, which the binlist stand-in answers
+ * with GB, US and DK.
+ */
+class IinDistribution {
+
+    private static final char[] FIRST_DIGITS = {'3', '4', '5'};
+
+    private static final String CARD_SUFFIX = "12345678";
+
+    private final String[] hotSet;
+
+    /**
+     * Cumulative probabilities of the hot set IINs.
+     */
+    private final double[] cumulative;
+
+    private final double newBinRatio;
+
+    private final SplittableRandom random;
+
+    private final Set<String> used;
+
+    private long newIins;
+
+    IinDistribution(final int hotSetSize, final double zipfExponent, final double newBinRatio, final long seed) {
+        final Random iinRandom = new Random(seed);
+        this.used = new HashSet<>();
+        this.hotSet = new String[hotSetSize];
+        for (int i = 0; i < hotSetSize; i++) {
+            String iin;
+            do {
+                iin = FIRST_DIGITS[iinRandom.nextInt(FIRST_DIGITS.length)]
+                        + String.format("%07d", iinRandom.nextInt(10_000_000));
+            } while (!used.add(iin));
+            hotSet[i] = iin;
+        }
+        this.cumulative = new double[hotSetSize];
+        double sum = 0;
+        for (int i = 0; i < hotSetSize; i++) {
+            sum += 1 / Math.pow(i + 1, zipfExponent);
+            cumulative[i] = sum;
+        }
+        for (int i = 0; i < hotSetSize; i++) {
+            cumulative[i] /= sum;
+        }
+        this.newBinRatio = newBinRatio;
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * @return the next card number, called from a single thread
+     */
+    String nextCardNumber() {
+        if (random.nextDouble() < newBinRatio) {
+            return nextNewIin() + CARD_SUFFIX;
+        }
+        final int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return hotSet[Math.min(index < 0 ? -index - 1 : index, hotSet.length - 1)] + CARD_SUFFIX;
+    }
+
+    private String nextNewIin() {
+        String iin;
+        do {
+            iin = FIRST_DIGITS[(int) (newIins % FIRST_DIGITS.length)]
+                    + String.format("%07d", (newIins * 7_919 + 1) % 10_000_000);
+            newIins++;
+        } while (!used.add(iin));
+        return iin;
+    }
+
+}
@@ -0,0 +1,286 @@
+package org.stzverev.cardcostapi.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.matching.RequestPatternBuilder;
+import com.redis.testcontainers.RedisContainer;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.stzverev.cardcostapi.CardCostApiApplication;
+import org.stzverev.cardcostapi.model.CardCostRequest;
+import org.stzverev.cardcostapi.model.CountryCost;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.utility.DockerImageName;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.util.retry.Retry;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlMatching;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+
+/**
+ * Load test of the application. Starts MongoDB and Redis in Testcontainers, a WireMock stand-in of binlist with
+ * log-normal latency and the application itself, then starts requests at a fixed rate, so a slow response doesn't
+ * slow the load down. Latency is measured from the time a request is scheduled, which includes the time it waits
+ * for a free connection, so saturation shows in the percentiles instead of lowering the rate.
+ * <p>
+ * Run by {@code ./gradlew loadTest}, see {@link LoadTestSettings} for the settings.
+ */
+@Slf4j
+public final class LoadTest {
+
+    private static final Duration TICK = Duration.ofMillis(1);
+
+    private static final List<CountryCost> COUNTRY_COSTS = List.of(
+            new CountryCost("GB", 7), new CountryCost("US", 5), new CountryCost("DK", 3));
+
+    enum Endpoint {
+        CARD_COST, CATALOGUE_ALL, CATALOGUE_COUNTRY
+    }
+
+    private record Request(Endpoint endpoint, String cardNumber, long scheduledNanos) {
+    }
+
+    private final LoadTestSettings settings;
+
+    private final WebClient client;
+
+    private final IinDistribution iins;
+
+    private final SplittableRandom random;
+
+    private final Map<Endpoint, EndpointStats> stats = new EnumMap<>(Endpoint.class);
+
+    private LoadTest(final LoadTestSettings settings, final WebClient client) {
+        this.settings = settings;
+        this.client = client;
+        this.iins = new IinDistribution(settings.hotSetSize(), settings.zipfExponent(), settings.newBinRatio(),
+                settings.seed());
+        this.random = new SplittableRandom(settings.seed() + 1);
+        for (Endpoint endpoint : Endpoint.values()) {
+            stats.put(endpoint, new EndpointStats());
+        }
+    }
+
+    public static void main(final String[] args) throws IOException {
+        final LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+        log.info("Load test settings: {}", settings);
+        try (MongoDBContainer mongo = new MongoDBContainer(DockerImageName.parse("mongo:4.0.10"));
+             RedisContainer redis = new RedisContainer(DockerImageName.parse("redis:latest"))) {
+            mongo.start();
+            redis.start();
+            final WireMockServer binlist = binlistStandIn(settings);
+            binlist.start();
+            final ConnectionProvider connectionProvider = ConnectionProvider.builder("load-test")
+                    .maxConnections(settings.concurrency())
+                    .pendingAcquireMaxCount(-1)
+                    .build();
+            try (ConfigurableApplicationContext application = startApplication(mongo, redis, binlist)) {
+                final int port = ((WebServerApplicationContext) application).getWebServer().getPort();
+                final WebClient client = WebClient.builder()
+                        .baseUrl("http://localhost:" + port)
+                        .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider)))
+                        .build();
+                seedCountryCosts(client);
+                final Map<String, Object> report = new LoadTest(settings, client).run();
+                report.put("binlistCalls",
+                        binlist.countRequestsMatching(RequestPatternBuilder.allRequests().build()).getCount());
+                writeReport(settings, report);
+            } finally {
+                connectionProvider.dispose();
+                binlist.stop();
+            }
+        }
+    }
+
+    private Map<String, Object> run() {
+        final long start = System.nanoTime();
+        final long recordFrom = start + settings.warmUp().toNanos();
+        final long end = recordFrom + settings.duration().toNanos();
+        final double intervalNanos = 1e9 / settings.rate();
+        final AtomicLong scheduled = new AtomicLong();
+        Flux.interval(TICK)
+                .takeWhile(tick -> System.nanoTime() < end)
+                .concatMapIterable(tick -> {
+                    final long due = (long) ((System.nanoTime() - start) / intervalNanos);
+                    final List<Request> requests = new ArrayList<>();
+                    for (long i = scheduled.get(); i < due; i++) {
+                        requests.add(nextRequest(start + (long) (i * intervalNanos)));
+                    }
+                    scheduled.set(Math.max(due, scheduled.get()));
+                    return requests;
+                })
+                // Requests beyond the concurrency wait here, the schedule is kept
+                .onBackpressureBuffer()
+                .flatMap(request -> execute(request, recordFrom), settings.concurrency())
+                .blockLast();
+        final Map<String, Object> report = new LinkedHashMap<>();
+        report.put("settings", settings.toString());
+        report.put("recordedSeconds", settings.duration().toSeconds());
+        final Map<String, Object> endpoints = new LinkedHashMap<>();
+        stats.forEach((endpoint, endpointStats) -> endpoints.put(endpoint.name(),
+                endpointStats.report(settings.duration())));
+        report.put("endpoints", endpoints);
+        return report;
+    }
+
+    private Request nextRequest(final long scheduledNanos) {
+        final double value = random.nextDouble();
+        if (value < settings.catalogueRatio() / 2) {
+            return new Request(Endpoint.CATALOGUE_ALL, null, scheduledNanos);
+        }
+        if (value < settings.catalogueRatio()) {
+            return new Request(Endpoint.CATALOGUE_COUNTRY, null, scheduledNanos);
+        }
+        return new Request(Endpoint.CARD_COST, iins.nextCardNumber(), scheduledNanos);
+    }
+
+    private Mono<Void> execute(final Request request, final long recordFrom) {
+        final WebClient.ResponseSpec response = switch (request.endpoint()) {
+            case CARD_COST -> client.post()
+                    .uri("/countryCost/cardCost")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(new CardCostRequest(request.cardNumber()))
+                    .retrieve();
+            case CATALOGUE_ALL -> client.get()
+                    .uri("/countryCost/all")
+                    .retrieve();
+            case CATALOGUE_COUNTRY -> client.get()
+                    .uri("/countryCost?country={country}", COUNTRY_COSTS
+                            .get(ThreadLocalRandom.current().nextInt(COUNTRY_COSTS.size())).country())
+                    .retrieve();
+        };
+        final EndpointStats endpointStats = stats.get(request.endpoint());
+        return response.toBodilessEntity()
+                .doOnSuccess(ignore -> {
+                    if (request.scheduledNanos() >= recordFrom) {
+                        endpointStats.record(System.nanoTime() - request.scheduledNanos(), false);
+                    }
+                })
+                .onErrorResume(error -> {
+                    if (request.scheduledNanos() >= recordFrom) {
+                        endpointStats.record(System.nanoTime() - request.scheduledNanos(), true);
+                    }
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    /**
+     * Binlist answers IINs starting with 3, 4 and 5 with GB, US and DK after a log-normal delay.
+     */
+    private static WireMockServer binlistStandIn(final LoadTestSettings settings) {
+        final WireMockServer binlist = new WireMockServer(options().dynamicPort().containerThreads(200));
+        final String[][] countries = {{"3", "GB"}, {"4", "US"}, {"5", "DK"}};
+        for (String[] country : countries) {
+            binlist.stubFor(get(urlMatching("/" + country[0] + "\\d+")).willReturn(WireMock.aResponse()
+                    .withLogNormalRandomDelay(settings.binlistLatency().toMillis(), settings.binlistLatencySigma())
+                    .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .withBody("{\"country\": {\"alpha2\": \"" + country[1] + "\"}}")));
+        }
+        return binlist;
+    }
+
+    private static ConfigurableApplicationContext startApplication(final MongoDBContainer mongo,
+                                                                   final RedisContainer redis,
+                                                                   final WireMockServer binlist) {
+        return new SpringApplicationBuilder(CardCostApiApplication.class).run(
+                "--server.port=0",
+                "--spring.data.mongodb.host=" + mongo.getHost(),
+                "--spring.data.mongodb.port=" + mongo.getMappedPort(27017),
+                "--spring.data.redis.host=" + redis.getHost(),
+                "--spring.data.redis.port=" + redis.getMappedPort(6379),
+                "--app.thirdrpovider.binlist.base-url=" + binlist.baseUrl(),
+                "--app.thirdrpovider.binlist.max-call.count=1000000000",
+                "--app.thirdrpovider.binlist.max-call.time-unit=minutes",
+                "--app.thirdrpovider.binlist.max-call.period=1",
+                "--logging.level.root=WARN");
+    }
+
+    private static void seedCountryCosts(final WebClient client) {
+        client.put()
+                .uri("/countryCost/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(COUNTRY_COSTS)
+                .retrieve()
+                .toBodilessEntity()
+                .block(Duration.ofSeconds(30));
+        // Waits until the costs are readable, so the first card cost requests are not failed by a missing cost
+        client.get()
+                .uri("/countryCost?country={country}", COUNTRY_COSTS.get(0).country())
+                .retrieve()
+                .toBodilessEntity()
+                .retryWhen(Retry.fixedDelay(100, Duration.ofMillis(100)))
+                .block(Duration.ofSeconds(30));
+    }
+
+    private static void writeReport(final LoadTestSettings settings, final Map<String, Object> report)
+            throws IOException {
+        final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        final String json = objectMapper.writeValueAsString(report);
+        if (settings.report().getParent() != null) {
+            Files.createDirectories(settings.report().getParent());
+        }
+        Files.writeString(settings.report(), json);
+        log.info("Load test report:\n{}", json);
+        log.info("Load test report is written to {}", settings.report().toAbsolutePath());
+    }
+
+    /**
+     * Latency histogram and error count of an endpoint.
+     */
+    private static final class EndpointStats {
+
+        private final Histogram latencies = new ConcurrentHistogram(TimeUnit.MINUTES.toMicros(1), 3);
+
+        private final AtomicLong errors = new AtomicLong();
+
+        void record(final long latencyNanos, final boolean failed) {
+            latencies.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos),
+                    latencies.getHighestTrackableValue()));
+            if (failed) {
+                errors.incrementAndGet();
+            }
+        }
+
+        Map<String, Object> report(final Duration duration) {
+            final Map<String, Object> report = new LinkedHashMap<>();
+            report.put("requests", latencies.getTotalCount());
+            report.put("errors", errors.get());
+            report.put("throughputPerSecond", (double) latencies.getTotalCount() / duration.toMillis() * 1000);
+            report.put("p50Ms", latencies.getValueAtPercentile(50) / 1000.0);
+            report.put("p99Ms", latencies.getValueAtPercentile(99) / 1000.0);
+            report.put("p999Ms", latencies.getValueAtPercentile(99.9) / 1000.0);
+            report.put("maxMs", latencies.getMaxValue() / 1000.0);
+            return report;
+        }
+
+    }
+
+}
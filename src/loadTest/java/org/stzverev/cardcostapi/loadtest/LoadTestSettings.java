@@ -0,0 +1,48 @@
+package org.stzverev.cardcostapi.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Settings of the load test, read from {@code loadTest.*} system properties.
+ *
+ * @param rate                  requests per second, started on schedule regardless of responses
+ * @param concurrency           maximum number of requests in flight, requests wait for a slot beyond it
+ * @param warmUp                time the load is applied before latencies are recorded
+ * @param duration              time latencies are recorded
+ * @param hotSetSize            number of IINs requested repeatedly
+ * @param zipfExponent          skew of the hot set, 0 requests every IIN equally often
+ * @param newBinRatio           share of card cost requests with an IIN never requested before
+ * @param catalogueRatio        share of requests to the catalogue endpoints
+ * @param binlistLatency        median latency of the binlist stand-in
+ * @param binlistLatencySigma   sigma of the log-normal latency of the binlist stand-in
+ * @param seed                  seed of the IIN sequence, the same seed gives the same requests
+ * @param report                file the report is written to
+ */
+record LoadTestSettings(int rate, int concurrency, Duration warmUp, Duration duration, int hotSetSize,
+                        double zipfExponent, double newBinRatio, double catalogueRatio, Duration binlistLatency,
+                        double binlistLatencySigma, long seed, Path report) {
+
+    static LoadTestSettings fromSystemProperties() {
+        return new LoadTestSettings(
+                Integer.parseInt(property("rate", "500")),
+                Integer.parseInt(property("concurrency", "256")),
+                DurationStyle.detectAndParse(property("warmUp", "10s")),
+                DurationStyle.detectAndParse(property("duration", "60s")),
+                Integer.parseInt(property("hotSetSize", "10000")),
+                Double.parseDouble(property("zipfExponent", "1.0")),
+                Double.parseDouble(property("newBinRatio", "0.01")),
+                Double.parseDouble(property("catalogueRatio", "0.05")),
+                DurationStyle.detectAndParse(property("binlistLatency", "100ms")),
+                Double.parseDouble(property("binlistLatencySigma", "0.3")),
+                Long.parseLong(property("seed", "42")),
+                Path.of(property("report", "build/reports/load-test/report.json")));
+    }
+
+    private static String property(final String name, final String defaultValue) {
+        return System.getProperty("loadTest." + name, defaultValue);
+    }
+
+}
@@ -0,0 +1,69 @@
+package org.stzverev.cardcostapi.configuration;
+
+import io.netty.channel.ChannelOption;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.stzverev.cardcostapi.configuration.properties.BinListConfig;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * HTTP client of the binlist provider. Connections are kept in a dedicated pool, so requests reuse
+ * established connections instead of paying for the connection setup. Pool metrics are published as
+ * reactor.netty.connection.provider.* meters. Additional binlist-compatible providers of the provider chain
+ * get their own pools and clients the same way.
+ */
+@Configuration
+@Slf4j
+public class BinListWebClientConfig {
+
+    private static final String POOL_NAME = "binlist";
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider binListConnectionProvider(final BinListConfig binListConfig) {
+        return connectionProvider(POOL_NAME, binListConfig);
+    }
+
+    @Bean
+    public WebClient binListWebClient(final ConnectionProvider binListConnectionProvider,
+                                      final BinListConfig binListConfig,
+                                      final WebClient.Builder webClientBuilder) {
+        return webClient(binListConnectionProvider, binListConfig, webClientBuilder);
+    }
+
+    /**
+     * Creates the connection pool of a binlist-compatible provider. The caller disposes it.
+     */
+    static ConnectionProvider connectionProvider(final String name, final BinListConfig providerConfig) {
+        final BinListConfig.ConnectionPoolConfig pool = providerConfig.getPool();
+        log.info("Connection pool {} is registered: {}", name, pool);
+        return ConnectionProvider.builder(name)
+                .maxConnections(pool.getMaxConnections())
+                .pendingAcquireMaxCount(pool.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(pool.getPendingAcquireTimeout())
+                .maxIdleTime(pool.getMaxIdleTime())
+                .maxLifeTime(pool.getMaxLifeTime())
+                .evictInBackground(pool.getEvictionInterval())
+                .metrics(true)
+                .build();
+    }
+
+    static WebClient webClient(final ConnectionProvider connectionProvider, final BinListConfig providerConfig,
+                               final WebClient.Builder webClientBuilder) {
+        final BinListConfig.ConnectionPoolConfig pool = providerConfig.getPool();
+        final HttpClient httpClient = HttpClient.create(connectionProvider)
+                .protocol(pool.getProtocols().toArray(HttpProtocol[]::new))
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, Math.toIntExact(pool.getConnectTimeout().toMillis()))
+                .responseTimeout(pool.getResponseTimeout())
+                .keepAlive(true);
+        return webClientBuilder
+                .baseUrl(providerConfig.getBaseUrl())
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+
+}
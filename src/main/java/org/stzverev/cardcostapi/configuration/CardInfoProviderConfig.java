@@ -1,6 +1,8 @@
 package org.stzverev.cardcostapi.configuration;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -10,67 +12,354 @@ import org.springframework.context.annotation.Primary;
 import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
 import org.springframework.data.redis.core.ReactiveRedisOperations;
 import org.springframework.data.redis.core.ReactiveRedisTemplate;
-import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
 import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.web.reactive.function.client.WebClient;
 import org.stzverev.cardcostapi.configuration.properties.BinListConfig;
 import org.stzverev.cardcostapi.configuration.properties.IINInfoCacheConfig;
+import org.stzverev.cardcostapi.configuration.properties.IINProviderChainConfig;
+import org.stzverev.cardcostapi.configuration.properties.IINLocalCacheConfig;
+import org.stzverev.cardcostapi.configuration.properties.RedisDegradedModeConfig;
 import org.stzverev.cardcostapi.domain.entity.IINCacheEntity;
 import org.stzverev.cardcostapi.service.cardinfoprovider.IINExtractor;
 import org.stzverev.cardcostapi.service.cardinfoprovider.IINInfoProvider;
+import org.stzverev.cardcostapi.service.cardinfoprovider.binlist.BinListMetrics;
 import org.stzverev.cardcostapi.service.cardinfoprovider.binlist.IINInfoProviderBinList;
+import org.stzverev.cardcostapi.service.cardinfoprovider.binrange.BinRangeIndexHolder;
+import org.stzverev.cardcostapi.service.cardinfoprovider.binrange.IINInfoProviderBinRange;
+import org.stzverev.cardcostapi.service.cardinfoprovider.cache.FallbackIINCacheStore;
+import org.stzverev.cardcostapi.service.cardinfoprovider.cache.IINAdaptiveTtl;
+import org.stzverev.cardcostapi.service.cardinfoprovider.cache.IINCacheAnalytics;
+import org.stzverev.cardcostapi.service.cardinfoprovider.cache.IINCacheAnalyticsEndpoint;
+import org.stzverev.cardcostapi.service.cardinfoprovider.cache.IINCacheExpiration;
+import org.stzverev.cardcostapi.service.cardinfoprovider.cache.IINCacheMetrics;
 import org.stzverev.cardcostapi.service.cardinfoprovider.cache.IINCacheProvider;
+import org.stzverev.cardcostapi.service.cardinfoprovider.cache.IINCacheStore;
+import org.stzverev.cardcostapi.service.cardinfoprovider.cache.IINCacheWriter;
+import org.stzverev.cardcostapi.service.cardinfoprovider.cache.IINLocalCache;
+import org.stzverev.cardcostapi.service.cardinfoprovider.cache.IINPrefixIndex;
+import org.stzverev.cardcostapi.service.cardinfoprovider.cache.LocalIINCacheStore;
+import org.stzverev.cardcostapi.service.cardinfoprovider.cache.MigratingIINCacheStore;
+import org.stzverev.cardcostapi.service.cardinfoprovider.cache.PrefixedKeyRedisSerializer;
+import org.stzverev.cardcostapi.service.cardinfoprovider.cache.RedisHashIINCacheStore;
+import org.stzverev.cardcostapi.service.cardinfoprovider.cache.RedisKeyIINCacheStore;
+import org.stzverev.cardcostapi.service.cardinfoprovider.chain.IINInfoProviderChain;
+import org.stzverev.cardcostapi.service.cardinfoprovider.chain.IINProviderChainMetrics;
+import org.stzverev.cardcostapi.service.circuitbreaker.CircuitBreaker;
+import org.stzverev.cardcostapi.service.ratelimit.FallbackRateLimiter;
+import org.stzverev.cardcostapi.service.ratelimit.LocalTokenBucketRateLimiter;
+import org.stzverev.cardcostapi.service.ratelimit.RateLimiter;
+import org.stzverev.cardcostapi.service.ratelimit.RedisTokenBucketRateLimiter;
+import org.stzverev.cardcostapi.service.redis.RedisAvailability;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.netty.resources.ConnectionProvider;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 
 @Configuration
 @Slf4j
 public class CardInfoProviderConfig {
 
+    private static final String BINLIST_RATE_LIMITER_KEY = "binlist-rate-limiter";
+
+    private static final String IIN_PROVIDER_PREFIX = "iin-provider-";
+
     @Autowired
     private IINInfoCacheConfig cacheConfig;
 
+    @Autowired
+    private IINLocalCacheConfig localCacheConfig;
+
+    @Autowired
+    private RedisDegradedModeConfig degradedModeConfig;
+
     @Bean
     @Primary
     @ConditionalOnProperty("app.iin-cache.enabled")
-    public IINInfoProvider cardInfoProvider(
-            @Autowired @Qualifier("cardInfoProviderBinList") IINInfoProvider cardInfoProviderBinList,
+    public IINCacheProvider cardInfoProvider(
+            @Autowired @Qualifier("cardInfoProviderUpstream") IINInfoProvider cardInfoProviderUpstream,
+            @Autowired ObjectProvider<BinRangeIndexHolder> binRangeIndexHolder,
             @Autowired IINExtractor iinExtractor,
-            @Autowired ReactiveRedisOperations<String, IINCacheEntity> redisOperationsIINCache) {
+            @Autowired IINCacheStore iinCacheStore,
+            @Autowired IINLocalCache iinLocalCache,
+            @Autowired IINPrefixIndex iinPrefixIndex,
+            @Autowired IINCacheMetrics iinCacheMetrics,
+            @Autowired IINCacheWriter iinCacheWriter,
+            @Autowired IINCacheAnalytics iinCacheAnalytics) {
         log.info("Cache is registred");
         log.info("Cache timeUnit: {}", cacheConfig.getTimeUnit());
-        return new IINCacheProvider(cardInfoProviderBinList, iinExtractor,
+        return new IINCacheProvider(upstreamProvider(cardInfoProviderUpstream, binRangeIndexHolder, iinExtractor),
+                iinExtractor, iinCacheExpiration(), iinCacheStore, iinLocalCache, iinPrefixIndex, iinCacheMetrics,
+                iinCacheWriter, iinCacheAnalytics, iinAdaptiveTtl());
+    }
+
+    private IINCacheExpiration iinCacheExpiration() {
+        final IINInfoCacheConfig.RefreshAheadConfig refreshAhead = cacheConfig.getRefreshAhead();
+        final IINInfoCacheConfig.NegativeCacheConfig negative = cacheConfig.getNegative();
+        log.info("Refresh-ahead timeUnit: {}, period: {}, enabled: {}", refreshAhead.getTimeUnit(),
+                refreshAhead.getPeriod(), refreshAhead.isEnabled());
+        log.info("Negative cache timeUnit: {}, period: {}, enabled: {}", negative.getTimeUnit(), negative.getPeriod(),
+                negative.isEnabled());
+        return new IINCacheExpiration(
                 Duration.of(cacheConfig.getPeriod(), cacheConfig.getTimeUnit().toChronoUnit()),
-                redisOperationsIINCache);
+                refreshAhead.isEnabled()
+                        ? Duration.of(refreshAhead.getPeriod(), refreshAhead.getTimeUnit().toChronoUnit()) : null,
+                negative.isEnabled()
+                        ? Duration.of(negative.getPeriod(), negative.getTimeUnit().toChronoUnit()) : Duration.ZERO,
+                cacheConfig.getJitter());
+    }
+
+    private IINAdaptiveTtl iinAdaptiveTtl() {
+        final IINInfoCacheConfig.AdaptiveTtlConfig adaptiveTtl = cacheConfig.getAdaptiveTtl();
+        if (!adaptiveTtl.isEnabled()) {
+            return IINAdaptiveTtl.disabled();
+        }
+        log.info("Adaptive IIN cache TTL is registered. Max TTL: {}, min frequency: {}, sample size: {}",
+                adaptiveTtl.getMaxTtl(), adaptiveTtl.getMinFrequency(), adaptiveTtl.getSampleSize());
+        return new IINAdaptiveTtl(adaptiveTtl.getMaxTtl(), adaptiveTtl.getMinFrequency(), adaptiveTtl.getSampleSize());
+    }
+
+    @Bean
+    @ConditionalOnProperty("app.iin-cache.enabled")
+    public IINCacheMetrics iinCacheMetrics(@Autowired MeterRegistry meterRegistry) {
+        return new IINCacheMetrics(meterRegistry);
+    }
+
+    @Bean
+    @ConditionalOnProperty("app.iin-cache.enabled")
+    public IINCacheAnalytics iinCacheAnalytics() {
+        final IINInfoCacheConfig.AnalyticsConfig analytics = cacheConfig.getAnalytics();
+        if (!analytics.isEnabled()) {
+            return IINCacheAnalytics.disabled();
+        }
+        log.info("IIN cache analytics are registered. Period: {}, top size: {}, hit ratio windows: {}",
+                analytics.getPeriod(), analytics.getTopSize(), analytics.getHitRatioWindows());
+        return new IINCacheAnalytics(analytics);
+    }
+
+    @Bean
+    @ConditionalOnProperty("app.iin-cache.enabled")
+    public IINCacheAnalyticsEndpoint iinCacheAnalyticsEndpoint(@Autowired IINCacheAnalytics iinCacheAnalytics) {
+        return new IINCacheAnalyticsEndpoint(iinCacheAnalytics);
+    }
+
+    @Bean
+    @ConditionalOnProperty("app.iin-cache.enabled")
+    public IINCacheWriter iinCacheWriter(
+            @Autowired IINCacheStore iinCacheStore,
+            @Autowired IINCacheMetrics iinCacheMetrics) {
+        final IINInfoCacheConfig.WriteBehindConfig writeBehind = cacheConfig.getWriteBehind();
+        log.info("IIN cache write-behind is registered. Batch size: {}, flush interval: {}, queue capacity: {}",
+                writeBehind.getBatchSize(), writeBehind.getFlushInterval(), writeBehind.getQueueCapacity());
+        return new IINCacheWriter(iinCacheStore, writeBehind, iinCacheMetrics);
+    }
+
+    @Bean
+    @ConditionalOnProperty("app.iin-cache.enabled")
+    public IINCacheStore iinCacheStore(
+            @Autowired ReactiveRedisOperations<String, IINCacheEntity> redisOperationsIINCache,
+            @Autowired ReactiveRedisOperations<String, byte[]> redisOperationsIINCacheHash,
+            @Autowired RedisAvailability redisAvailability,
+            @Autowired IINExtractor iinExtractor) {
+        log.info("IIN cache layout: {}", cacheConfig.getLayout());
+        final IINCacheStore store = switch (cacheConfig.getLayout()) {
+            case KEYS -> new RedisKeyIINCacheStore(redisOperationsIINCache);
+            case HASH -> new RedisHashIINCacheStore(redisOperationsIINCacheHash);
+            case MIGRATION -> new MigratingIINCacheStore(new RedisHashIINCacheStore(redisOperationsIINCacheHash),
+                    new RedisKeyIINCacheStore(redisOperationsIINCache));
+        };
+        if (!redisAvailability.isEnabled()) {
+            return store;
+        }
+        log.info("IIN cache falls back to a local store of {} entries while Redis is unavailable",
+                degradedModeConfig.getLocalCacheSize());
+        return new FallbackIINCacheStore(store, new LocalIINCacheStore(new IINLocalCache(
+                degradedModeConfig.getLocalCacheSize(), degradedModeConfig.getLocalCacheTtl()), iinExtractor),
+                redisAvailability);
+    }
+
+    @Bean
+    @Primary
+    @ConditionalOnProperty(value = "app.iin-cache.enabled", havingValue = "false", matchIfMissing = true)
+    public IINInfoProvider cardInfoProviderWithoutCache(
+            @Autowired @Qualifier("cardInfoProviderUpstream") IINInfoProvider cardInfoProviderUpstream,
+            @Autowired ObjectProvider<BinRangeIndexHolder> binRangeIndexHolder,
+            @Autowired IINExtractor iinExtractor) {
+        log.info("Cache is disabled");
+        return upstreamProvider(cardInfoProviderUpstream, binRangeIndexHolder, iinExtractor);
+    }
+
+    /**
+     * The local BIN range dataset is the primary source of card information when it is enabled,
+     * binlist or the provider chain is used as a fallback for card numbers which are not covered by the dataset.
+     */
+    private static IINInfoProvider upstreamProvider(final IINInfoProvider cardInfoProviderUpstream,
+                                                    final ObjectProvider<BinRangeIndexHolder> binRangeIndexHolder,
+                                                    final IINExtractor iinExtractor) {
+        final BinRangeIndexHolder indexHolder = binRangeIndexHolder.getIfAvailable();
+        if (indexHolder == null) {
+            return cardInfoProviderUpstream;
+        }
+        log.info("IINInfoProviderBinRange is registered with {} as fallback",
+                cardInfoProviderUpstream.getClass().getSimpleName());
+        return new IINInfoProviderBinRange(iinExtractor, indexHolder, cardInfoProviderUpstream);
+    }
+
+    @Bean
+    public IINLocalCache iinLocalCache() {
+        if (!localCacheConfig.isEnabled()) {
+            return IINLocalCache.disabled();
+        }
+        log.info("Local IIN cache is registered. Maximum size: {}, timeUnit: {}, period: {}",
+                localCacheConfig.getMaximumSize(), localCacheConfig.getTimeUnit(), localCacheConfig.getPeriod());
+        return new IINLocalCache(localCacheConfig.getMaximumSize(),
+                Duration.of(localCacheConfig.getPeriod(), localCacheConfig.getTimeUnit().toChronoUnit()));
+    }
+
+    @Bean
+    public IINPrefixIndex iinPrefixIndex() {
+        final IINInfoCacheConfig.PrefixMatchConfig prefixMatch = cacheConfig.getPrefixMatch();
+        if (!prefixMatch.isEnabled()) {
+            return IINPrefixIndex.disabled();
+        }
+        log.info("IIN prefix index is registered. Confirmations: {}, timeUnit: {}, period: {}",
+                prefixMatch.getConfirmations(), prefixMatch.getTimeUnit(), prefixMatch.getPeriod());
+        return new IINPrefixIndex(Duration.of(prefixMatch.getPeriod(), prefixMatch.getTimeUnit().toChronoUnit()),
+                prefixMatch.getConfirmations());
     }
 
     @Bean
     public IINInfoProvider cardInfoProviderBinList(
             @Autowired IINExtractor iinExtractor,
-            @Autowired ReactiveRedisOperations<String, Long> apiCallCounterRedisOperations,
-            final BinListConfig binListConfig) {
-        log.info("IINInfoProviderBinList is registered");
-        return new IINInfoProviderBinList(iinExtractor, apiCallCounterRedisOperations, binListConfig);
+            @Autowired @Qualifier("binListRateLimiter") RateLimiter binListRateLimiter,
+            @Autowired @Qualifier("binListWebClient") WebClient binListWebClient,
+            final BinListConfig binListConfig,
+            @Autowired MeterRegistry meterRegistry) {
+        return binListCompatibleProvider("binlist", iinExtractor, binListRateLimiter, binListConfig, binListWebClient,
+                meterRegistry);
     }
 
     @Bean
-    ReactiveRedisOperations<String, Long> reactiveRedisOperationsApiCallsCounter(
-            ReactiveRedisConnectionFactory factory) {
-        RedisSerializationContext<String, Long> context = RedisSerializationContext
-                .<String, Long>newSerializationContext(RedisSerializer.string())
-                .value(new GenericToStringSerializer<>(Long.class))
-                .build();
-        return new ReactiveRedisTemplate<>(factory, context);
+    public RateLimiter binListRateLimiter(ReactiveStringRedisTemplate redisTemplate, final BinListConfig binListConfig,
+                                          final RedisAvailability redisAvailability) {
+        return rateLimiter(redisTemplate, BINLIST_RATE_LIMITER_KEY, binListConfig.getMaxCall(), redisAvailability,
+                degradedModeConfig.getInstances());
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public Disposable.Composite iinProviderConnectionProviders() {
+        return Disposables.composite();
+    }
+
+    /**
+     * Binlist alone, or the chain of binlist and the configured binlist-compatible providers.
+     */
+    @Bean
+    public IINInfoProvider cardInfoProviderUpstream(
+            @Autowired @Qualifier("cardInfoProviderBinList") IINInfoProvider cardInfoProviderBinList,
+            @Autowired @Qualifier("iinProviderConnectionProviders") Disposable.Composite connectionProviders,
+            @Autowired IINExtractor iinExtractor,
+            @Autowired ReactiveStringRedisTemplate redisTemplate,
+            @Autowired WebClient.Builder webClientBuilder,
+            @Autowired RedisAvailability redisAvailability,
+            final IINProviderChainConfig chainConfig,
+            @Autowired MeterRegistry meterRegistry) {
+        if (chainConfig.getProviders().isEmpty()) {
+            return cardInfoProviderBinList;
+        }
+        final List<IINInfoProviderChain.Member> members = new ArrayList<>();
+        members.add(new IINInfoProviderChain.Member("binlist", cardInfoProviderBinList,
+                chainConfig.getBinlistWeight()));
+        for (IINProviderChainConfig.ProviderConfig providerConfig : chainConfig.getProviders()) {
+            final String name = providerConfig.getName();
+            final ConnectionProvider connectionProvider = BinListWebClientConfig.connectionProvider(
+                    IIN_PROVIDER_PREFIX + name, providerConfig);
+            connectionProviders.add(connectionProvider);
+            final WebClient webClient = BinListWebClientConfig.webClient(connectionProvider, providerConfig,
+                    webClientBuilder.clone());
+            final RateLimiter rateLimiter = rateLimiter(redisTemplate, IIN_PROVIDER_PREFIX + name + "-rate-limiter",
+                    providerConfig.getMaxCall(), redisAvailability, degradedModeConfig.getInstances());
+            members.add(new IINInfoProviderChain.Member(name, binListCompatibleProvider(name, iinExtractor,
+                    rateLimiter, providerConfig, webClient, meterRegistry), providerConfig.getWeight()));
+        }
+        log.info("IINInfoProviderChain is registered. Providers: {}, hedge delay: {}",
+                members.stream().map(IINInfoProviderChain.Member::name).toList(), chainConfig.getHedgeDelay());
+        return new IINInfoProviderChain(members, chainConfig.getHedgeDelay(), chainConfig.getErrorHalfLife(),
+                new IINProviderChainMetrics(meterRegistry));
+    }
+
+    private static IINInfoProvider binListCompatibleProvider(final String name, final IINExtractor iinExtractor,
+                                                             final RateLimiter rateLimiter,
+                                                             final BinListConfig providerConfig,
+                                                             final WebClient webClient,
+                                                             final MeterRegistry meterRegistry) {
+        final BinListConfig.CircuitBreakerConfig circuitBreakerConfig = providerConfig.getCircuitBreaker();
+        final CircuitBreaker circuitBreaker = new CircuitBreaker(name, new CircuitBreaker.Settings(
+                circuitBreakerConfig.isEnabled(), circuitBreakerConfig.getSlidingWindowSize(),
+                circuitBreakerConfig.getMinimumCalls(), circuitBreakerConfig.getFailureRateThreshold(),
+                circuitBreakerConfig.getSlowCallThreshold(), circuitBreakerConfig.getSlowCallRateThreshold(),
+                circuitBreakerConfig.getOpenDuration(), circuitBreakerConfig.getHalfOpenProbes()));
+        log.info("IINInfoProviderBinList {} is registered. Latency budget: {}, circuit breaker: {}",
+                name, providerConfig.getLatencyBudget(), circuitBreakerConfig);
+        return new IINInfoProviderBinList(iinExtractor, rateLimiter, providerConfig, webClient,
+                new BinListMetrics(meterRegistry, name, circuitBreaker), circuitBreaker);
+    }
+
+    /**
+     * Creates the rate limiter of a quota shared by all instances through Redis. While Redis is unavailable,
+     * every instance takes its share of the quota locally, or no permits at all if the number of instances sharing
+     * the quota is not set.
+     */
+    private RateLimiter rateLimiter(final ReactiveStringRedisTemplate redisTemplate, final String key,
+                                    final BinListConfig.MaxCallConfig maxCall,
+                                    final RedisAvailability redisAvailability, final Integer instances) {
+        if (maxCall == null) {
+            log.info("Rate limiter {} is not registered, the quota is not limited", key);
+            return RateLimiter.unlimited();
+        }
+        log.info("Rate limiter {} is registered. Count: {}, timeUnit: {}, period: {}",
+                key, maxCall.getCount(), maxCall.getTimeUnit(), maxCall.getPeriod());
+        final Duration refillPeriod = Duration.of(maxCall.getPeriod(), maxCall.getTimeUnit().toChronoUnit());
+        final RateLimiter shared = new RedisTokenBucketRateLimiter(redisTemplate, key, maxCall.getCount(),
+                refillPeriod);
+        if (!redisAvailability.isEnabled()) {
+            return shared;
+        }
+        if (instances == null) {
+            log.warn("Rate limiter {} takes no permits while Redis is unavailable, "
+                    + "app.redis-degraded-mode.instances is not set", key);
+            return new FallbackRateLimiter(shared, RateLimiter.denied(degradedModeConfig.getProbeInterval()),
+                    redisAvailability);
+        }
+        final long share = Math.max(1, maxCall.getCount() / Math.max(1, instances));
+        log.info("Rate limiter {} takes {} permits locally while Redis is unavailable", key, share);
+        return new FallbackRateLimiter(shared, new LocalTokenBucketRateLimiter(share, refillPeriod),
+                redisAvailability);
     }
 
     @Bean
     ReactiveRedisOperations<String, IINCacheEntity> redisOperationsIINCache(
             ReactiveRedisConnectionFactory factory) {
         return new ReactiveRedisTemplate<>(factory, RedisSerializationContext
-                .<String, IINCacheEntity>newSerializationContext(RedisSerializer.string())
+                .<String, IINCacheEntity>newSerializationContext(
+                        new PrefixedKeyRedisSerializer(RedisKeyIINCacheStore.REDIS_PREFIX))
                 .value(new Jackson2JsonRedisSerializer<>(IINCacheEntity.class))
                 .build());
     }
 
+    @Bean
+    ReactiveRedisOperations<String, byte[]> redisOperationsIINCacheHash(
+            ReactiveRedisConnectionFactory factory) {
+        return new ReactiveRedisTemplate<>(factory, RedisSerializationContext
+                .<String, byte[]>newSerializationContext(RedisSerializer.byteArray())
+                .key(new PrefixedKeyRedisSerializer(RedisHashIINCacheStore.REDIS_PREFIX))
+                .hashKey(RedisSerializer.string())
+                .build());
+    }
+
 }
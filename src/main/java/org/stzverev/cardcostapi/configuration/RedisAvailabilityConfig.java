@@ -0,0 +1,40 @@
+package org.stzverev.cardcostapi.configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.ReactiveRedisConnection;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.stzverev.cardcostapi.configuration.properties.RedisDegradedModeConfig;
+import org.stzverev.cardcostapi.service.redis.RedisAvailability;
+import org.stzverev.cardcostapi.service.redis.RedisAvailabilityMetrics;
+
+/**
+ * Degraded mode of Redis users. The IIN cache store and the provider rate limiters run their commands through
+ * {@link RedisAvailability} and fall back to local state while Redis is unavailable.
+ */
+@Configuration
+@Slf4j
+public class RedisAvailabilityConfig {
+
+    @Bean
+    public RedisAvailability redisAvailability(final ReactiveStringRedisTemplate redisTemplate,
+                                               final RedisDegradedModeConfig config) {
+        if (!config.isEnabled()) {
+            log.info("Redis degraded mode is disabled");
+            return RedisAvailability.disabled();
+        }
+        log.info("Redis degraded mode is registered: {}", config);
+        return new RedisAvailability(() -> redisTemplate.execute(ReactiveRedisConnection::ping).next(),
+                config.getCommandTimeout(), config.getBulkCommandTimeout(), config.getFailureThreshold(),
+                config.getProbeInterval(), config.getRecoveryProbes());
+    }
+
+    @Bean
+    public RedisAvailabilityMetrics redisAvailabilityMetrics(final MeterRegistry meterRegistry,
+                                                             final RedisAvailability redisAvailability) {
+        return new RedisAvailabilityMetrics(meterRegistry, redisAvailability);
+    }
+
+}
@@ -0,0 +1,35 @@
+package org.stzverev.cardcostapi.configuration.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.List;
+
+@ConfigurationProperties("app.access-log")
+@Data
+public class AccessLogConfig {
+
+    private boolean enabled = true;
+
+    /**
+     * Share of successful requests written to the access log, from 0 to 1. Failed and slow requests are always written
+     */
+    private double sampleRate = 1.0;
+
+    /**
+     * Requests taking longer are always written to the access log
+     */
+    private Duration slowThreshold = Duration.ofSeconds(1);
+
+    /**
+     * Requests with paths starting with one of the prefixes are not written to the access log
+     */
+    private List<String> excludedPaths = List.of("/actuator");
+
+    /**
+     * Capacity of the asynchronous appender queue, records are dropped once it's full. Read by logback-spring.xml
+     */
+    private int queueSize = 8192;
+
+}
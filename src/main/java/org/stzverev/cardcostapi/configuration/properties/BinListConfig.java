@@ -3,7 +3,10 @@ package org.stzverev.cardcostapi.configuration.properties;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.NestedConfigurationProperty;
+import reactor.netty.http.HttpProtocol;
 
+import java.time.Duration;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 @ConfigurationProperties("app.thirdrpovider.binlist")
@@ -15,6 +18,20 @@ public class BinListConfig {
     @NestedConfigurationProperty
     private MaxCallConfig maxCall;
 
+    @NestedConfigurationProperty
+    private ConnectionPoolConfig pool = new ConnectionPoolConfig();
+
+    /**
+     * Overall time of a binlist lookup including retries, the lookup fails with 504 once it's spent
+     */
+    private Duration latencyBudget = Duration.ofSeconds(3);
+
+    @NestedConfigurationProperty
+    private RetryConfig retry = new RetryConfig();
+
+    @NestedConfigurationProperty
+    private CircuitBreakerConfig circuitBreaker = new CircuitBreakerConfig();
+
     @Data
     public static class MaxCallConfig {
 
@@ -26,4 +43,72 @@ public class BinListConfig {
 
     }
 
+    @Data
+    public static class RetryConfig {
+
+        private int maxRetries = 2;
+
+        private Duration backoff = Duration.ofMillis(200);
+
+    }
+
+    @Data
+    public static class CircuitBreakerConfig {
+
+        private boolean enabled = true;
+
+        /**
+         * Number of the last lookups the failure and slow call rates are computed over
+         */
+        private int slidingWindowSize = 20;
+
+        /**
+         * Number of lookups in the window before the circuit breaker can open
+         */
+        private int minimumCalls = 5;
+
+        private double failureRateThreshold = 0.5;
+
+        /**
+         * Lookups taking longer are slow
+         */
+        private Duration slowCallThreshold = Duration.ofSeconds(2);
+
+        private double slowCallRateThreshold = 0.8;
+
+        /**
+         * Time lookups are rejected with 503 before probes are let through
+         */
+        private Duration openDuration = Duration.ofSeconds(30);
+
+        /**
+         * Number of successful probes closing the circuit breaker
+         */
+        private int halfOpenProbes = 2;
+
+    }
+
+    @Data
+    public static class ConnectionPoolConfig {
+
+        private int maxConnections = 50;
+
+        private int pendingAcquireMaxCount = 500;
+
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(5);
+
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+
+        private Duration maxLifeTime = Duration.ofMinutes(10);
+
+        private Duration evictionInterval = Duration.ofSeconds(30);
+
+        private Duration connectTimeout = Duration.ofSeconds(2);
+
+        private Duration responseTimeout = Duration.ofSeconds(5);
+
+        private List<HttpProtocol> protocols = List.of(HttpProtocol.HTTP11);
+
+    }
+
 }
@@ -0,0 +1,20 @@
+package org.stzverev.cardcostapi.configuration.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.concurrent.TimeUnit;
+
+@ConfigurationProperties("app.bin-range")
+@Data
+public class BinRangeConfig {
+
+    private String path;
+
+    private TimeUnit timeUnit = TimeUnit.MINUTES;
+
+    private Long period = 1L;
+
+    private boolean enabled;
+
+}
@@ -0,0 +1,19 @@
+package org.stzverev.cardcostapi.configuration.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties("app.card-cost-batch")
+@Data
+public class CardCostBatchConfig {
+
+    private int windowSize = 500;
+
+    /**
+     * Maximum time the first card of a window waits for the window to fill up
+     */
+    private Duration maxWait = Duration.ofMillis(100);
+
+}
@@ -0,0 +1,24 @@
+package org.stzverev.cardcostapi.configuration.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+@ConfigurationProperties("app.country-cost-table")
+@Data
+public class CountryCostTableConfig {
+
+    private TimeUnit timeUnit = TimeUnit.MINUTES;
+
+    private Long period = 5L;
+
+    private boolean changeStreamEnabled = true;
+
+    /**
+     * How long a request waits for the first load of the table before failing with 503
+     */
+    private Duration loadTimeout = Duration.ofSeconds(5);
+
+}
@@ -2,7 +2,10 @@ package org.stzverev.cardcostapi.configuration.properties;
 
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.NestedConfigurationProperty;
 
+import java.time.Duration;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 @ConfigurationProperties("app.iin-cache")
@@ -15,4 +18,195 @@ public class IINInfoCacheConfig {
 
     private boolean enabled;
 
+    private Layout layout = Layout.KEYS;
+
+    /**
+     * Maximum relative random deviation of expirations, so entries written together don't expire at the same moment
+     */
+    private double jitter = 0.1;
+
+    @NestedConfigurationProperty
+    private RefreshAheadConfig refreshAhead = new RefreshAheadConfig();
+
+    @NestedConfigurationProperty
+    private NegativeCacheConfig negative = new NegativeCacheConfig();
+
+    /**
+     * Redis layout of the cache
+     */
+    public enum Layout {
+
+        /**
+         * Separate key with JSON value per IIN
+         */
+        KEYS,
+
+        /**
+         * Hashes bucketed by 6-digit IIN prefix with compact binary values
+         */
+        HASH,
+
+        /**
+         * Writes go to hashes, reads fall back to keys. Used to switch from keys to hashes without a cold cache
+         */
+        MIGRATION
+
+    }
+
+    /**
+     * Entries older than the cache expiration are served while they are refreshed in the background,
+     * until the hard expiration configured here
+     */
+    @Data
+    public static class RefreshAheadConfig {
+
+        private TimeUnit timeUnit = TimeUnit.DAYS;
+
+        private Long period = 7L;
+
+        private boolean enabled = true;
+
+    }
+
+    @NestedConfigurationProperty
+    private WriteBehindConfig writeBehind = new WriteBehindConfig();
+
+    @NestedConfigurationProperty
+    private PrefixMatchConfig prefixMatch = new PrefixMatchConfig();
+
+    @NestedConfigurationProperty
+    private AnalyticsConfig analytics = new AnalyticsConfig();
+
+    @NestedConfigurationProperty
+    private AdaptiveTtlConfig adaptiveTtl = new AdaptiveTtlConfig();
+
+    /**
+     * Caching of IINs unknown to the card info provider
+     */
+    @Data
+    public static class NegativeCacheConfig {
+
+        private TimeUnit timeUnit = TimeUnit.MINUTES;
+
+        private Long period = 10L;
+
+        private boolean enabled = true;
+
+    }
+
+    /**
+     * Answering IINs by the country learned for their 6-digit BIN instead of calling the card info provider
+     */
+    @Data
+    public static class PrefixMatchConfig {
+
+        private TimeUnit timeUnit = TimeUnit.HOURS;
+
+        private Long period = 24L;
+
+        /**
+         * Number of agreeing provider answers under a BIN before the BIN answers other IINs under it
+         */
+        private int confirmations = 2;
+
+        private boolean enabled = true;
+
+    }
+
+    @Data
+    public static class WriteBehindConfig {
+
+        /**
+         * Maximum number of entries written to Redis in one pipelined batch
+         */
+        private int batchSize = 100;
+
+        /**
+         * Maximum time an entry waits in the queue when the batch is not full
+         */
+        private Duration flushInterval = Duration.ofMillis(200);
+
+        /**
+         * Entries are dropped when the queue is full
+         */
+        private int queueCapacity = 10_000;
+
+        /**
+         * Maximum time to drain the queue on shutdown
+         */
+        private Duration shutdownTimeout = Duration.ofSeconds(5);
+
+    }
+
+    /**
+     * Longer expirations of frequently requested IINs. Other IINs keep the cache expiration, which is the lower bound
+     */
+    @Data
+    public static class AdaptiveTtlConfig {
+
+        private boolean enabled = true;
+
+        /**
+         * Upper bound of the expiration of the most requested IINs
+         */
+        private Duration maxTtl = Duration.ofDays(7);
+
+        /**
+         * Lookups of an IIN within a sample from which its expiration is extended. The expiration is multiplied by
+         * the lookups divided by this frequency
+         */
+        private int minFrequency = 4;
+
+        /**
+         * Lookups after which the frequencies are halved, so they follow the recent traffic. It is also the number of
+         * counters per row of the frequency sketch
+         */
+        private int sampleSize = 32_768;
+
+    }
+
+    /**
+     * Distinct IINs, most requested IINs and hit ratios of the cache, reported by the iincache actuator endpoint
+     */
+    @Data
+    public static class AnalyticsConfig {
+
+        private boolean enabled = true;
+
+        /**
+         * Distinct and most requested IINs are counted over the last one to two periods
+         */
+        private Duration period = Duration.ofHours(1);
+
+        /**
+         * Number of most requested IINs reported
+         */
+        private int topSize = 20;
+
+        /**
+         * Precision of the distinct IIN count, 2^precision registers with the standard error of
+         * 1.04 / sqrt(2^precision)
+         */
+        private int precision = 14;
+
+        /**
+         * Counters per row of the request count sketch, rounded up to a power of two
+         */
+        private int sketchWidth = 8192;
+
+        /**
+         * Rows of the request count sketch
+         */
+        private int sketchDepth = 4;
+
+        /**
+         * Precision of the hit ratio windows
+         */
+        private Duration hitRatioSlot = Duration.ofSeconds(10);
+
+        private List<Duration> hitRatioWindows = List.of(Duration.ofMinutes(1), Duration.ofMinutes(5),
+                Duration.ofMinutes(15));
+
+    }
+
 }
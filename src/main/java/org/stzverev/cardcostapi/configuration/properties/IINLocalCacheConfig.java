@@ -0,0 +1,20 @@
+package org.stzverev.cardcostapi.configuration.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.concurrent.TimeUnit;
+
+@ConfigurationProperties("app.iin-local-cache")
+@Data
+public class IINLocalCacheConfig {
+
+    private TimeUnit timeUnit = TimeUnit.SECONDS;
+
+    private Long period = 30L;
+
+    private long maximumSize = 10_000;
+
+    private boolean enabled;
+
+}
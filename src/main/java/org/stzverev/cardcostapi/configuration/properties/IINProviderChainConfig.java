@@ -0,0 +1,53 @@
+package org.stzverev.cardcostapi.configuration.properties;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.List;
+
+@ConfigurationProperties("app.iin-provider-chain")
+@Data
+public class IINProviderChainConfig {
+
+    /**
+     * Weight of binlist in the chain, see {@link ProviderConfig#getWeight()}
+     */
+    private int binlistWeight = 1;
+
+    /**
+     * The next provider is called as well when the first one hasn't answered in this time. No hedging if not set
+     */
+    private Duration hedgeDelay;
+
+    /**
+     * Time after which half of the observed error rate of a provider is forgotten, so a failed provider is tried again
+     */
+    private Duration errorHalfLife = Duration.ofMinutes(1);
+
+    /**
+     * Binlist-compatible providers used along with binlist. The chain is not used if there are none
+     */
+    private List<ProviderConfig> providers = List.of();
+
+    /**
+     * A binlist-compatible provider with its own quota, latency budget, retries, circuit breaker and connection pool.
+     * The quota is not limited if max-call is not set.
+     */
+    @Data
+    @EqualsAndHashCode(callSuper = true)
+    @ToString(callSuper = true)
+    public static class ProviderConfig extends BinListConfig {
+
+        private String name;
+
+        /**
+         * A provider with a larger weight is preferred at the same latency and error rate
+         */
+        private int weight = 1;
+
+    }
+
+}
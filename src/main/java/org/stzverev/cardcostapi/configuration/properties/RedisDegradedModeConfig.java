@@ -0,0 +1,59 @@
+package org.stzverev.cardcostapi.configuration.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Degraded mode of the IIN cache and of the provider quotas while Redis is unavailable
+ */
+@ConfigurationProperties("app.redis-degraded-mode")
+@Data
+public class RedisDegradedModeConfig {
+
+    private boolean enabled = true;
+
+    /**
+     * Redis commands taking longer fail and count as Redis failures
+     */
+    private Duration commandTimeout = Duration.ofMillis(250);
+
+    /**
+     * Bulk Redis commands, e.g. batches of IIN cache writes, taking longer fail. Bulk commands don't count as Redis
+     * failures
+     */
+    private Duration bulkCommandTimeout = Duration.ofSeconds(5);
+
+    /**
+     * Number of consecutive failed Redis commands switching to the degraded mode
+     */
+    private int failureThreshold = 3;
+
+    /**
+     * Time between Redis pings in the degraded mode
+     */
+    private Duration probeInterval = Duration.ofSeconds(1);
+
+    /**
+     * Number of consecutive successful pings switching back to Redis
+     */
+    private int recoveryProbes = 3;
+
+    /**
+     * Maximum number of IIN cache entries kept in memory for the degraded mode, rounded down to a power of two
+     */
+    private int localCacheSize = 100_000;
+
+    /**
+     * Maximum time an IIN cache entry is kept in memory, entries written with a shorter expiration expire earlier
+     */
+    private Duration localCacheTtl = Duration.ofMinutes(30);
+
+    /**
+     * Number of instances sharing a provider quota, every instance takes its share of the quota in the degraded mode.
+     * Not set by default: provider calls of a limited quota are refused in the degraded mode until it is set
+     */
+    private Integer instances;
+
+}
@@ -0,0 +1,40 @@
+package org.stzverev.cardcostapi.configuration.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.core.io.Resource;
+
+import java.time.Duration;
+
+@ConfigurationProperties("app.warm-up")
+@Data
+public class WarmUpConfig {
+
+    private boolean enabled;
+
+    /**
+     * CSV snapshot of IIN to country mappings with lines {@code iin,country}, e.g. file:/data/iin-snapshot.csv
+     */
+    private Resource iinSnapshot;
+
+    /**
+     * Mongo collection of IIN to country mappings with the IIN as {@code _id} and a {@code country} field
+     */
+    private String iinCollection;
+
+    /**
+     * Number of entries written to Redis in one pipelined batch
+     */
+    private int batchSize = 1000;
+
+    /**
+     * Number of batches written concurrently
+     */
+    private int concurrency = 4;
+
+    /**
+     * The node reports readiness after this time even if the warm-up is not finished
+     */
+    private Duration timeout = Duration.ofMinutes(5);
+
+}
@@ -1,7 +1,25 @@
 package org.stzverev.cardcostapi.domain.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Builder;
 
+/**
+ * Cached card info of an IIN. An entry without issuing country is a negative entry: the provider
+ * doesn't know the IIN.
+ *
+ * @param softExpiresAt epoch milliseconds after which the entry is served stale and refreshed,
+ *                      null if the entry is never refreshed ahead of its expiration in Redis
+ */
 @Builder
-public record IINCacheEntity(String iin, String issuingCountry) {
+public record IINCacheEntity(String iin, String issuingCountry, Long softExpiresAt) {
+
+    public static IINCacheEntity unknown(final String iin) {
+        return new IINCacheEntity(iin, null, null);
+    }
+
+    @JsonIgnore
+    public boolean isUnknown() {
+        return issuingCountry == null;
+    }
+
 }
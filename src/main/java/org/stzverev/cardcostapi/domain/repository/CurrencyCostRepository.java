@@ -4,13 +4,15 @@ import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import org.stzverev.cardcostapi.domain.entity.CurrencyCostEntity;
 import reactor.core.publisher.Mono;
 
-public interface CurrencyCostRepository extends ReactiveMongoRepository<CurrencyCostEntity, Long> {
+public interface CurrencyCostRepository extends ReactiveMongoRepository<CurrencyCostEntity, Long>,
+        CurrencyCostRepositoryCustom {
 
     Mono<CurrencyCostEntity> findByIssuingCountry(String country);
 
-    Mono<Boolean> existsByIssuingCountry(String country);
-
-    Mono<Void> deleteByIssuingCountry(String issuingCountry);
+    /**
+     * @return a Mono emitting the number of deleted documents
+     */
+    Mono<Long> deleteByIssuingCountry(String issuingCountry);
 
 
 }
@@ -0,0 +1,39 @@
+package org.stzverev.cardcostapi.domain.repository;
+
+import org.stzverev.cardcostapi.domain.entity.CurrencyCostEntity;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Writes of {@link CurrencyCostRepository} which take a single command each, so they are atomic and
+ * cost one round trip.
+ */
+public interface CurrencyCostRepositoryCustom {
+
+    /**
+     * Inserts the cost unless the country already has one.
+     *
+     * @param entity the cost
+     * @return a Mono emitting true if the cost is inserted and false if the country already has a cost
+     */
+    Mono<Boolean> insertIfAbsent(CurrencyCostEntity entity);
+
+    /**
+     * Updates the cost of the country with find-and-modify.
+     *
+     * @param country ISO2 code or empty string for the common cost
+     * @param cost    the new cost
+     * @return a Mono emitting the updated entity or empty if the country has no cost
+     */
+    Mono<CurrencyCostEntity> updateCost(String country, long cost);
+
+    /**
+     * Inserts or updates all costs with one unordered bulk write. A failed item doesn't stop the others.
+     *
+     * @param entities the costs
+     * @return a Mono emitting the outcome of every item in the order of the entities
+     */
+    Mono<List<UpsertResult>> upsertAll(List<CurrencyCostEntity> entities);
+
+}
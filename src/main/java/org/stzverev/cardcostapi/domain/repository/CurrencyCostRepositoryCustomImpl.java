@@ -0,0 +1,101 @@
+package org.stzverev.cardcostapi.domain.repository;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.stzverev.cardcostapi.domain.entity.CurrencyCostEntity;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+@RequiredArgsConstructor
+class CurrencyCostRepositoryCustomImpl implements CurrencyCostRepositoryCustom {
+
+    private static final String COST = "cost";
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    /**
+     * The country is the id, so the unique id index rejects a second cost of the country.
+     */
+    @Override
+    public Mono<Boolean> insertIfAbsent(final CurrencyCostEntity entity) {
+        return mongoTemplate.insert(entity)
+                .thenReturn(true)
+                .onErrorResume(DuplicateKeyException.class, error -> Mono.just(false));
+    }
+
+    @Override
+    public Mono<CurrencyCostEntity> updateCost(final String country, final long cost) {
+        return mongoTemplate.findAndModify(byCountry(country), Update.update(COST, cost),
+                FindAndModifyOptions.options().returnNew(true), CurrencyCostEntity.class);
+    }
+
+    @Override
+    public Mono<List<UpsertResult>> upsertAll(final List<CurrencyCostEntity> entities) {
+        if (entities.isEmpty()) {
+            return Mono.just(List.of());
+        }
+        final ReactiveBulkOperations bulk = mongoTemplate.bulkOps(BulkMode.UNORDERED, CurrencyCostEntity.class);
+        for (final CurrencyCostEntity entity : entities) {
+            bulk.upsert(byCountry(entity.getIssuingCountry()), Update.update(COST, entity.getCost()));
+        }
+        return bulk.execute()
+                .map(result -> toResults(entities, result, List.of()))
+                .onErrorResume(error -> bulkWriteException(error) != null || error instanceof BulkOperationException,
+                        error -> {
+                            if (error instanceof BulkOperationException bulkError) {
+                                return Mono.just(toResults(entities, bulkError.getResult(), bulkError.getErrors()));
+                            }
+                            final MongoBulkWriteException bulkError = bulkWriteException(error);
+                            return Mono.just(toResults(entities, bulkError.getWriteResult(),
+                                    bulkError.getWriteErrors()));
+                        });
+    }
+
+    private static List<UpsertResult> toResults(final List<CurrencyCostEntity> entities,
+                                                final BulkWriteResult result, final List<BulkWriteError> errors) {
+        final UpsertResult.Outcome[] outcomes = new UpsertResult.Outcome[entities.size()];
+        final String[] messages = new String[entities.size()];
+        for (final BulkWriteUpsert upsert : result.getUpserts()) {
+            outcomes[upsert.getIndex()] = UpsertResult.Outcome.INSERTED;
+        }
+        for (final BulkWriteError error : errors) {
+            outcomes[error.getIndex()] = UpsertResult.Outcome.FAILED;
+            messages[error.getIndex()] = error.getMessage();
+        }
+        final List<UpsertResult> results = new ArrayList<>(entities.size());
+        for (int i = 0; i < entities.size(); i++) {
+            results.add(new UpsertResult(i, entities.get(i).getIssuingCountry(),
+                    outcomes[i] == null ? UpsertResult.Outcome.UPDATED : outcomes[i], messages[i]));
+        }
+        return results;
+    }
+
+    private static MongoBulkWriteException bulkWriteException(final Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoBulkWriteException bulkWriteException) {
+                return bulkWriteException;
+            }
+        }
+        return null;
+    }
+
+    private static Query byCountry(final String country) {
+        return Query.query(where("_id").is(country));
+    }
+
+}
@@ -0,0 +1,17 @@
+package org.stzverev.cardcostapi.domain.repository;
+
+/**
+ * Outcome of a single item of a bulk upsert.
+ *
+ * @param index   position of the item in the upserted list
+ * @param id      id of the item
+ * @param outcome what happened to the item
+ * @param error   error message of a failed item, null otherwise
+ */
+public record UpsertResult(int index, String id, Outcome outcome, String error) {
+
+    public enum Outcome {
+        INSERTED, UPDATED, FAILED
+    }
+
+}
@@ -0,0 +1,24 @@
+package org.stzverev.cardcostapi.exceptions;
+
+import lombok.Getter;
+import org.slf4j.helpers.FormattingTuple;
+import org.slf4j.helpers.MessageFormatter;
+
+/**
+ * The card info provider doesn't know the IIN. Expected outcome, so the stack trace is not captured.
+ */
+@Getter
+public class CardInfoIsNotFoundException extends RuntimeException {
+
+    private final String iin;
+
+    private CardInfoIsNotFoundException(final String iin, final FormattingTuple formattingTuple) {
+        super(formattingTuple.getMessage(), formattingTuple.getThrowable(), true, false);
+        this.iin = iin;
+    }
+
+    public CardInfoIsNotFoundException(final String iin, String message, Object... args) {
+        this(iin, MessageFormatter.arrayFormat(message, args));
+    }
+
+}
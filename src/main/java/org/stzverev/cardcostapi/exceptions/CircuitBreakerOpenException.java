@@ -0,0 +1,21 @@
+package org.stzverev.cardcostapi.exceptions;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+
+/**
+ * The call is rejected without being made, because the circuit breaker of the provider is open.
+ */
+@Getter
+public class CircuitBreakerOpenException extends ThirdPartyException {
+
+    private final Duration retryAfter;
+
+    public CircuitBreakerOpenException(final Duration retryAfter, String message, Object... args) {
+        super(HttpStatus.SERVICE_UNAVAILABLE, message, args);
+        this.retryAfter = retryAfter;
+    }
+
+}
@@ -0,0 +1,18 @@
+package org.stzverev.cardcostapi.exceptions;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+
+@Getter
+public class QuotaExceededException extends ThirdPartyException {
+
+    private final Duration retryAfter;
+
+    public QuotaExceededException(final Duration retryAfter, String message, Object... args) {
+        super(HttpStatus.TOO_MANY_REQUESTS, message, args);
+        this.retryAfter = retryAfter;
+    }
+
+}
@@ -0,0 +1,13 @@
+package org.stzverev.cardcostapi.exceptions;
+
+/**
+ * The Redis command is not sent, because Redis is unavailable and the application is in the degraded mode.
+ * The stack trace is not captured, the exception is an expected outcome in the degraded mode.
+ */
+public class RedisUnavailableException extends RuntimeException {
+
+    public RedisUnavailableException(final String message) {
+        super(message, null, true, false);
+    }
+
+}
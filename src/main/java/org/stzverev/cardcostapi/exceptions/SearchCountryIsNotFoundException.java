@@ -4,13 +4,17 @@ import lombok.Getter;
 import org.slf4j.helpers.FormattingTuple;
 import org.slf4j.helpers.MessageFormatter;
 
+/**
+ * Expected outcome of card cost requests for countries without a cost. The stack trace is not captured,
+ * since it is never used and costs more than the rest of the request.
+ */
 @Getter
 public class SearchCountryIsNotFoundException extends RuntimeException {
 
     private final String country;
 
     private SearchCountryIsNotFoundException(final String country, final FormattingTuple formattingTuple) {
-        super(formattingTuple.getMessage(), formattingTuple.getThrowable());
+        super(formattingTuple.getMessage(), formattingTuple.getThrowable(), true, false);
         this.country = country;
     }
 
@@ -5,13 +5,17 @@ import org.slf4j.helpers.FormattingTuple;
 import org.slf4j.helpers.MessageFormatter;
 import org.springframework.http.HttpStatusCode;
 
+/**
+ * Error response or unavailability of a third party provider. The stack trace is not captured, because the
+ * exception is created on expected outcomes like an exhausted quota; the cause keeps its own stack trace.
+ */
 @Getter
 public class ThirdPartyException extends RuntimeException {
 
     private final HttpStatusCode code;
 
     private ThirdPartyException(final HttpStatusCode code, final FormattingTuple formattingTuple) {
-        super(formattingTuple.getMessage(), formattingTuple.getThrowable());
+        super(formattingTuple.getMessage(), formattingTuple.getThrowable(), true, false);
         this.code = code;
     }
 
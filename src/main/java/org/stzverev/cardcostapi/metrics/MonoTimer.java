@@ -0,0 +1,58 @@
+package org.stzverev.cardcostapi.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records latency of Monos in a timer with percentile histogram, tagged by outcome (success or error).
+ * Latency is measured from subscription to termination, so every retry of a resubscribed Mono is recorded
+ * separately. Cancelled Monos are not recorded.
+ */
+public final class MonoTimer {
+
+    private final Timer success;
+
+    private final Timer error;
+
+    /**
+     * Creates and registers the timers.
+     *
+     * @param registry    meter registry
+     * @param name        name of the timer
+     * @param description description of the timer
+     * @param tags        additional tags as key value pairs
+     */
+    public MonoTimer(final MeterRegistry registry, final String name, final String description,
+                     final String... tags) {
+        this.success = register(registry, name, description, "success", tags);
+        this.error = register(registry, name, description, "error", tags);
+    }
+
+    public <T> Mono<T> time(final Mono<T> mono) {
+        return Mono.defer(() -> {
+            final long start = System.nanoTime();
+            return mono.doFinally(signal -> {
+                if (signal == SignalType.ON_COMPLETE) {
+                    success.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                } else if (signal == SignalType.ON_ERROR) {
+                    error.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+            });
+        });
+    }
+
+    private static Timer register(final MeterRegistry registry, final String name, final String description,
+                                  final String outcome, final String... tags) {
+        return Timer.builder(name)
+                .description(description)
+                .tags(tags)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+}
@@ -0,0 +1,18 @@
+package org.stzverev.cardcostapi.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+public record CardCostBatchItem(
+        @Schema(description = "Position of the card in the request") long index,
+        @Schema(description = "Card cost, absent if the card failed") CardCostResponse result,
+        @Schema(description = "Error status, absent if the card succeeded") CardCostResponseStatus error) {
+
+    public static CardCostBatchItem success(final long index, final CardCostResponse result) {
+        return new CardCostBatchItem(index, result, null);
+    }
+
+    public static CardCostBatchItem failure(final long index, final CardCostResponseStatus error) {
+        return new CardCostBatchItem(index, null, error);
+    }
+
+}
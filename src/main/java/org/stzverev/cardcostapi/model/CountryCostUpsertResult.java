@@ -0,0 +1,12 @@
+package org.stzverev.cardcostapi.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import org.stzverev.cardcostapi.domain.repository.UpsertResult;
+
+public record CountryCostUpsertResult(
+        @Schema(description = "Position of the country cost in the request") int index,
+        @Schema(example = "US", description = "Country iso2 code") String country,
+        @Schema(description = "INSERTED, UPDATED or FAILED") UpsertResult.Outcome outcome,
+        @Schema(description = "Error message, absent if the country cost is written") String error) {
+
+}
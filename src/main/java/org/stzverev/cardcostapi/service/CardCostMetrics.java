@@ -0,0 +1,61 @@
+package org.stzverev.cardcostapi.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.stzverev.cardcostapi.metrics.MonoTimer;
+import reactor.core.publisher.Mono;
+
+/**
+ * Metrics of the card cost pipeline: latency of card info lookups and of country cost table reloads,
+ * counters of costs resolved by country, by the common cost and not resolved at all.
+ * <p>
+ * Latency of single Mongo commands of {@code CurrencyCostRepository} is recorded by Spring Boot
+ * as {@code mongodb.driver.commands}.
+ */
+@Component
+public class CardCostMetrics {
+
+    private static final String COSTS = "card.cost.country";
+
+    private final MonoTimer cardInfoLookup;
+
+    private final MonoTimer costTableReload;
+
+    private final Counter countryCosts;
+
+    private final Counter defaultCosts;
+
+    private final Counter missingCosts;
+
+    public CardCostMetrics(final MeterRegistry registry) {
+        this.cardInfoLookup = new MonoTimer(registry, "card.cost.card.info",
+                "Latency of card info lookups including all cache tiers");
+        this.costTableReload = new MonoTimer(registry, "card.cost.table.reload",
+                "Latency of full reloads of the country cost table");
+        this.countryCosts = Counter.builder(COSTS).tag("result", "found").register(registry);
+        this.defaultCosts = Counter.builder(COSTS).tag("result", "fallback").register(registry);
+        this.missingCosts = Counter.builder(COSTS).tag("result", "missing").register(registry);
+    }
+
+    public <T> Mono<T> timeCardInfoLookup(final Mono<T> mono) {
+        return cardInfoLookup.time(mono);
+    }
+
+    public <T> Mono<T> timeCostTableReload(final Mono<T> mono) {
+        return costTableReload.time(mono);
+    }
+
+    public void countryCostFound() {
+        countryCosts.increment();
+    }
+
+    public void fallbackToDefaultCost() {
+        defaultCosts.increment();
+    }
+
+    public void costMissing() {
+        missingCosts.increment();
+    }
+
+}
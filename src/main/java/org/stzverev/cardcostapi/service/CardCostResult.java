@@ -0,0 +1,22 @@
+package org.stzverev.cardcostapi.service;
+
+import org.stzverev.cardcostapi.model.CardCostResponse;
+
+/**
+ * Result of a single card within a batch. Exactly one of response and error is set.
+ *
+ * @param index    position of the card in the batch
+ * @param response card cost if the card succeeded
+ * @param error    the error if the card failed
+ */
+public record CardCostResult(long index, CardCostResponse response, Throwable error) {
+
+    public static CardCostResult success(final long index, final CardCostResponse response) {
+        return new CardCostResult(index, response, null);
+    }
+
+    public static CardCostResult failure(final long index, final Throwable error) {
+        return new CardCostResult(index, null, error);
+    }
+
+}
@@ -1,21 +1,36 @@
 package org.stzverev.cardcostapi.service;
 
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.stzverev.cardcostapi.configuration.properties.CardCostBatchConfig;
 import org.stzverev.cardcostapi.domain.entity.CurrencyCostEntity;
 import org.stzverev.cardcostapi.domain.repository.CurrencyCostRepository;
+import org.stzverev.cardcostapi.domain.repository.UpsertResult;
 import org.stzverev.cardcostapi.exceptions.CountryAlreadyExistException;
 import org.stzverev.cardcostapi.exceptions.CountryIsNotFoundException;
 import org.stzverev.cardcostapi.exceptions.SearchCountryIsNotFoundException;
 import org.stzverev.cardcostapi.model.CardCostRequest;
 import org.stzverev.cardcostapi.model.CardCostResponse;
 import org.stzverev.cardcostapi.model.CountryCost;
+import org.stzverev.cardcostapi.model.CountryCostUpsertResult;
+import org.stzverev.cardcostapi.service.cardinfoprovider.IINExtractor;
 import org.stzverev.cardcostapi.service.cardinfoprovider.IINInfoProvider;
+import org.stzverev.cardcostapi.service.cardinfoprovider.IINLookup;
+import org.stzverev.cardcostapi.service.countrycost.CountryCostTable;
+import org.stzverev.cardcostapi.service.countrycost.CountryCostTableProvider;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * This class is responsible for providing card cost information and updating clearing cost information
@@ -29,6 +44,19 @@ public class CardCostService {
 
     private final CurrencyCostRepository costRepository;
 
+    private final CountryCostTableProvider costTableProvider;
+
+    private final IINExtractor iinExtractor;
+
+    private final CardCostBatchConfig batchConfig;
+
+    private final CardCostMetrics metrics;
+
+    /**
+     * Validates items of batch requests one by one, so an invalid card fails only its own item.
+     */
+    private final Validator validator;
+
     /**
      * Retrieves the cost of a card based on the provided card number.
      *
@@ -36,39 +64,140 @@ public class CardCostService {
      * @return a Mono object that emits the CardCostResponse once the card cost is retrieved
      */
     public Mono<CardCostResponse> getCardCost(CardCostRequest cardCostRequest) {
-        return iinInfoProvider.getCardInfoByNumber(cardCostRequest.cardNumber())
-                .doOnNext(iinInfo -> log.info("Card info provided: {}", iinInfo))
+        return metrics.timeCardInfoLookup(iinInfoProvider.getCardInfoByNumber(cardCostRequest.cardNumber()))
+                .doOnNext(iinInfo -> log.debug("Card info provided: {}", iinInfo))
                 .flatMap(IINInfo -> getClearCostByCountry(IINInfo.country())
                         .map(clearCost -> new CardCostResponse(IINInfo.country(), clearCost)));
     }
 
     /**
-     * Retrieves all country costs.
+     * Retrieves the current in-memory cost table. Its ETag identifies the costs, so readers can check
+     * whether the costs changed before reading them.
      *
-     * @return a Flux of CountryCost representing all country costs.
+     * @return a Mono emitting the current cost table
      */
-    public Flux<CountryCost> getAllCosts() {
-        return costRepository.findAll()
-                .map(this::mapToCurrencyCost);
+    public Mono<CountryCostTable> getCostTable() {
+        return costTableProvider.getTable();
     }
 
     /**
-     * Retrieves the clear cost by country.
+     * Retrieves all country costs of the cost table.
+     *
+     * @param table the cost table
+     * @return a list of CountryCost representing all country costs.
+     */
+    public List<CountryCost> getAllCosts(final CountryCostTable table) {
+        return table.toEntities().stream()
+                .map(this::mapToCurrencyCost)
+                .toList();
+    }
+
+    /**
+     * Retrieves the clear cost by country from the in-memory cost table.
+     * If there is no cost for the country, the common cost configured for the empty country is used.
      *
      * @param country the country for which to retrieve the clear cost
      * @return a Mono emitting the clear cost as a Long
      * @throws SearchCountryIsNotFoundException if the country cost is not found
      */
     private Mono<Long> getClearCostByCountry(final String country) {
-        return costRepository.findByIssuingCountry(country)
-                .doOnNext(currencyCostEntity -> log.info("Country is found: {}", country))
-                .switchIfEmpty(costRepository.findByIssuingCountry("")
-                        .doOnNext(currencyCostEntity -> log.info("""
-                                Requested country is not found. Fetched settings for others country.
-                                Requested country: {}""", country)))
-                .switchIfEmpty(Mono.error(() -> new SearchCountryIsNotFoundException(country,
-                        "There is no country cost: {}", country)))
-                .map(CurrencyCostEntity::getCost);
+        return costTableProvider.getTable()
+                .flatMap(table -> {
+                    final long cost = getClearCost(table, country);
+                    return cost != CountryCostTable.NO_COST ? Mono.just(cost)
+                            : Mono.error(() -> new SearchCountryIsNotFoundException(country,
+                            "There is no country cost: {}", country));
+                });
+    }
+
+    private long getClearCost(final CountryCostTable table, final String country) {
+        final long cost = table.getCost(country);
+        if (cost != CountryCostTable.NO_COST) {
+            metrics.countryCostFound();
+            log.debug("Country is found: {}", country);
+            return cost;
+        }
+        final long defaultCost = table.getDefaultCost();
+        if (defaultCost != CountryCostTable.NO_COST) {
+            metrics.fallbackToDefaultCost();
+            log.debug("""
+                    Requested country is not found. Fetched settings for others country.
+                    Requested country: {}""", country);
+        } else {
+            metrics.costMissing();
+        }
+        return defaultCost;
+    }
+
+    /**
+     * Retrieves costs for a stream of cards. Cards are processed in windows of configured size: IINs of a window
+     * are deduplicated and resolved together, costs are resolved from the in-memory cost table. A window is closed
+     * early once its first card waited for the configured maximum, so a slow producer still gets its results.
+     * The requests are consumed only as fast as the results are written, so the whole batch is never held in
+     * memory. If a window can't be resolved, every card of the window fails and the following windows go on.
+     *
+     * @param requests the card cost requests
+     * @return a Flux emitting one result per request in the request order
+     */
+    public Flux<CardCostResult> getCardCosts(final Flux<CardCostRequest> requests) {
+        return requests.index()
+                .bufferTimeout(batchConfig.getWindowSize(), batchConfig.getMaxWait(), true)
+                .concatMap(this::getCardCosts, 1);
+    }
+
+    private Flux<CardCostResult> getCardCosts(final List<Tuple2<Long, CardCostRequest>> window) {
+        final Throwable[] invalid = new Throwable[window.size()];
+        final Set<String> iins = new HashSet<>();
+        for (int i = 0; i < window.size(); i++) {
+            final CardCostRequest request = window.get(i).getT2();
+            final Set<ConstraintViolation<CardCostRequest>> violations = validator.validate(request);
+            if (violations.isEmpty()) {
+                iins.add(iinExtractor.getIin(request.cardNumber()));
+            } else {
+                invalid[i] = new ConstraintViolationException(violations);
+            }
+        }
+        return Mono.zip(metrics.timeCardInfoLookup(iinInfoProvider.getCardInfoByIins(iins)
+                                .collectMap(IINLookup::iin)),
+                        costTableProvider.getTable())
+                .map(lookupsAndTable -> {
+                    final List<CardCostResult> results = new ArrayList<>(window.size());
+                    for (int i = 0; i < window.size(); i++) {
+                        final long index = window.get(i).getT1();
+                        results.add(invalid[i] != null ? CardCostResult.failure(index, invalid[i])
+                                : getCardCost(index, window.get(i).getT2(), lookupsAndTable.getT1(),
+                                lookupsAndTable.getT2()));
+                    }
+                    return results;
+                })
+                .onErrorResume(error -> {
+                    log.warn("Error resolving a window of {} cards", window.size(), error);
+                    final List<CardCostResult> results = new ArrayList<>(window.size());
+                    for (int i = 0; i < window.size(); i++) {
+                        results.add(CardCostResult.failure(window.get(i).getT1(),
+                                invalid[i] != null ? invalid[i] : error));
+                    }
+                    return Mono.just(results);
+                })
+                .flatMapIterable(results -> results);
+    }
+
+    private CardCostResult getCardCost(final long index, final CardCostRequest request,
+                                       final Map<String, IINLookup> lookups, final CountryCostTable table) {
+        final IINLookup lookup = lookups.get(iinExtractor.getIin(request.cardNumber()));
+        if (lookup == null) {
+            return CardCostResult.failure(index, new IllegalStateException("Card info is not provided"));
+        }
+        if (lookup.error() != null) {
+            return CardCostResult.failure(index, lookup.error());
+        }
+        final String country = lookup.info().country();
+        final long cost = getClearCost(table, country);
+        if (cost == CountryCostTable.NO_COST) {
+            return CardCostResult.failure(index, new SearchCountryIsNotFoundException(country,
+                    "There is no country cost: {}", country));
+        }
+        return CardCostResult.success(index, new CardCostResponse(country, cost));
     }
 
     private CountryCost mapToCurrencyCost(final CurrencyCostEntity costEntity) {
@@ -76,36 +205,38 @@ public class CardCostService {
     }
 
     /**
-     * Retrieves the cost of a country.
+     * Retrieves the cost of a country from the cost table.
      *
+     * @param table   the cost table
      * @param country the name of the country to get the cost for
      * @return a Mono representing the cost of the country
-     * @throws SearchCountryIsNotFoundException if the country is not found in the database
+     * @throws SearchCountryIsNotFoundException if the country is not found in the table
      */
-    public Mono<CountryCost> getCostByCountry(final String country) {
-        return costRepository.findByIssuingCountry(country)
-                .map(this::mapToCurrencyCost)
-                .switchIfEmpty(Mono.error(() -> new SearchCountryIsNotFoundException(country,
-                        "Country is not found: {}", country)))
-                .doOnError(error -> log.info("Error searching for country: {}", country, error));
+    public Mono<CountryCost> getCostByCountry(final CountryCostTable table, final String country) {
+        final long cost = table.getCost(country);
+        if (cost == CountryCostTable.NO_COST) {
+            log.info("Country is not found: {}", country);
+            return Mono.error(() -> new SearchCountryIsNotFoundException(country, "Country is not found: {}",
+                    country));
+        }
+        return Mono.just(new CountryCost(country, cost));
     }
 
     /**
-     * Adds the cost for a specific country.
+     * Adds the cost for a specific country. The insert is conditional on the absence of the country,
+     * so concurrent adds of the same country can't both succeed.
      *
      * @param cc The CountryCost object representing the country and its associated cost.
      * @return A Mono<Void> indicating the completion of the operation.
      * @throws CountryAlreadyExistException if the country already has an associated cost.
      */
     public Mono<Void> addCountryCost(final CountryCost cc) {
-        return costRepository.existsByIssuingCountry(cc.country())
-                .flatMap(exists -> exists ? Mono.error(() -> new CountryAlreadyExistException(
-                        cc.country(), "Error during adding a country: {}", cc.country())) : Mono.just(true))
-                .doOnError(error -> log.info("Error during adding a country: {}", cc.country(), error))
-                .then(Mono.just(cc)
-                        .map(CardCostService::mapToCountryCostEntity)
-                        .flatMap(costRepository::save))
-                .then();
+        return costRepository.insertIfAbsent(mapToCountryCostEntity(cc))
+                .flatMap(inserted -> inserted
+                        ? Mono.<Void>fromRunnable(() -> costTableProvider.put(cc.country(), cc.cost()))
+                        : Mono.error(() -> new CountryAlreadyExistException(cc.country(),
+                        "Error during adding a country: {}", cc.country())))
+                .doOnError(error -> log.info("Error during adding a country: {}", cc.country(), error));
     }
 
     private static CurrencyCostEntity mapToCountryCostEntity(final CountryCost cc) {
@@ -116,49 +247,58 @@ public class CardCostService {
     }
 
     /**
-     * Updates the cost of a country in the cost repository.
+     * Updates the cost of a country in the cost repository with a single find-and-modify.
      *
      * @param cc The CountryCost object containing the country and cost to be updated.
      * @return A Mono representing the completion of the update operation.
      * @throws CountryIsNotFoundException if the country is not found in the cost repository.
      */
     public Mono<Void> updateCountryCost(final CountryCost cc) {
-        return costRepository.existsByIssuingCountry(cc.country())
-                .flatMap(exists -> !exists ? Mono.error(() -> new CountryIsNotFoundException(cc.country(),
-                        "Error during updating a country cost: {}", cc.country())) : Mono.just(true))
+        return costRepository.updateCost(cc.country(), cc.cost())
+                .switchIfEmpty(Mono.error(() -> new CountryIsNotFoundException(cc.country(),
+                        "Error during updating a country cost: {}", cc.country())))
                 .doOnError(error -> log.info("Error during updating a country cost: {}", cc.country(), error))
-                .flatMap(ignore -> costRepository.findByIssuingCountry(cc.country()))
-                .flatMap(currencyCostEntity -> {
-                    currencyCostEntity.setCost(cc.cost());
-                    return costRepository.save(currencyCostEntity);
-                }).then();
+                .doOnNext(saved -> costTableProvider.put(saved.getIssuingCountry(), saved.getCost()))
+                .then();
     }
 
     /**
-     * Deletes the country cost based on the issuing country.
+     * Deletes the country cost based on the issuing country. The delete reports the number of deleted
+     * documents, so a missing country is detected by the same command.
      *
      * @param country the issuing country of the country cost to be deleted
      * @return a Mono<Void> indicating the completion of the deletion process.
      * @throws CountryIsNotFoundException if the country cost does not exist
      */
     public Mono<Void> deleteCountryCost(final String country) {
-        return costRepository.existsByIssuingCountry(country)
-                .flatMap(exists -> !exists ? Mono.error(() -> new CountryIsNotFoundException(country,
-                        "Error during deleting a country cost: {}", country)) : Mono.just(true))
-                .doOnError(error -> log.info("Error during deleting a country cost: {}", country, error))
-                .then(costRepository.deleteByIssuingCountry(country));
+        return costRepository.deleteByIssuingCountry(country)
+                .flatMap(deleted -> deleted > 0
+                        ? Mono.<Void>fromRunnable(() -> costTableProvider.remove(country))
+                        : Mono.error(() -> new CountryIsNotFoundException(country,
+                        "Error during deleting a country cost: {}", country)))
+                .doOnError(error -> log.info("Error during deleting a country cost: {}", country, error));
     }
 
     /**
-     * Adds the costs for multiple countries.
+     * Adds or updates the costs for multiple countries with one unordered bulk write.
      *
      * @param countryCost The list of country costs to add.
-     * @return A Mono that represents the asynchronous completion of the operation.
+     * @return A Flux emitting the outcome of every country cost in the request order.
      */
-    public Mono<Void> addCountryCosts(final List<CountryCost> countryCost) {
-        final Flux<CurrencyCostEntity> countryCostEntities = Flux.fromIterable(countryCost)
-                .map(CardCostService::mapToCountryCostEntity);
-        return costRepository.saveAll(countryCostEntities).then();
+    public Flux<CountryCostUpsertResult> addCountryCosts(final List<CountryCost> countryCost) {
+        return costRepository.upsertAll(countryCost.stream()
+                        .map(CardCostService::mapToCountryCostEntity)
+                        .toList())
+                .flatMapIterable(results -> results)
+                .doOnNext(result -> {
+                    if (result.outcome() != UpsertResult.Outcome.FAILED) {
+                        costTableProvider.put(result.id(), countryCost.get(result.index()).cost());
+                    } else {
+                        log.info("Error during upserting a country cost: {}, {}", result.id(), result.error());
+                    }
+                })
+                .map(result -> new CountryCostUpsertResult(result.index(), result.id(), result.outcome(),
+                        result.error()));
     }
 
 }
@@ -0,0 +1,62 @@
+package org.stzverev.cardcostapi.service.cardinfoprovider;
+
+/**
+ * Compact representation of ISO2 country codes. Each code is packed into a short in range [1, 676],
+ * {@link #UNKNOWN} is reserved for empty or invalid values. Decoding returns interned strings, so
+ * it does not allocate.
+ */
+public final class CountryCodes {
+
+    public static final short UNKNOWN = 0;
+
+    public static final int SIZE = 26 * 26 + 1;
+
+    private static final String[] DECODED = new String[SIZE];
+
+    static {
+        for (char first = 'A'; first <= 'Z'; first++) {
+            for (char second = 'A'; second <= 'Z'; second++) {
+                DECODED[index(first, second)] = new String(new char[]{first, second}).intern();
+            }
+        }
+    }
+
+    private CountryCodes() {
+    }
+
+    /**
+     * Encodes ISO2 country code.
+     *
+     * @param country ISO2 country code in upper case
+     * @return packed country code or {@link #UNKNOWN} if the value is not a valid ISO2 code
+     */
+    public static short encode(final String country) {
+        if (country == null || country.length() != 2) {
+            return UNKNOWN;
+        }
+        final char first = country.charAt(0);
+        final char second = country.charAt(1);
+        if (first < 'A' || first > 'Z' || second < 'A' || second > 'Z') {
+            return UNKNOWN;
+        }
+        return (short) index(first, second);
+    }
+
+    /**
+     * Decodes packed country code.
+     *
+     * @param code packed country code
+     * @return ISO2 country code or null for {@link #UNKNOWN} and out of range values
+     */
+    public static String decode(final short code) {
+        if (code <= UNKNOWN || code >= SIZE) {
+            return null;
+        }
+        return DECODED[code];
+    }
+
+    private static int index(final char first, final char second) {
+        return 1 + (first - 'A') * 26 + (second - 'A');
+    }
+
+}
@@ -5,11 +5,40 @@ import org.springframework.stereotype.Component;
 @Component
 public class IINExtractor {
 
+    private static final int MIN_IIN_LENGTH = 6;
+
+    private static final int MAX_IIN_LENGTH = 8;
+
     public String getIin(String cardNumber) {
-        if (cardNumber == null || cardNumber.length() < 6) {
+        if (cardNumber == null || cardNumber.length() < MIN_IIN_LENGTH) {
             throw new IllegalArgumentException("Invalid card number: " + cardNumber);
         }
-        return cardNumber.substring(0, Math.min(cardNumber.length(), 8));
+        return cardNumber.substring(0, Math.min(cardNumber.length(), MAX_IIN_LENGTH));
+    }
+
+    /**
+     * Packs the IIN of the card number into a long without allocating an intermediate string.
+     * The number of digits is stored in the lowest four bits, so IINs with leading zeros or
+     * different lengths never collide.
+     *
+     * @param cardNumber the card number
+     * @return packed IIN, always positive
+     * @throws IllegalArgumentException if the card number is too short or the IIN contains non digit characters
+     */
+    public long getIinKey(String cardNumber) {
+        if (cardNumber == null || cardNumber.length() < MIN_IIN_LENGTH) {
+            throw new IllegalArgumentException("Invalid card number: " + cardNumber);
+        }
+        final int length = Math.min(cardNumber.length(), MAX_IIN_LENGTH);
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            final char digit = cardNumber.charAt(i);
+            if (digit < '0' || digit > '9') {
+                throw new IllegalArgumentException("Invalid card number: " + cardNumber);
+            }
+            value = value * 10 + (digit - '0');
+        }
+        return value << 4 | length;
     }
 
 }
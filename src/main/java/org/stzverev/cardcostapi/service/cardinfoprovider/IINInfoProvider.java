@@ -1,7 +1,10 @@
 package org.stzverev.cardcostapi.service.cardinfoprovider;
 
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Collection;
+
 /**
  * Represents an interface for providing card information based on the Issuer Identification Number (IIN).
  */
@@ -15,4 +18,18 @@ public interface IINInfoProvider {
      */
     Mono<IINInfo> getCardInfoByNumber(String cardNumber);
 
+    /**
+     * Retrieves card information for several IINs at once. Errors are reported per IIN and never fail
+     * the whole Flux. Implementations may resolve the IINs in fewer round trips than individual calls.
+     *
+     * @param iins distinct IINs
+     * @return A Flux emitting one lookup per IIN in no particular order.
+     */
+    default Flux<IINLookup> getCardInfoByIins(Collection<String> iins) {
+        return Flux.fromIterable(iins)
+                .flatMap(iin -> getCardInfoByNumber(iin)
+                        .map(iinInfo -> IINLookup.found(iin, iinInfo))
+                        .onErrorResume(error -> Mono.just(IINLookup.failed(iin, error))));
+    }
+
 }
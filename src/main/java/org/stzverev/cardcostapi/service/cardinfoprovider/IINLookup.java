@@ -0,0 +1,20 @@
+package org.stzverev.cardcostapi.service.cardinfoprovider;
+
+/**
+ * Result of a lookup of a single IIN within a batch. Exactly one of info and error is set.
+ *
+ * @param iin   the requested IIN
+ * @param info  card information if the lookup succeeded
+ * @param error the error if the lookup failed
+ */
+public record IINLookup(String iin, IINInfo info, Throwable error) {
+
+    public static IINLookup found(final String iin, final IINInfo info) {
+        return new IINLookup(iin, info, null);
+    }
+
+    public static IINLookup failed(final String iin, final Throwable error) {
+        return new IINLookup(iin, null, error);
+    }
+
+}
@@ -0,0 +1,65 @@
+package org.stzverev.cardcostapi.service.cardinfoprovider.binlist;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.stzverev.cardcostapi.metrics.MonoTimer;
+import org.stzverev.cardcostapi.service.circuitbreaker.CircuitBreaker;
+import reactor.core.publisher.Mono;
+
+/**
+ * Metrics of {@link IINInfoProviderBinList}: latency of the rate limiter and of every binlist call attempt,
+ * rate limiter rejections, retries, state of the circuit breaker and calls rejected by it. Meters are tagged by
+ * the provider, because binlist-compatible providers of the provider chain have the same metrics.
+ */
+public class BinListMetrics {
+
+    private final MonoTimer rateLimiter;
+
+    private final MonoTimer requests;
+
+    private final Counter rejections;
+
+    private final Counter retries;
+
+    public BinListMetrics(final MeterRegistry registry, final String provider, final CircuitBreaker circuitBreaker) {
+        this.rateLimiter = new MonoTimer(registry, "binlist.rate.limiter",
+                "Latency of acquiring a binlist call permit", "provider", provider);
+        this.requests = new MonoTimer(registry, "binlist.requests",
+                "Latency of a single binlist call attempt", "provider", provider);
+        this.rejections = Counter.builder("binlist.rate.limiter.rejections")
+                .description("Binlist calls rejected because the quota is exhausted")
+                .tag("provider", provider)
+                .register(registry);
+        this.retries = Counter.builder("binlist.retries")
+                .description("Retried binlist calls")
+                .tag("provider", provider)
+                .register(registry);
+        Gauge.builder("binlist.circuit.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+                .description("State of the binlist circuit breaker: 0 closed, 1 open, 2 half-open")
+                .tag("provider", provider)
+                .register(registry);
+        FunctionCounter.builder("binlist.circuit.rejections", circuitBreaker, CircuitBreaker::rejectionCount)
+                .description("Binlist lookups rejected because the circuit breaker is open")
+                .tag("provider", provider)
+                .register(registry);
+    }
+
+    <T> Mono<T> timeRateLimiter(final Mono<T> mono) {
+        return rateLimiter.time(mono);
+    }
+
+    <T> Mono<T> timeRequest(final Mono<T> mono) {
+        return requests.time(mono);
+    }
+
+    void rejected() {
+        rejections.increment();
+    }
+
+    void retried() {
+        retries.increment();
+    }
+
+}
@@ -2,23 +2,30 @@ package org.stzverev.cardcostapi.service.cardinfoprovider.binlist;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.ReactiveRedisOperations;
-import org.springframework.data.redis.core.ReactiveValueOperations;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.stzverev.cardcostapi.configuration.properties.BinListConfig;
+import org.stzverev.cardcostapi.exceptions.CardInfoIsNotFoundException;
+import org.stzverev.cardcostapi.exceptions.CircuitBreakerOpenException;
+import org.stzverev.cardcostapi.exceptions.QuotaExceededException;
 import org.stzverev.cardcostapi.exceptions.ThirdPartyException;
 import org.stzverev.cardcostapi.service.cardinfoprovider.IINExtractor;
 import org.stzverev.cardcostapi.service.cardinfoprovider.IINInfo;
 import org.stzverev.cardcostapi.service.cardinfoprovider.IINInfoProvider;
+import org.stzverev.cardcostapi.service.circuitbreaker.CircuitBreaker;
+import org.stzverev.cardcostapi.service.ratelimit.RateLimiter;
 import reactor.core.publisher.Mono;
 import reactor.util.retry.Retry;
 
 import java.time.Duration;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Represents an implementation of the {@link IINInfoProvider} interface that retrieves card information
  * from the Binlist provider.
+ * <p>
+ * A lookup, including the quota check and retries, is limited by the latency budget and goes through
+ * the circuit breaker, so callers fail fast with {@link CircuitBreakerOpenException} while binlist is down or slow.
  */
 @RequiredArgsConstructor
 @Slf4j
@@ -26,11 +33,18 @@ public class IINInfoProviderBinList implements IINInfoProvider {
 
     private final IINExtractor iinExtractor;
 
-    private final ReactiveRedisOperations<String, Long> apiCallCounterRedisOperations;
+    /**
+     * Limits calls of all nodes to the binlist quota configured in {@link BinListConfig.MaxCallConfig}.
+     */
+    private final RateLimiter rateLimiter;
 
     private final BinListConfig binListConfig;
 
-    private static final String REDIS_COUNTER_KEY = "api-call-counter";
+    private final WebClient binListWebClient;
+
+    private final BinListMetrics metrics;
+
+    private final CircuitBreaker circuitBreaker;
 
     /**
      * Retrieves card information based on the card number.
@@ -38,7 +52,11 @@ public class IINInfoProviderBinList implements IINInfoProvider {
      * @param cardNumber The card number.
      * @return A Mono containing the card information.
      * @throws IllegalArgumentException if the card number is null or empty, or if the card number is less than 6 characters.
-     * @throws ThirdPartyException if there is an error retrieving the card information from the Binlist provider.
+     * @throws QuotaExceededException if the binlist call quota is exhausted.
+     * @throws CardInfoIsNotFoundException if binlist doesn't know the IIN or provides no country for it.
+     * @throws CircuitBreakerOpenException if the circuit breaker of binlist is open.
+     * @throws ThirdPartyException if there is an error retrieving the card information from the Binlist provider
+     * or the latency budget is spent.
      */
     @Override
     public Mono<IINInfo> getCardInfoByNumber(final String cardNumber) {
@@ -48,39 +66,54 @@ public class IINInfoProviderBinList implements IINInfoProvider {
         if (cardNumber.length() < 6) {
             return Mono.error(() -> new IllegalArgumentException("Card number must be at least 6 characters"));
         }
-        final ReactiveValueOperations<String, Long> operations = apiCallCounterRedisOperations.opsForValue();
-        final BinListConfig.MaxCallConfig maxCall = binListConfig.getMaxCall();
-        return operations.setIfAbsent(REDIS_COUNTER_KEY, 0L, Duration.of(maxCall.getPeriod(),
-                        maxCall.getTimeUnit().toChronoUnit()))
-                .then(operations.increment(REDIS_COUNTER_KEY))
-                .flatMap(count -> {
-                    if (count > maxCall.getCount()) {
-                        return Mono.error(new ThirdPartyException(HttpStatus.TOO_MANY_REQUESTS,
+        final Duration latencyBudget = binListConfig.getLatencyBudget();
+        final Mono<IINInfo> lookup = metrics.timeRateLimiter(rateLimiter.tryAcquire())
+                .flatMap(result -> {
+                    if (!result.allowed()) {
+                        metrics.rejected();
+                        return Mono.error(new QuotaExceededException(result.retryAfter(),
                                 "Too many requests to binlist provider"));
                     }
-                    return Mono.just(count);
-                }).then(requestIinInfo(iinExtractor.getIin(cardNumber)));
+                    log.debug("Binlist call permit is acquired. Remaining: {}", result.remaining());
+                    return Mono.just(result);
+                }).then(requestIinInfo(iinExtractor.getIin(cardNumber)))
+                .timeout(latencyBudget)
+                .onErrorMap(TimeoutException.class, e -> new ThirdPartyException(HttpStatus.GATEWAY_TIMEOUT,
+                        "Binlist lookup exceeded the latency budget of {} ms", latencyBudget.toMillis()));
+        return circuitBreaker.execute(lookup, IINInfoProviderBinList::isFailure);
+    }
+
+    /**
+     * Unknown IINs and the exhausted quota are expected outcomes, they don't tell binlist is unhealthy.
+     */
+    private static boolean isFailure(final Throwable throwable) {
+        return !(throwable instanceof CardInfoIsNotFoundException) && !(throwable instanceof QuotaExceededException);
     }
 
     private Mono<IINInfo> requestIinInfo(final String iin) {
-        return WebClient.create(binListConfig.getBaseUrl())
-                .get()
-                .uri("/{cardNumber}", iin)
-                .header("Accept-Version", "3")
-                .retrieve()
-                .onStatus(code -> code.is5xxServerError() || code.equals(HttpStatus.TOO_MANY_REQUESTS),
-                        clientResponse -> Mono.error(
-                                new ThirdPartyException(clientResponse.statusCode(),
-                                        "Error getting card info by binlist provider")))
-                .bodyToMono(BinlistResponse.class)
-                .retryWhen(Retry.backoff(3, Duration.ofSeconds(3)).jitter(0.75)
-                        .filter(throwable -> throwable instanceof ThirdPartyException))
-                .onErrorMap(throwable -> switch (throwable.getCause()) {
-                    case ThirdPartyException cause -> cause;
-                    default -> throwable;
-                })
-                .doOnNext(binlistResponse -> log.info("Card info is provided by binlist: {}", binlistResponse))
-                .map(response -> new IINInfo(iin, response.country().alpha2()));
+        final BinListConfig.RetryConfig retry = binListConfig.getRetry();
+        return metrics.timeRequest(binListWebClient.get()
+                        .uri("/{cardNumber}", iin)
+                        .header("Accept-Version", "3")
+                        .retrieve()
+                        .onStatus(code -> code.equals(HttpStatus.NOT_FOUND),
+                                clientResponse -> Mono.error(new CardInfoIsNotFoundException(iin,
+                                        "Card info is not found by binlist provider: {}", iin)))
+                        .onStatus(code -> code.is5xxServerError() || code.equals(HttpStatus.TOO_MANY_REQUESTS),
+                                clientResponse -> Mono.error(
+                                        new ThirdPartyException(clientResponse.statusCode(),
+                                                "Error getting card info by binlist provider")))
+                        .bodyToMono(BinlistResponse.class))
+                .retryWhen(Retry.backoff(retry.getMaxRetries(), retry.getBackoff()).jitter(0.75)
+                        .filter(throwable -> throwable instanceof ThirdPartyException)
+                        .doBeforeRetry(retrySignal -> metrics.retried()))
+                .onErrorMap(throwable -> throwable.getCause() instanceof ThirdPartyException cause
+                        ? cause : throwable)
+                .doOnNext(binlistResponse -> log.debug("Card info is provided by binlist: {}", binlistResponse))
+                .flatMap(response -> response.country() == null || response.country().alpha2() == null
+                        ? Mono.error(new CardInfoIsNotFoundException(iin,
+                        "Card info provided by binlist has no country: {}", iin))
+                        : Mono.just(new IINInfo(iin, response.country().alpha2())));
     }
 
 }
@@ -0,0 +1,226 @@
+package org.stzverev.cardcostapi.service.cardinfoprovider.binrange;
+
+import org.stzverev.cardcostapi.service.cardinfoprovider.CountryCodes;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Immutable index of BIN ranges loaded from a CSV file with lines {@code start,end,country}, where start and
+ * end are BIN prefixes of up to {@value #KEY_DIGITS} digits and country is an ISO2 code. Lines which don't start
+ * with a digit (headers, comments) are skipped. Ranges must be sorted by start and must not overlap.
+ * <p>
+ * The file is memory-mapped while it is parsed and the index is kept off-heap in parallel direct buffers of
+ * range starts, range ends and packed country codes, so large datasets don't grow the heap.
+ * Lookups are binary searches over the range starts.
+ */
+public final class BinRangeIndex {
+
+    static final int KEY_DIGITS = 8;
+
+    private static final long[] POWERS_OF_TEN = {1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L,
+            10_000_000L, 100_000_000L};
+
+    private final LongBuffer starts;
+
+    private final LongBuffer ends;
+
+    private final ShortBuffer countries;
+
+    private final int size;
+
+    private BinRangeIndex(final LongBuffer starts, final LongBuffer ends, final ShortBuffer countries,
+                          final int size) {
+        this.starts = starts;
+        this.ends = ends;
+        this.countries = countries;
+        this.size = size;
+    }
+
+    /**
+     * Loads the index from the file.
+     *
+     * @param path path of the CSV file
+     * @return the loaded index
+     * @throws IOException              if the file can not be read
+     * @throws IllegalArgumentException if the file contains invalid, unsorted or overlapping ranges
+     */
+    public static BinRangeIndex load(final Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long fileSize = channel.size();
+            if (fileSize > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("BIN range file is too large: " + path);
+            }
+            final MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            return parse(data, countLines(data));
+        }
+    }
+
+    private static BinRangeIndex parse(final ByteBuffer data, final int maxRanges) {
+        final LongBuffer starts = ByteBuffer.allocateDirect(maxRanges * Long.BYTES).asLongBuffer();
+        final LongBuffer ends = ByteBuffer.allocateDirect(maxRanges * Long.BYTES).asLongBuffer();
+        final ShortBuffer countries = ByteBuffer.allocateDirect(maxRanges * Short.BYTES).asShortBuffer();
+        int size = 0;
+        int line = 0;
+        long previousEnd = -1;
+        while (data.hasRemaining()) {
+            line++;
+            final int lineStart = data.position();
+            final int lineEnd = lineEnd(data, lineStart);
+            data.position(Math.min(lineEnd + 1, data.limit()));
+            if (lineStart == lineEnd || !isDigit(data.get(lineStart))) {
+                continue;
+            }
+            final int startEnd = indexOf(data, lineStart, lineEnd, (byte) ',');
+            final int endEnd = startEnd < 0 ? -1 : indexOf(data, startEnd + 1, lineEnd, (byte) ',');
+            if (endEnd < 0) {
+                throw invalidLine(line);
+            }
+            final long start = parsePrefix(data, lineStart, startEnd, false, line);
+            final long end = parsePrefix(data, startEnd + 1, endEnd, true, line);
+            final short country = parseCountry(data, endEnd + 1, lineEnd);
+            if (start > end || country == CountryCodes.UNKNOWN) {
+                throw invalidLine(line);
+            }
+            if (start <= previousEnd) {
+                throw new IllegalArgumentException("BIN ranges are not sorted or overlap at line " + line);
+            }
+            starts.put(size, start);
+            ends.put(size, end);
+            countries.put(size, country);
+            previousEnd = end;
+            size++;
+        }
+        return new BinRangeIndex(starts, ends, countries, size);
+    }
+
+    /**
+     * Returns the country of the range containing the card number.
+     *
+     * @param cardNumber the card number, at least 6 digits
+     * @return ISO2 country code or null if no range contains the card number
+     */
+    public String findCountry(final String cardNumber) {
+        final long key = toKey(cardNumber);
+        if (key < 0) {
+            return null;
+        }
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            if (starts.get(middle) <= key) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        if (high < 0 || ends.get(high) < key) {
+            return null;
+        }
+        return CountryCodes.decode(countries.get(high));
+    }
+
+    /**
+     * @return number of ranges in the index
+     */
+    public int size() {
+        return size;
+    }
+
+    static long toKey(final String cardNumber) {
+        final int digits = Math.min(cardNumber.length(), KEY_DIGITS);
+        long key = 0;
+        for (int i = 0; i < digits; i++) {
+            final char digit = cardNumber.charAt(i);
+            if (digit < '0' || digit > '9') {
+                return -1;
+            }
+            key = key * 10 + (digit - '0');
+        }
+        return key * POWERS_OF_TEN[KEY_DIGITS - digits];
+    }
+
+    /**
+     * Parses a BIN prefix and expands it to {@value #KEY_DIGITS} digits: a lower bound is padded with zeros,
+     * an upper bound with nines.
+     */
+    private static long parsePrefix(final ByteBuffer data, final int from, final int to, final boolean upperBound,
+                                    final int line) {
+        long value = 0;
+        int digits = 0;
+        for (int i = from; i < to; i++) {
+            final byte symbol = data.get(i);
+            if (symbol == ' ' || symbol == '"') {
+                continue;
+            }
+            if (!isDigit(symbol)) {
+                throw invalidLine(line);
+            }
+            if (digits < KEY_DIGITS) {
+                value = value * 10 + (symbol - '0');
+                digits++;
+            }
+        }
+        if (digits == 0) {
+            throw invalidLine(line);
+        }
+        final long scale = POWERS_OF_TEN[KEY_DIGITS - digits];
+        return upperBound ? (value + 1) * scale - 1 : value * scale;
+    }
+
+    private static short parseCountry(final ByteBuffer data, final int from, final int to) {
+        final char[] country = new char[2];
+        int length = 0;
+        for (int i = from; i < to; i++) {
+            final byte symbol = data.get(i);
+            if (symbol == ' ' || symbol == '"' || symbol == '\r') {
+                continue;
+            }
+            if (length == 2) {
+                return CountryCodes.UNKNOWN;
+            }
+            country[length++] = Character.toUpperCase((char) symbol);
+        }
+        return length == 2 ? CountryCodes.encode(new String(country)) : CountryCodes.UNKNOWN;
+    }
+
+    private static int countLines(final ByteBuffer data) {
+        int lines = 1;
+        for (int i = 0; i < data.limit(); i++) {
+            if (data.get(i) == '\n') {
+                lines++;
+            }
+        }
+        return lines;
+    }
+
+    private static int lineEnd(final ByteBuffer data, final int from) {
+        final int end = indexOf(data, from, data.limit(), (byte) '\n');
+        return end < 0 ? data.limit() : end;
+    }
+
+    private static int indexOf(final ByteBuffer data, final int from, final int to, final byte symbol) {
+        for (int i = from; i < to; i++) {
+            if (data.get(i) == symbol) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isDigit(final byte symbol) {
+        return symbol >= '0' && symbol <= '9';
+    }
+
+    private static IllegalArgumentException invalidLine(final int line) {
+        return new IllegalArgumentException("Invalid BIN range at line " + line);
+    }
+
+}
@@ -0,0 +1,84 @@
+package org.stzverev.cardcostapi.service.cardinfoprovider.binrange;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.stzverev.cardcostapi.configuration.properties.BinRangeConfig;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the current {@link BinRangeIndex}. The file is checked periodically and a new version is loaded in
+ * the background and swapped in atomically, so lookups never see a partially loaded index. If a new version
+ * can not be loaded, the previous index stays in use.
+ */
+@Component
+@ConditionalOnProperty("app.bin-range.enabled")
+@RequiredArgsConstructor
+@Slf4j
+public class BinRangeIndexHolder {
+
+    private final BinRangeConfig config;
+
+    private final AtomicReference<BinRangeIndex> index = new AtomicReference<>();
+
+    private volatile FileTime loadedVersion;
+
+    private Disposable reloading;
+
+    @PostConstruct
+    void init() {
+        reloadIfChanged();
+        final Duration period = Duration.of(config.getPeriod(), config.getTimeUnit().toChronoUnit());
+        reloading = Flux.interval(period, period, Schedulers.boundedElastic())
+                .concatMap(tick -> Mono.fromRunnable(this::reloadIfChanged))
+                .subscribe();
+    }
+
+    @PreDestroy
+    void destroy() {
+        reloading.dispose();
+    }
+
+    /**
+     * Returns the country of the range containing the card number.
+     *
+     * @param cardNumber the card number
+     * @return ISO2 country code or null if the index is not loaded or no range contains the card number
+     */
+    public String findCountry(final String cardNumber) {
+        final BinRangeIndex current = index.get();
+        return current == null ? null : current.findCountry(cardNumber);
+    }
+
+    private void reloadIfChanged() {
+        final Path path = Path.of(config.getPath());
+        try {
+            final FileTime version = Files.getLastModifiedTime(path);
+            if (version.equals(loadedVersion)) {
+                return;
+            }
+            final long start = System.nanoTime();
+            final BinRangeIndex loaded = BinRangeIndex.load(path);
+            index.set(loaded);
+            loadedVersion = version;
+            log.info("BIN range index is loaded. Ranges: {}, took: {} ms", loaded.size(),
+                    Duration.ofNanos(System.nanoTime() - start).toMillis());
+        } catch (IOException | IllegalArgumentException e) {
+            log.error("Error loading BIN range index from {}", path, e);
+        }
+    }
+
+}
@@ -0,0 +1,38 @@
+package org.stzverev.cardcostapi.service.cardinfoprovider.binrange;
+
+import lombok.RequiredArgsConstructor;
+import org.stzverev.cardcostapi.service.cardinfoprovider.IINExtractor;
+import org.stzverev.cardcostapi.service.cardinfoprovider.IINInfo;
+import org.stzverev.cardcostapi.service.cardinfoprovider.IINInfoProvider;
+import reactor.core.publisher.Mono;
+
+/**
+ * Represents an implementation of the {@link IINInfoProvider} interface that resolves card information
+ * from the local BIN range dataset. Card numbers which are not covered by the dataset are resolved by the
+ * fallback provider.
+ */
+@RequiredArgsConstructor
+public class IINInfoProviderBinRange implements IINInfoProvider {
+
+    private final IINExtractor iinExtractor;
+
+    private final BinRangeIndexHolder indexHolder;
+
+    private final IINInfoProvider fallback;
+
+    /**
+     * Retrieves card information based on the card number.
+     *
+     * @param cardNumber The card number.
+     * @return A Mono containing the card information.
+     */
+    @Override
+    public Mono<IINInfo> getCardInfoByNumber(final String cardNumber) {
+        final String country = indexHolder.findCountry(cardNumber);
+        if (country == null) {
+            return fallback.getCardInfoByNumber(cardNumber);
+        }
+        return Mono.just(new IINInfo(iinExtractor.getIin(cardNumber), country));
+    }
+
+}
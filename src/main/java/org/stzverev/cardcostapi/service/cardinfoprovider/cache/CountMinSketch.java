@@ -0,0 +1,85 @@
+package org.stzverev.cardcostapi.service.cardinfoprovider.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Estimates how often 64-bit hashes were seen in a fixed amount of memory. Every hash increments one counter
+ * in each of the rows and the estimate is the smallest of them, so it is never below the real count and is above
+ * it only by collisions with other hashes. Counters are halved by {@link #halve()}, so old counts fade out and
+ * the estimates follow the recent frequency. Updates are lock free.
+ */
+class CountMinSketch {
+
+    private final int depth;
+
+    private final int mask;
+
+    private final AtomicLongArray counters;
+
+    /**
+     * @param width number of counters per row, rounded up to a power of two
+     * @param depth number of rows
+     */
+    CountMinSketch(final int width, final int depth) {
+        if (width < 1 || width > 1 << 24 || depth < 1 || depth > 16) {
+            throw new IllegalArgumentException("Count-min sketch needs from 1 to 2^24 columns and from 1 to 16 rows: "
+                    + width + "x" + depth);
+        }
+        final int columns = Integer.highestOneBit(width) == width ? width : Integer.highestOneBit(width) << 1;
+        this.depth = depth;
+        this.mask = columns - 1;
+        this.counters = new AtomicLongArray(columns * depth);
+    }
+
+    /**
+     * @param hash well mixed hash of the element
+     * @return estimated count of the element including this increment
+     */
+    long increment(final long hash) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.incrementAndGet(index(hash, row)));
+        }
+        return estimate;
+    }
+
+    /**
+     * @param hash well mixed hash of the element
+     * @return estimated count of the element
+     */
+    long estimate(final long hash) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.get(index(hash, row)));
+        }
+        return estimate;
+    }
+
+    /**
+     * Halves every counter. Increments made concurrently may be halved or not.
+     */
+    void halve() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.getAndUpdate(i, count -> count >>> 1);
+        }
+    }
+
+    /**
+     * Spreads a key, e.g. a packed IIN, over all bits of a hash, the finalizer of SplitMix64.
+     */
+    static long mix(final long key) {
+        long hash = key;
+        hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+        return hash ^ (hash >>> 31);
+    }
+
+    /**
+     * Rows use different combinations of the two halves of the hash, which behave as independent hashes.
+     */
+    private int index(final long hash, final int row) {
+        final int column = ((int) hash + row * (int) (hash >>> 32)) & mask;
+        return row * (mask + 1) + column;
+    }
+
+}
@@ -0,0 +1,58 @@
+package org.stzverev.cardcostapi.service.cardinfoprovider.cache;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.stzverev.cardcostapi.domain.entity.IINCacheEntity;
+import org.stzverev.cardcostapi.service.redis.RedisAvailability;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Serves the IIN cache from a bounded {@link LocalIINCacheStore} while Redis is unavailable, so lookups take
+ * a local miss or hit instead of a connection timeout. Entries written to Redis are kept locally as well, so the
+ * local store is warm when Redis becomes unavailable, while reads from Redis don't touch it. Entries written in the
+ * degraded mode are kept locally only.
+ */
+@RequiredArgsConstructor
+@Slf4j
+public class FallbackIINCacheStore implements IINCacheStore {
+
+    private final IINCacheStore redis;
+
+    private final LocalIINCacheStore local;
+
+    private final RedisAvailability availability;
+
+    @Override
+    public Mono<IINCacheEntity> get(final String iin) {
+        return availability.execute(redis.get(iin))
+                .onErrorResume(error -> {
+                    log.debug("IIN {} is read from the local store: {}", iin, error.toString());
+                    return local.get(iin);
+                });
+    }
+
+    @Override
+    public Mono<List<IINCacheEntity>> multiGet(final List<String> iins) {
+        return availability.execute(redis.multiGet(iins))
+                .onErrorResume(error -> {
+                    log.debug("{} IINs are read from the local store: {}", iins.size(), error.toString());
+                    return local.multiGet(iins);
+                });
+    }
+
+    /**
+     * Writes the entries locally and to Redis as a bulk command, which doesn't switch to the degraded mode when it
+     * is slow or fails. A failed Redis write fails the Mono, so it is counted as failed, while the entries are still
+     * served locally.
+     */
+    @Override
+    public Mono<Integer> writeAll(final List<IINCacheWrite> writes) {
+        return Mono.defer(() -> {
+            local.putAll(writes);
+            return availability.executeBulk(redis.writeAll(writes));
+        });
+    }
+
+}
@@ -0,0 +1,94 @@
+package org.stzverev.cardcostapi.service.cardinfoprovider.cache;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts hits and misses in a ring of time slots, so hit ratios over the last minutes are read without keeping
+ * every lookup. A slot is reused once the ring has turned, an increment racing with the reset of its slot may
+ * be lost, which is acceptable for a ratio.
+ */
+class HitRatioWindow {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private final long slotNanos;
+
+    private final AtomicLongArray epochs;
+
+    private final AtomicLongArray hits;
+
+    private final AtomicLongArray misses;
+
+    /**
+     * @param slot   duration of a slot, the precision of the windows
+     * @param length the longest window
+     */
+    HitRatioWindow(final Duration slot, final Duration length) {
+        if (slot.isNegative() || slot.isZero() || length.compareTo(slot) < 0) {
+            throw new IllegalArgumentException("Hit ratio window must be longer than its positive slot: "
+                    + length + ", " + slot);
+        }
+        this.slotNanos = slot.toNanos();
+        // One more slot than the window, the current slot is filling up
+        final int slots = (int) ((length.toNanos() + slotNanos - 1) / slotNanos) + 1;
+        this.epochs = new AtomicLongArray(slots);
+        this.hits = new AtomicLongArray(slots);
+        this.misses = new AtomicLongArray(slots);
+        for (int i = 0; i < slots; i++) {
+            epochs.set(i, EMPTY);
+        }
+    }
+
+    /**
+     * @param nanoTime {@link System#nanoTime()} of the lookup
+     * @param hit      true if the lookup was answered by the cache
+     */
+    void record(final long nanoTime, final boolean hit) {
+        final long epoch = Math.floorDiv(nanoTime, slotNanos);
+        final int index = (int) Math.floorMod(epoch, (long) epochs.length());
+        final long slotEpoch = epochs.get(index);
+        if (slotEpoch < epoch && epochs.compareAndSet(index, slotEpoch, epoch)) {
+            hits.set(index, 0);
+            misses.set(index, 0);
+        }
+        (hit ? hits : misses).incrementAndGet(index);
+    }
+
+    /**
+     * @param nanoTime {@link System#nanoTime()} of the read
+     * @param window   time the ratio is calculated over, rounded up to whole slots
+     * @return counts of the completed slots of the window and of the current slot
+     */
+    Counts counts(final long nanoTime, final Duration window) {
+        final long epoch = Math.floorDiv(nanoTime, slotNanos);
+        final long slots = Math.min((window.toNanos() + slotNanos - 1) / slotNanos, epochs.length() - 1);
+        long windowHits = 0;
+        long windowMisses = 0;
+        for (int i = 0; i < epochs.length(); i++) {
+            final long slotEpoch = epochs.get(i);
+            if (slotEpoch != EMPTY && slotEpoch <= epoch && epoch - slotEpoch <= slots) {
+                windowHits += hits.get(i);
+                windowMisses += misses.get(i);
+            }
+        }
+        return new Counts(windowHits, windowMisses);
+    }
+
+    /**
+     * @param hits   lookups answered by the cache
+     * @param misses lookups which called the card info provider
+     */
+    record Counts(long hits, long misses) {
+
+        /**
+         * @return share of hits, or null without lookups
+         */
+        Double ratio() {
+            final long total = hits + misses;
+            return total == 0 ? null : (double) hits / total;
+        }
+
+    }
+
+}
@@ -0,0 +1,75 @@
+package org.stzverev.cardcostapi.service.cardinfoprovider.cache;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Estimates the number of distinct 64-bit hashes it has seen in a fixed amount of memory, one register per
+ * bucket of hashes. The standard error of the estimate is {@code 1.04 / sqrt(2^precision)}, 0.8% with the
+ * precision of 14. Updates are lock free.
+ */
+class HyperLogLog {
+
+    private final int precision;
+
+    private final AtomicIntegerArray registers;
+
+    /**
+     * @param precision number of hash bits choosing the register, from 4 to 18
+     */
+    HyperLogLog(final int precision) {
+        if (precision < 4 || precision > 18) {
+            throw new IllegalArgumentException("Precision of HyperLogLog must be from 4 to 18: " + precision);
+        }
+        this.precision = precision;
+        this.registers = new AtomicIntegerArray(1 << precision);
+    }
+
+    /**
+     * @param hash well mixed hash of the element
+     */
+    void add(final long hash) {
+        final int index = (int) (hash >>> (Long.SIZE - precision));
+        // The guard bit caps the rank when the remaining bits are all zeros
+        final int rank = Long.numberOfLeadingZeros(hash << precision | 1L << (precision - 1)) + 1;
+        int current = registers.get(index);
+        while (rank > current && !registers.compareAndSet(index, current, rank)) {
+            current = registers.get(index);
+        }
+    }
+
+    /**
+     * @param others sketches of the same precision counted together with this one
+     * @return estimated number of distinct hashes seen by this and the other sketches
+     */
+    long estimate(final HyperLogLog... others) {
+        final int size = registers.length();
+        double sum = 0;
+        int zeros = 0;
+        for (int i = 0; i < size; i++) {
+            int register = registers.get(i);
+            for (HyperLogLog other : others) {
+                register = Math.max(register, other.registers.get(i));
+            }
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        final double estimate = alpha(size) * size * size / sum;
+        if (estimate <= 2.5 * size && zeros > 0) {
+            // Linear counting is more accurate while many registers are empty
+            return Math.round(size * Math.log((double) size / zeros));
+        }
+        return Math.round(estimate);
+    }
+
+    private static double alpha(final int size) {
+        return switch (size) {
+            case 16 -> 0.673;
+            case 32 -> 0.697;
+            case 64 -> 0.709;
+            default -> 0.7213 / (1 + 1.079 / size);
+        };
+    }
+
+}
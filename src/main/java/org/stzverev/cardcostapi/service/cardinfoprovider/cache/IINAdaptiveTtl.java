@@ -0,0 +1,98 @@
+package org.stzverev.cardcostapi.service.cardinfoprovider.cache;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Extends the time to live of frequently requested IINs, so the most requested BINs don't cost a call of the
+ * card info provider as often as one-off cards.
+ * <p>
+ * Lookups are counted by a {@link CountMinSketch} whose counters are halved after every sample of lookups, so the
+ * frequency of an IIN is its share of the recent lookups rather than of the whole uptime. An IIN requested fewer
+ * than the minimum frequency times keeps the time to live of the cache, a more frequent one gets the time to live
+ * multiplied by its frequency divided by the minimum frequency, up to the maximum time to live.
+ */
+public class IINAdaptiveTtl {
+
+    private static final int SKETCH_DEPTH = 4;
+
+    private final boolean enabled;
+
+    private final Duration maxTtl;
+
+    private final int minFrequency;
+
+    private final int sampleSize;
+
+    private final CountMinSketch sketch;
+
+    private final AtomicLong lookups = new AtomicLong();
+
+    /**
+     * @param maxTtl       maximum time to live of an entry
+     * @param minFrequency lookups of an IIN within a sample from which its time to live is extended
+     * @param sampleSize   lookups after which the frequencies are halved, also the number of counters of the sketch
+     *                     per row
+     */
+    public IINAdaptiveTtl(final Duration maxTtl, final int minFrequency, final int sampleSize) {
+        if (maxTtl.isNegative() || maxTtl.isZero() || minFrequency < 1 || sampleSize < 1) {
+            throw new IllegalArgumentException("Adaptive IIN cache TTL needs a positive maximum TTL, minimum "
+                    + "frequency and sample size: " + maxTtl + ", " + minFrequency + ", " + sampleSize);
+        }
+        this.enabled = true;
+        this.maxTtl = maxTtl;
+        this.minFrequency = minFrequency;
+        this.sampleSize = sampleSize;
+        this.sketch = new CountMinSketch(sampleSize, SKETCH_DEPTH);
+    }
+
+    private IINAdaptiveTtl() {
+        this.enabled = false;
+        this.maxTtl = Duration.ZERO;
+        this.minFrequency = 1;
+        this.sampleSize = 1;
+        this.sketch = null;
+    }
+
+    /**
+     * @return a policy which keeps the time to live of every IIN
+     */
+    public static IINAdaptiveTtl disabled() {
+        return new IINAdaptiveTtl();
+    }
+
+    /**
+     * Counts a lookup of the IIN, the frequencies are halved after every sample of lookups.
+     *
+     * @param iinKey packed IIN, see {@link org.stzverev.cardcostapi.service.cardinfoprovider.IINExtractor#getIinKey}
+     */
+    void record(final long iinKey) {
+        if (!enabled) {
+            return;
+        }
+        sketch.increment(CountMinSketch.mix(iinKey));
+        if (lookups.incrementAndGet() % sampleSize == 0) {
+            sketch.halve();
+        }
+    }
+
+    /**
+     * @param iinKey packed IIN
+     * @param ttl    time to live of the cache
+     * @return time to live of the IIN, not shorter than the given one
+     */
+    Duration ttl(final long iinKey, final Duration ttl) {
+        if (!enabled) {
+            return ttl;
+        }
+        final long frequency = sketch.estimate(CountMinSketch.mix(iinKey));
+        if (frequency < minFrequency || ttl.compareTo(maxTtl) >= 0) {
+            return ttl;
+        }
+        final double factor = (double) frequency / minFrequency;
+        final Duration extended = factor >= (double) maxTtl.toMillis() / ttl.toMillis()
+                ? maxTtl : Duration.ofMillis((long) (ttl.toMillis() * factor));
+        return extended.compareTo(ttl) > 0 ? extended : ttl;
+    }
+
+}
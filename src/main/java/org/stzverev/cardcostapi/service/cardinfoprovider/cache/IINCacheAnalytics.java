@@ -0,0 +1,247 @@
+package org.stzverev.cardcostapi.service.cardinfoprovider.cache;
+
+import org.springframework.boot.convert.DurationStyle;
+import org.stzverev.cardcostapi.configuration.properties.IINInfoCacheConfig;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Describes the IIN working set of {@link IINCacheProvider} without a Redis command per lookup: the number of
+ * distinct IINs by a {@link HyperLogLog}, the most requested IINs by a {@link CountMinSketch} with a small set
+ * of candidates, and the hit ratio over sliding windows by a {@link HitRatioWindow}.
+ * <p>
+ * Distinct IINs and request counts are kept per period: every period the distinct count starts over while the
+ * previous period is still counted, and the request counts are halved, so both describe the last one to two
+ * periods. A lookup is a hit when it is answered without the card info provider. Lookups don't allocate and
+ * take the lock only when an IIN becomes a candidate of the top.
+ */
+public class IINCacheAnalytics {
+
+    private final boolean enabled;
+
+    private final int precision;
+
+    private final int topSize;
+
+    private final long periodNanos;
+
+    private final List<Duration> windows;
+
+    private final CountMinSketch sketch;
+
+    private final HitRatioWindow hitRatio;
+
+    private final AtomicLong nextPeriod;
+
+    private volatile HyperLogLog current;
+
+    private volatile HyperLogLog previous;
+
+    /**
+     * Keys of the IINs which may be in the top, twice the size of the top, so IINs close to the top don't
+     * replace each other on every lookup. Replaced on every change, so lookups read it without the lock.
+     */
+    private volatile long[] candidates = new long[0];
+
+    /**
+     * Smallest estimated count of a candidate, an IIN with a smaller count is not checked against candidates.
+     */
+    private volatile long threshold;
+
+    public IINCacheAnalytics(final IINInfoCacheConfig.AnalyticsConfig config) {
+        if (config.getTopSize() < 1 || config.getPeriod().isNegative() || config.getPeriod().isZero()
+                || config.getHitRatioWindows().isEmpty()) {
+            throw new IllegalArgumentException("IIN cache analytics needs a positive top size and period and "
+                    + "at least one hit ratio window: " + config);
+        }
+        this.enabled = true;
+        this.precision = config.getPrecision();
+        this.topSize = config.getTopSize();
+        this.periodNanos = config.getPeriod().toNanos();
+        this.windows = List.copyOf(config.getHitRatioWindows());
+        this.sketch = new CountMinSketch(config.getSketchWidth(), config.getSketchDepth());
+        this.hitRatio = new HitRatioWindow(config.getHitRatioSlot(),
+                windows.stream().max(Comparator.naturalOrder()).orElseThrow());
+        this.nextPeriod = new AtomicLong(System.nanoTime() + periodNanos);
+        this.current = new HyperLogLog(precision);
+        this.previous = new HyperLogLog(precision);
+    }
+
+    private IINCacheAnalytics() {
+        this.enabled = false;
+        this.precision = 0;
+        this.topSize = 0;
+        this.periodNanos = 0;
+        this.windows = List.of();
+        this.sketch = null;
+        this.hitRatio = null;
+        this.nextPeriod = null;
+    }
+
+    /**
+     * @return analytics which ignore lookups and report nothing
+     */
+    public static IINCacheAnalytics disabled() {
+        return new IINCacheAnalytics();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Records a lookup.
+     *
+     * @param iinKey packed IIN, see {@link org.stzverev.cardcostapi.service.cardinfoprovider.IINExtractor#getIinKey}
+     * @param hit    true if the lookup was answered without the card info provider
+     */
+    void record(final long iinKey, final boolean hit) {
+        if (!enabled) {
+            return;
+        }
+        final long now = System.nanoTime();
+        startPeriodIfDue(now);
+        final long hash = CountMinSketch.mix(iinKey);
+        current.add(hash);
+        final long count = sketch.increment(hash);
+        if (count > threshold && !isCandidate(iinKey)) {
+            admit(iinKey, count);
+        }
+        hitRatio.record(now, hit);
+    }
+
+    /**
+     * @return estimated number of distinct IINs looked up in the last one to two periods
+     */
+    public long distinctIins() {
+        return enabled ? current.estimate(previous) : 0;
+    }
+
+    /**
+     * @return the current state of the analytics
+     */
+    public Report report() {
+        if (!enabled) {
+            return new Report(false, null, 0, List.of(), Map.of());
+        }
+        final long now = System.nanoTime();
+        startPeriodIfDue(now);
+        final List<TopIin> top = new ArrayList<>();
+        for (long candidate : candidates) {
+            top.add(new TopIin(iin(candidate), sketch.estimate(CountMinSketch.mix(candidate))));
+        }
+        top.sort(Comparator.comparingLong(TopIin::requests).reversed());
+        final Map<String, HitRatio> hitRatios = new LinkedHashMap<>();
+        for (Duration window : windows) {
+            final HitRatioWindow.Counts counts = hitRatio.counts(now, window);
+            hitRatios.put(format(window),
+                    new HitRatio(counts.hits(), counts.misses(), counts.ratio()));
+        }
+        return new Report(true, format(Duration.ofNanos(periodNanos)), distinctIins(),
+                top.subList(0, Math.min(topSize, top.size())), hitRatios);
+    }
+
+    private void startPeriodIfDue(final long now) {
+        final long next = nextPeriod.get();
+        if (now - next < 0 || !nextPeriod.compareAndSet(next, now + periodNanos)) {
+            return;
+        }
+        previous = current;
+        current = new HyperLogLog(precision);
+        sketch.halve();
+        threshold = threshold >>> 1;
+    }
+
+    private boolean isCandidate(final long iinKey) {
+        for (long candidate : candidates) {
+            if (candidate == iinKey) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds the IIN to the candidates, replacing the candidate with the smallest count when they are full.
+     */
+    private synchronized void admit(final long iinKey, final long count) {
+        final long[] existing = candidates;
+        if (isCandidate(iinKey)) {
+            return;
+        }
+        if (existing.length < topSize * 2) {
+            final long[] updated = Arrays.copyOf(existing, existing.length + 1);
+            updated[existing.length] = iinKey;
+            candidates = updated;
+            return;
+        }
+        int smallest = 0;
+        long smallestCount = Long.MAX_VALUE;
+        for (int i = 0; i < existing.length; i++) {
+            final long candidateCount = sketch.estimate(CountMinSketch.mix(existing[i]));
+            if (candidateCount < smallestCount) {
+                smallest = i;
+                smallestCount = candidateCount;
+            }
+        }
+        if (count <= smallestCount) {
+            threshold = smallestCount;
+            return;
+        }
+        final long[] updated = existing.clone();
+        updated[smallest] = iinKey;
+        candidates = updated;
+        long nextThreshold = count;
+        for (long candidate : updated) {
+            nextThreshold = Math.min(nextThreshold, sketch.estimate(CountMinSketch.mix(candidate)));
+        }
+        threshold = nextThreshold;
+    }
+
+    /**
+     * @return the duration in the largest unit it is a whole number of, e.g. 5m
+     */
+    private static String format(final Duration duration) {
+        for (ChronoUnit unit : List.of(ChronoUnit.DAYS, ChronoUnit.HOURS, ChronoUnit.MINUTES, ChronoUnit.SECONDS)) {
+            if (duration.toNanos() % unit.getDuration().toNanos() == 0) {
+                return DurationStyle.SIMPLE.print(duration, unit);
+            }
+        }
+        return DurationStyle.SIMPLE.print(duration);
+    }
+
+    private static String iin(final long iinKey) {
+        final String digits = Long.toString(iinKey >>> 4);
+        final int length = (int) (iinKey & 0xF);
+        return "0".repeat(Math.max(0, length - digits.length())) + digits;
+    }
+
+    /**
+     * @param enabled      false if the analytics are disabled
+     * @param period       IINs are counted over the last one to two periods
+     * @param distinctIins estimated number of distinct IINs
+     * @param topIins      most requested IINs with their estimated number of requests, in descending order
+     * @param hitRatios    hits and misses by window
+     */
+    public record Report(boolean enabled, String period, long distinctIins, List<TopIin> topIins,
+                         Map<String, HitRatio> hitRatios) {
+    }
+
+    public record TopIin(String iin, long requests) {
+    }
+
+    /**
+     * @param ratio share of hits, null without lookups
+     */
+    public record HitRatio(long hits, long misses, Double ratio) {
+    }
+
+}
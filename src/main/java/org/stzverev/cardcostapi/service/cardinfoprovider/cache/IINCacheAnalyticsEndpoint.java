@@ -0,0 +1,21 @@
+package org.stzverev.cardcostapi.service.cardinfoprovider.cache;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+/**
+ * Exposes {@link IINCacheAnalytics} of this instance as the {@code iincache} actuator endpoint.
+ */
+@Endpoint(id = "iincache")
+@RequiredArgsConstructor
+public class IINCacheAnalyticsEndpoint {
+
+    private final IINCacheAnalytics analytics;
+
+    @ReadOperation
+    public IINCacheAnalytics.Report analytics() {
+        return analytics.report();
+    }
+
+}
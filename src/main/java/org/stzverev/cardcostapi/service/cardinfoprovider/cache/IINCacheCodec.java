@@ -0,0 +1,61 @@
+package org.stzverev.cardcostapi.service.cardinfoprovider.cache;
+
+import org.stzverev.cardcostapi.domain.entity.IINCacheEntity;
+import org.stzverev.cardcostapi.service.cardinfoprovider.CountryCodes;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Binary form of IIN cache entries used by {@link RedisHashIINCacheStore}: the packed country code
+ * ({@link CountryCodes#UNKNOWN} for negative entries) followed by the soft and the hard expiration in epoch
+ * seconds as unsigned ints, zero soft expiration means none. The IIN is not repeated, it is the hash field.
+ */
+final class IINCacheCodec {
+
+    static final int SIZE = Short.BYTES + 2 * Integer.BYTES;
+
+    private IINCacheCodec() {
+    }
+
+    /**
+     * @param entity        the entry
+     * @param hardExpiresAt epoch milliseconds after which the entry is not served
+     * @return the binary entry or null if the country of the entry is not a valid ISO2 code
+     */
+    static byte[] encode(final IINCacheEntity entity, final long hardExpiresAt) {
+        final short country = CountryCodes.encode(entity.issuingCountry());
+        if (country == CountryCodes.UNKNOWN && !entity.isUnknown()) {
+            return null;
+        }
+        return ByteBuffer.allocate(SIZE)
+                .putShort(country)
+                .putInt(entity.softExpiresAt() == null ? 0 : toSeconds(entity.softExpiresAt()))
+                .putInt(toSeconds(hardExpiresAt + 999))
+                .array();
+    }
+
+    /**
+     * @param iin   the IIN of the entry
+     * @param value the binary entry
+     * @param now   current time in epoch milliseconds
+     * @return the entry or null if there is no value, it is malformed or past its hard expiration
+     */
+    static IINCacheEntity decode(final String iin, final byte[] value, final long now) {
+        if (value == null || value.length != SIZE) {
+            return null;
+        }
+        final ByteBuffer buffer = ByteBuffer.wrap(value);
+        final short country = buffer.getShort();
+        final long softExpiresAt = Integer.toUnsignedLong(buffer.getInt()) * 1000;
+        final long hardExpiresAt = Integer.toUnsignedLong(buffer.getInt()) * 1000;
+        if (hardExpiresAt <= now) {
+            return null;
+        }
+        return new IINCacheEntity(iin, CountryCodes.decode(country), softExpiresAt == 0 ? null : softExpiresAt);
+    }
+
+    private static int toSeconds(final long epochMillis) {
+        return (int) (epochMillis / 1000);
+    }
+
+}
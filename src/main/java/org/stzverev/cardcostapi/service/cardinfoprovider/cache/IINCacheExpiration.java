@@ -0,0 +1,96 @@
+package org.stzverev.cardcostapi.service.cardinfoprovider.cache;
+
+import lombok.Getter;
+import org.stzverev.cardcostapi.domain.entity.IINCacheEntity;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Expiration policy of IIN cache entries.
+ * <p>
+ * With refresh-ahead an entry is fresh for the time to live and is kept in Redis until the longer hard time
+ * to live. Entries past their time to live are still served while they are refreshed in the background.
+ * Without refresh-ahead entries are removed from Redis after the time to live. Every expiration is randomly
+ * deviated by the jitter, so entries written together don't expire at the same moment.
+ */
+public class IINCacheExpiration {
+
+    @Getter
+    private final Duration ttl;
+
+    private final Duration hardTtl;
+
+    private final Duration negativeTtl;
+
+    private final double jitter;
+
+    /**
+     * @param ttl         time to live of an entry
+     * @param hardTtl     time to live of an entry in Redis, null disables refresh-ahead
+     * @param negativeTtl time to live of an entry of an IIN unknown to the provider, zero disables negative caching
+     * @param jitter      maximum relative deviation of expirations, from 0 inclusive to 1 exclusive
+     */
+    public IINCacheExpiration(final Duration ttl, final Duration hardTtl, final Duration negativeTtl,
+                              final double jitter) {
+        if (jitter < 0 || jitter >= 1) {
+            throw new IllegalArgumentException("Jitter of IIN cache expiration must be from 0 to 1: " + jitter);
+        }
+        this.ttl = ttl;
+        this.hardTtl = hardTtl;
+        this.negativeTtl = negativeTtl;
+        this.jitter = jitter;
+    }
+
+    public boolean isRefreshAhead() {
+        return hardTtl != null;
+    }
+
+    public boolean isNegativeEnabled() {
+        return !negativeTtl.isZero();
+    }
+
+    /**
+     * @param entity cached entry
+     * @param now    current time in epoch milliseconds
+     * @return true if the entry is past its time to live and should be refreshed
+     */
+    public boolean isStale(final IINCacheEntity entity, final long now) {
+        return entity.softExpiresAt() != null && entity.softExpiresAt() <= now;
+    }
+
+    /**
+     * @return jittered time to live of a new entry
+     */
+    public Duration nextTtl() {
+        return jittered(ttl);
+    }
+
+    /**
+     * @param ttl jittered time to live of the entry
+     * @return jittered time to live of the entry in Redis, never shorter than the time to live
+     */
+    public Duration nextHardTtl(final Duration ttl) {
+        if (!isRefreshAhead()) {
+            return ttl;
+        }
+        final Duration next = jittered(hardTtl);
+        return next.compareTo(ttl) > 0 ? next : ttl;
+    }
+
+    /**
+     * @return jittered time to live of a new negative entry
+     */
+    public Duration nextNegativeTtl() {
+        return jittered(negativeTtl);
+    }
+
+    private Duration jittered(final Duration duration) {
+        if (jitter == 0) {
+            return duration;
+        }
+        final double factor = ThreadLocalRandom.current().nextDouble(1 - jitter, 1 + jitter);
+        return Duration.ofMillis(Math.max(1, (long) (duration.toMillis() * factor)));
+    }
+
+}
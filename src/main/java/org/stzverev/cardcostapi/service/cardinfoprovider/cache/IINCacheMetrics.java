@@ -0,0 +1,176 @@
+package org.stzverev.cardcostapi.service.cardinfoprovider.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.stzverev.cardcostapi.metrics.MonoTimer;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+/**
+ * Metrics of {@link IINCacheProvider}: hit and miss counters per cache tier, latency of Redis commands,
+ * local cache evictions and upstream calls coalescing.
+ */
+public class IINCacheMetrics {
+
+    private static final String REQUESTS = "iin.cache.requests";
+
+    private static final String REDIS = "iin.cache.redis";
+
+    private static final String WRITES = "iin.cache.writes";
+
+    private static final String NEGATIVE = "iin.cache.negative";
+
+    private final MeterRegistry registry;
+
+    private final Counter redisHits;
+
+    private final Counter redisMisses;
+
+    private final MonoTimer redisGet;
+
+    private final MonoTimer redisMultiGet;
+
+    private final MonoTimer redisSet;
+
+    private final Counter negativeHits;
+
+    private final Counter negativeStored;
+
+    private final Counter staleHits;
+
+    private final Counter refreshFailures;
+
+    private final Counter writesSucceeded;
+
+    private final Counter writesDropped;
+
+    private final Counter writesFailed;
+
+    public IINCacheMetrics(final MeterRegistry registry) {
+        this.registry = registry;
+        this.redisHits = Counter.builder(REQUESTS).tags("tier", "redis", "result", "hit").register(registry);
+        this.redisMisses = Counter.builder(REQUESTS).tags("tier", "redis", "result", "miss").register(registry);
+        this.redisGet = new MonoTimer(registry, REDIS, "Latency of IIN cache Redis commands",
+                "operation", "get");
+        this.redisMultiGet = new MonoTimer(registry, REDIS, "Latency of IIN cache Redis commands",
+                "operation", "mget");
+        this.redisSet = new MonoTimer(registry, REDIS, "Latency of IIN cache Redis commands",
+                "operation", "set");
+        this.negativeHits = Counter.builder(NEGATIVE).tag("result", "hit")
+                .description("Requests of IINs unknown to the provider answered from cache")
+                .register(registry);
+        this.negativeStored = Counter.builder(NEGATIVE).tag("result", "stored")
+                .description("IINs unknown to the provider queued to be cached")
+                .register(registry);
+        this.staleHits = Counter.builder("iin.cache.stale.hits")
+                .description("Stale entries served while they are refreshed in the background")
+                .register(registry);
+        this.refreshFailures = Counter.builder("iin.cache.refresh.failures")
+                .description("Failed background refreshes of stale entries")
+                .register(registry);
+        this.writesSucceeded = Counter.builder(WRITES).tag("result", "written").register(registry);
+        this.writesDropped = Counter.builder(WRITES).tag("result", "dropped")
+                .description("Entries dropped because the write queue is full")
+                .register(registry);
+        this.writesFailed = Counter.builder(WRITES).tag("result", "failed").register(registry);
+    }
+
+    /**
+     * Binds counters kept by the local cache, by the prefix index and by the upstream call deduplication.
+     */
+    void bind(final IINLocalCache localCache, final IINPrefixIndex prefixIndex,
+              final SingleFlight<?, ?> upstreamCalls) {
+        FunctionCounter.builder(REQUESTS, localCache, IINLocalCache::hitCount)
+                .tags("tier", "local", "result", "hit")
+                .register(registry);
+        FunctionCounter.builder(REQUESTS, localCache, IINLocalCache::missCount)
+                .tags("tier", "local", "result", "miss")
+                .register(registry);
+        FunctionCounter.builder("iin.cache.local.evictions", localCache, IINLocalCache::evictionCount)
+                .description("Live entries evicted from the local IIN cache because it is full")
+                .register(registry);
+        FunctionCounter.builder("iin.cache.local.expirations", localCache, IINLocalCache::expirationCount)
+                .description("Expired entries replaced in the local IIN cache")
+                .register(registry);
+        FunctionCounter.builder(REQUESTS, prefixIndex, IINPrefixIndex::hitCount)
+                .tags("tier", "prefix", "result", "hit")
+                .register(registry);
+        FunctionCounter.builder(REQUESTS, prefixIndex, IINPrefixIndex::missCount)
+                .tags("tier", "prefix", "result", "miss")
+                .register(registry);
+        FunctionCounter.builder("iin.cache.prefix.conflicts", prefixIndex, IINPrefixIndex::conflictCount)
+                .description("BINs marked as ambiguous because IINs under them have different countries")
+                .register(registry);
+        FunctionCounter.builder("iin.cache.upstream.calls", upstreamCalls, SingleFlight::executionCount)
+                .tag("result", "executed")
+                .register(registry);
+        FunctionCounter.builder("iin.cache.upstream.calls", upstreamCalls, SingleFlight::coalescedCount)
+                .tag("result", "coalesced")
+                .register(registry);
+        Gauge.builder("iin.cache.upstream.in.flight", upstreamCalls, SingleFlight::inFlightCount)
+                .register(registry);
+    }
+
+    void bindAnalytics(final IINCacheAnalytics analytics) {
+        Gauge.builder("iin.cache.distinct.iins", analytics, IINCacheAnalytics::distinctIins)
+                .description("Estimated number of distinct IINs looked up in the last one to two analytics periods")
+                .register(registry);
+    }
+
+    void bindWriteQueue(final Collection<?> queue) {
+        Gauge.builder("iin.cache.write.queue.size", queue, Collection::size)
+                .register(registry);
+    }
+
+    void redisHits(final int count) {
+        redisHits.increment(count);
+    }
+
+    void redisMisses(final int count) {
+        redisMisses.increment(count);
+    }
+
+    void negativeHits(final int count) {
+        negativeHits.increment(count);
+    }
+
+    void negativeStored() {
+        negativeStored.increment();
+    }
+
+    void staleHit() {
+        staleHits.increment();
+    }
+
+    void refreshFailed() {
+        refreshFailures.increment();
+    }
+
+    void writesSucceeded(final int count) {
+        writesSucceeded.increment(count);
+    }
+
+    void writeDropped() {
+        writesDropped.increment();
+    }
+
+    void writesFailed(final int count) {
+        writesFailed.increment(count);
+    }
+
+    <T> Mono<T> timeRedisGet(final Mono<T> mono) {
+        return redisGet.time(mono);
+    }
+
+    <T> Mono<T> timeRedisMultiGet(final Mono<T> mono) {
+        return redisMultiGet.time(mono);
+    }
+
+    <T> Mono<T> timeRedisSet(final Mono<T> mono) {
+        return redisSet.time(mono);
+    }
+
+}
@@ -1,20 +1,27 @@
 package org.stzverev.cardcostapi.service.cardinfoprovider.cache;
 
 import jakarta.annotation.PostConstruct;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.ReactiveRedisOperations;
 import org.stzverev.cardcostapi.domain.entity.IINCacheEntity;
+import org.stzverev.cardcostapi.exceptions.CardInfoIsNotFoundException;
 import org.stzverev.cardcostapi.service.cardinfoprovider.IINExtractor;
 import org.stzverev.cardcostapi.service.cardinfoprovider.IINInfo;
 import org.stzverev.cardcostapi.service.cardinfoprovider.IINInfoProvider;
+import org.stzverev.cardcostapi.service.cardinfoprovider.IINLookup;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.publisher.Sinks;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 
 /**
  * Represents a cache provider for retrieving card information based on the Issuer Identification Number (IIN).
+ * Lookups go through the in-heap {@link IINLocalCache} first, then through Redis and finally through the
+ * delegate provider.
  */
 @RequiredArgsConstructor
 @Slf4j
@@ -22,30 +29,58 @@ public class IINCacheProvider implements IINInfoProvider {
 
     private final IINInfoProvider iinInfoProvider;
 
-    private static final String REDIS_PREFIX = "iin-cache-";
-
     private final IINExtractor iinExtractor;
 
-    private final Duration expirationDuration;
+    private final IINCacheExpiration expiration;
+
+    private final IINCacheStore store;
+
+    private final IINLocalCache localCache;
+
+    /**
+     * Answers Redis misses by the country learned for the 6-digit BIN of the IIN, before calling the delegate.
+     */
+    private final IINPrefixIndex prefixIndex;
+
+    private final IINCacheMetrics metrics;
 
-    private final ReactiveRedisOperations<String, IINCacheEntity> redisOperationsIINCache;
+    /**
+     * Upstream results are written to Redis in batches in the background, so the response doesn't wait for Redis.
+     */
+    private final IINCacheWriter cacheWriter;
 
-    private final Sinks.Many<IINInfo> cachePublisher = Sinks.many().unicast().onBackpressureBuffer();
+    /**
+     * Distinct IINs, most requested IINs and hit ratios, updated in memory on every lookup.
+     */
+    private final IINCacheAnalytics analytics;
+
+    /**
+     * Frequently requested IINs are cached in Redis longer than the cache expiration.
+     */
+    private final IINAdaptiveTtl adaptiveTtl;
+
+    /**
+     * Concurrent misses for the same IIN share one upstream call, so a new BIN costs a single call
+     * of the delegate provider and a single cache write.
+     */
+    @Getter
+    private final SingleFlight<String, IINInfo> upstreamCalls = new SingleFlight<>();
 
     @PostConstruct
     void init() {
-        cachePublisher.asFlux()
-                .flatMap(iinInfo -> saveToCache(iinInfo)
-                        .doOnNext(iinCacheEntity -> log.info("iin is saved to cache: {}", iinCacheEntity))
-                        .onErrorContinue((throwable, o) -> log.error("Error saving IINCacheEntity. entity: {}", o,
-                                throwable)))
-                .subscribe();
+        metrics.bind(localCache, prefixIndex, upstreamCalls);
+        if (analytics.isEnabled()) {
+            metrics.bindAnalytics(analytics);
+        }
     }
 
     /**
      * Retrieves card information based on the card number from cache.
-     * If information is not found in cache, it will be fetched by delegate iinInfoProvider and
-     * saved into cache
+     * If information is not found in local cache, it is fetched from Redis. If it is not found in Redis either,
+     * it is resolved by the {@link IINPrefixIndex} or fetched by delegate iinInfoProvider and saved into both
+     * caches. IINs unknown to the delegate provider are cached in Redis as negative entries, which are answered
+     * with {@link CardInfoIsNotFoundException}.
+     * Stale entries are served immediately and refreshed in the background, see {@link IINCacheExpiration}
      *
      * @param cardNumber The card number.
      * @return A Mono containing the card information.
@@ -53,25 +88,192 @@ public class IINCacheProvider implements IINInfoProvider {
     @Override
     public Mono<IINInfo> getCardInfoByNumber(final String cardNumber) {
         final String iin = iinExtractor.getIin(cardNumber);
-        return redisOperationsIINCache.opsForValue().get(REDIS_PREFIX + iin)
-                .doOnNext(iinCacheEntity -> log.info("iin is fetched from cache: {}", iinCacheEntity))
-                .map(iinInfoProvider -> new IINInfo(iin, iinInfoProvider.issuingCountry()))
-                .switchIfEmpty(iinInfoProvider.getCardInfoByNumber(cardNumber)
-                        .doOnNext(cachePublisher::tryEmitNext));
+        final long iinKey = iinExtractor.getIinKey(cardNumber);
+        final String country = localCache.get(iinKey);
+        if (country != null) {
+            recordLookup(iinKey, true);
+            return Mono.just(new IINInfo(iin, country));
+        }
+        return metrics.timeRedisGet(store.get(iin))
+                .doOnNext(iinCacheEntity -> log.debug("iin is fetched from cache: {}", iinCacheEntity))
+                .flatMap(iinCacheEntity -> {
+                    recordLookup(iinKey, true);
+                    if (iinCacheEntity.isUnknown()) {
+                        metrics.negativeHits(1);
+                        return Mono.error(unknownIin(iin));
+                    }
+                    metrics.redisHits(1);
+                    if (expiration.isStale(iinCacheEntity, System.currentTimeMillis())) {
+                        refresh(cardNumber, iin, iinKey);
+                    }
+                    localCache.put(iinKey, iinCacheEntity.issuingCountry());
+                    return Mono.just(new IINInfo(iin, iinCacheEntity.issuingCountry()));
+                })
+                .switchIfEmpty(Mono.defer(() -> {
+                    metrics.redisMisses(1);
+                    return resolve(cardNumber, iin, iinKey);
+                }));
+    }
+
+    /**
+     * Retrieves card information for several IINs. Local cache hits are answered immediately, the rest of
+     * IINs are fetched from Redis with a single MGET and only the remaining misses go to the delegate provider.
+     *
+     * @param iins distinct IINs
+     * @return A Flux emitting one lookup per IIN.
+     */
+    @Override
+    public Flux<IINLookup> getCardInfoByIins(final Collection<String> iins) {
+        final List<IINLookup> localHits = new ArrayList<>();
+        final List<String> remoteIins = new ArrayList<>();
+        for (final String iin : iins) {
+            final long iinKey = iinExtractor.getIinKey(iin);
+            final String country = localCache.get(iinKey);
+            if (country != null) {
+                recordLookup(iinKey, true);
+                localHits.add(IINLookup.found(iin, new IINInfo(iin, country)));
+            } else {
+                remoteIins.add(iin);
+            }
+        }
+        if (remoteIins.isEmpty()) {
+            return Flux.fromIterable(localHits);
+        }
+        return Flux.fromIterable(localHits)
+                .concatWith(metrics.timeRedisMultiGet(store.multiGet(remoteIins))
+                        .flatMapMany(entities -> {
+                            final List<IINLookup> redisHits = new ArrayList<>();
+                            final List<String> misses = new ArrayList<>();
+                            int negativeHits = 0;
+                            final long now = System.currentTimeMillis();
+                            for (int i = 0; i < remoteIins.size(); i++) {
+                                final String iin = remoteIins.get(i);
+                                final IINCacheEntity entity = entities.get(i);
+                                if (entity != null) {
+                                    recordLookup(iinExtractor.getIinKey(iin), true);
+                                }
+                                if (entity != null && entity.isUnknown()) {
+                                    negativeHits++;
+                                    redisHits.add(IINLookup.failed(iin, unknownIin(iin)));
+                                } else if (entity != null) {
+                                    if (expiration.isStale(entity, now)) {
+                                        refresh(iin, iin, iinExtractor.getIinKey(iin));
+                                    }
+                                    localCache.put(iinExtractor.getIinKey(iin), entity.issuingCountry());
+                                    redisHits.add(IINLookup.found(iin, new IINInfo(iin, entity.issuingCountry())));
+                                } else {
+                                    misses.add(iin);
+                                }
+                            }
+                            metrics.redisHits(redisHits.size() - negativeHits);
+                            metrics.negativeHits(negativeHits);
+                            metrics.redisMisses(misses.size());
+                            log.debug("Batch of {} iins: {} fetched from cache, {} missed", remoteIins.size(),
+                                    redisHits.size(), misses.size());
+                            return Flux.fromIterable(redisHits)
+                                    .concatWith(Flux.fromIterable(misses)
+                                            .flatMap(iin -> resolve(iin, iin, iinExtractor.getIinKey(iin))
+                                                    .map(iinInfo -> IINLookup.found(iin, iinInfo))
+                                                    .onErrorResume(error -> Mono.just(IINLookup.failed(iin, error)))));
+                        }));
     }
 
-    private Mono<IINCacheEntity> saveToCache(IINInfo iinInfo) {
-        return Mono.just(mapToCacheEntity(iinInfo))
-                .flatMap(iinCacheEntity -> redisOperationsIINCache.opsForValue().set(REDIS_PREFIX + iinInfo.iin(),
-                                iinCacheEntity, expirationDuration)
-                        .map(__ -> iinCacheEntity));
+    /**
+     * Answers a Redis miss by the longest known prefix of the IIN. Exact entries were looked up already,
+     * so the 6-digit BIN learned by {@link IINPrefixIndex} is the remaining candidate. The answer is cached
+     * under the IIN itself, so other instances get it from Redis.
+     */
+    private Mono<IINInfo> resolve(final String cardNumber, final String iin, final long iinKey) {
+        final String country = prefixIndex.find(iin, System.currentTimeMillis());
+        recordLookup(iinKey, country != null);
+        if (country == null) {
+            return fetch(cardNumber, iin, iinKey);
+        }
+        log.debug("iin {} is resolved by its BIN: {}", iin, country);
+        final IINInfo iinInfo = new IINInfo(iin, country);
+        localCache.put(iinKey, country);
+        cache(iinInfo, iinKey);
+        return Mono.just(iinInfo);
+    }
+
+    /**
+     * Writes known IIN mappings, e.g. from a snapshot loaded on startup, straight to Redis, bypassing the
+     * write-behind queue so a large load is neither dropped nor delaying request writes. Entries get the same
+     * expirations as upstream answers and 6-digit BINs are learned by the {@link IINPrefixIndex}.
+     *
+     * @param iinInfos the mappings, written as one batch
+     * @return a Mono emitting the number of written entries
+     */
+    public Mono<Integer> preload(final List<IINInfo> iinInfos) {
+        final long now = System.currentTimeMillis();
+        final List<IINCacheWrite> writes = new ArrayList<>(iinInfos.size());
+        for (final IINInfo iinInfo : iinInfos) {
+            final Duration ttl = expiration.nextTtl();
+            final Long softExpiresAt = expiration.isRefreshAhead() ? now + ttl.toMillis() : null;
+            writes.add(new IINCacheWrite(iinInfo.iin(),
+                    new IINCacheEntity(iinInfo.iin(), iinInfo.country(), softExpiresAt), expiration.nextHardTtl(ttl)));
+            prefixIndex.learn(iinInfo.iin(), iinInfo.country(), now);
+        }
+        return metrics.timeRedisSet(store.writeAll(writes))
+                .doOnNext(metrics::writesSucceeded);
+    }
+
+    private Mono<IINInfo> fetch(final String cardNumber, final String iin, final long iinKey) {
+        return upstreamCalls.execute(iin, () -> iinInfoProvider.getCardInfoByNumber(cardNumber)
+                .doOnNext(iinInfo -> localCache.put(iinKey, iinInfo.country()))
+                .doOnNext(iinInfo -> prefixIndex.learn(iin, iinInfo.country(), System.currentTimeMillis()))
+                .doOnNext(iinInfo -> cache(iinInfo, iinKey))
+                .doOnError(CardInfoIsNotFoundException.class, error -> cacheUnknown(iin)));
+    }
+
+    /**
+     * Serves a stale entry while a single background call refreshes it. The refresh joins the upstream call
+     * which is already in flight for the IIN, if any. The stale entry is kept in Redis until the refresh
+     * succeeds or the entry reaches its hard expiration.
+     */
+    private void refresh(final String cardNumber, final String iin, final long iinKey) {
+        metrics.staleHit();
+        fetch(cardNumber, iin, iinKey).subscribe(
+                iinInfo -> log.debug("Stale iin is refreshed: {}", iinInfo),
+                error -> {
+                    metrics.refreshFailed();
+                    log.debug("Error refreshing stale iin: {}", iin, error);
+                });
+    }
+
+    private void recordLookup(final long iinKey, final boolean hit) {
+        analytics.record(iinKey, hit);
+        adaptiveTtl.record(iinKey);
+    }
+
+    /**
+     * Caches the upstream answer. The time to live of a frequently requested IIN is extended by
+     * {@link IINAdaptiveTtl}, its hard expiration is extended by the same time, so it is still served stale
+     * while it is refreshed.
+     */
+    private void cache(final IINInfo iinInfo, final long iinKey) {
+        final Duration baseTtl = expiration.nextTtl();
+        final Duration ttl = adaptiveTtl.ttl(iinKey, baseTtl);
+        final Long softExpiresAt = expiration.isRefreshAhead() ? System.currentTimeMillis() + ttl.toMillis() : null;
+        cacheWriter.write(iinInfo.iin(), new IINCacheEntity(iinInfo.iin(), iinInfo.country(), softExpiresAt),
+                expiration.nextHardTtl(baseTtl).plus(ttl.minus(baseTtl)));
+    }
+
+    /**
+     * Caches the IIN unknown to the delegate provider for the negative expiration duration, so requests of
+     * the IIN are answered from cache and don't spend the call quota of the provider.
+     */
+    private void cacheUnknown(final String iin) {
+        if (!expiration.isNegativeEnabled()) {
+            return;
+        }
+        if (cacheWriter.write(iin, IINCacheEntity.unknown(iin), expiration.nextNegativeTtl())) {
+            metrics.negativeStored();
+        }
     }
 
-    private static IINCacheEntity mapToCacheEntity(final IINInfo iinInfo) {
-        return IINCacheEntity.builder()
-                .iin(iinInfo.iin())
-                .issuingCountry(iinInfo.country())
-                .build();
+    private static CardInfoIsNotFoundException unknownIin(final String iin) {
+        return new CardInfoIsNotFoundException(iin, "Card info is not found for iin: {}", iin);
     }
 
 }
@@ -0,0 +1,33 @@
+package org.stzverev.cardcostapi.service.cardinfoprovider.cache;
+
+import org.stzverev.cardcostapi.domain.entity.IINCacheEntity;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Redis layout of the IIN cache used by {@link IINCacheProvider}.
+ */
+public interface IINCacheStore {
+
+    /**
+     * @param iin the IIN
+     * @return a Mono emitting the live entry of the IIN or empty if there is none
+     */
+    Mono<IINCacheEntity> get(String iin);
+
+    /**
+     * @param iins the IINs
+     * @return a Mono emitting entries in the order of IINs, with null elements for IINs without live entries
+     */
+    Mono<List<IINCacheEntity>> multiGet(List<String> iins);
+
+    /**
+     * Writes the entries in as few round trips as the layout allows.
+     *
+     * @param writes the entries
+     * @return a Mono emitting the number of written entries
+     */
+    Mono<Integer> writeAll(List<IINCacheWrite> writes);
+
+}
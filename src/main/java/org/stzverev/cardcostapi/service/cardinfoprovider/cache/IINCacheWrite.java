@@ -0,0 +1,15 @@
+package org.stzverev.cardcostapi.service.cardinfoprovider.cache;
+
+import org.stzverev.cardcostapi.domain.entity.IINCacheEntity;
+
+import java.time.Duration;
+
+/**
+ * Entry to be written to the IIN cache store.
+ *
+ * @param iin    the IIN
+ * @param entity the cache entry
+ * @param ttl    expiration of the entry in the store
+ */
+public record IINCacheWrite(String iin, IINCacheEntity entity, Duration ttl) {
+}
@@ -0,0 +1,132 @@
+package org.stzverev.cardcostapi.service.cardinfoprovider.cache;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.stzverev.cardcostapi.configuration.properties.IINInfoCacheConfig;
+import org.stzverev.cardcostapi.domain.entity.IINCacheEntity;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Write-behind stage of {@link IINCacheProvider}. Entries are put into a bounded queue and written to Redis
+ * in batches, taking as few round trips as the {@link IINCacheStore} allows. A batch is written as soon as
+ * the queue holds a full batch or when the flush interval elapses. When the queue is full, new entries
+ * are dropped: the cache is an optimization and a dropped entry is fetched again on the next miss.
+ * The queue is drained on shutdown, after the batch being written, if any, is written.
+ */
+@Slf4j
+public class IINCacheWriter {
+
+    private final IINCacheStore store;
+
+    private final IINInfoCacheConfig.WriteBehindConfig config;
+
+    private final IINCacheMetrics metrics;
+
+    private final BlockingQueue<IINCacheWrite> queue;
+
+    /**
+     * Signals that a full batch is queued. Emission fails only when another thread is emitting at the same time,
+     * so a failed emission never loses a flush.
+     */
+    private final Sinks.Many<Boolean> flushRequests = Sinks.many().multicast().directBestEffort();
+
+    private final Sinks.One<Boolean> shutdown = Sinks.one();
+
+    /**
+     * Completes once the flushes triggered by the queue and the interval are done after shutdown.
+     */
+    private Mono<Void> flushes = Mono.empty();
+
+    public IINCacheWriter(final IINCacheStore store, final IINInfoCacheConfig.WriteBehindConfig config,
+                          final IINCacheMetrics metrics) {
+        this.store = store;
+        this.config = config;
+        this.metrics = metrics;
+        this.queue = new ArrayBlockingQueue<>(config.getQueueCapacity());
+        metrics.bindWriteQueue(queue);
+    }
+
+    @PostConstruct
+    void start() {
+        flushes = Flux.merge(Flux.interval(config.getFlushInterval()).map(tick -> true),
+                        flushRequests.asFlux())
+                .takeUntilOther(shutdown.asMono())
+                .onBackpressureDrop()
+                .concatMap(request -> flush(), 1)
+                .then()
+                .cache();
+        flushes.subscribe();
+    }
+
+    /**
+     * Stops the flush triggers, waits for the running flush and writes the entries left in the queue.
+     */
+    @PreDestroy
+    void stop() {
+        shutdown.tryEmitValue(true);
+        final int pending = queue.size();
+        try {
+            flushes.then(flush()).block(config.getShutdownTimeout());
+            log.info("IIN cache write queue is drained. Entries: {}", pending);
+        } catch (RuntimeException e) {
+            log.warn("Error draining IIN cache write queue. Entries left: {}", queue.size(), e);
+        }
+    }
+
+    /**
+     * Queues the entry to be written to Redis.
+     *
+     * @param iin    the IIN
+     * @param entity the cache entry
+     * @param ttl    expiration of the entry in Redis
+     * @return false if the entry is dropped because the queue is full
+     */
+    public boolean write(final String iin, final IINCacheEntity entity, final Duration ttl) {
+        if (!queue.offer(new IINCacheWrite(iin, entity, ttl))) {
+            metrics.writeDropped();
+            return false;
+        }
+        if (queue.size() >= config.getBatchSize()) {
+            flushRequests.tryEmitNext(true);
+        }
+        return true;
+    }
+
+    /**
+     * Writes queued entries batch by batch until the queue is empty.
+     */
+    Mono<Void> flush() {
+        return Mono.defer(() -> {
+                    final List<IINCacheWrite> batch = new ArrayList<>(config.getBatchSize());
+                    queue.drainTo(batch, config.getBatchSize());
+                    return batch.isEmpty() ? Mono.<Void>empty() : write(batch);
+                })
+                .repeat(() -> !queue.isEmpty())
+                .then();
+    }
+
+    private Mono<Void> write(final List<IINCacheWrite> batch) {
+        return metrics.timeRedisSet(store.writeAll(batch))
+                .doOnNext(written -> {
+                    metrics.writesSucceeded(written);
+                    metrics.writesFailed(batch.size() - written);
+                    log.debug("Batch of {} iins is saved to cache, failed: {}", batch.size(), batch.size() - written);
+                })
+                .onErrorResume(error -> {
+                    metrics.writesFailed(batch.size());
+                    log.error("Error saving batch of {} iins to cache", batch.size(), error);
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+}
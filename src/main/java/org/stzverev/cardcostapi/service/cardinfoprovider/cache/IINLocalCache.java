@@ -0,0 +1,236 @@
+package org.stzverev.cardcostapi.service.cardinfoprovider.cache;
+
+import org.stzverev.cardcostapi.service.cardinfoprovider.CountryCodes;
+
+import java.lang.invoke.VarHandle;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded in-heap cache of IIN to country mappings, used as the first tier in front of Redis.
+ * <p>
+ * Entries are kept in primitive arrays organised as a set-associative table: a packed IIN key
+ * (see {@link org.stzverev.cardcostapi.service.cardinfoprovider.IINExtractor#getIinKey(String)}) maps to a set of
+ * {@value #WAYS} slots and the least recently used slot of a full set is evicted. Every entry expires after
+ * the configured time to live. Reads are lock free and validated by a per-set sequence number, writes to
+ * the same set are serialized by the same sequence number.
+ */
+public class IINLocalCache {
+
+    private static final int WAYS = 4;
+
+    private static final long EMPTY = 0L;
+
+    private final boolean enabled;
+
+    private final int setMask;
+
+    private final long ttlNanos;
+
+    private final long[] keys;
+
+    private final short[] countries;
+
+    private final long[] expiresAt;
+
+    private final long[] accessedAt;
+
+    private final AtomicIntegerArray versions;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    private final LongAdder expirations = new LongAdder();
+
+    /**
+     * Creates a cache.
+     *
+     * @param maximumSize maximum number of entries, rounded down to a power of two
+     * @param ttl         time to live of an entry
+     */
+    public IINLocalCache(final long maximumSize, final Duration ttl) {
+        if (maximumSize < WAYS) {
+            throw new IllegalArgumentException("Maximum size of local IIN cache must be at least " + WAYS);
+        }
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("Time to live of local IIN cache must be positive");
+        }
+        final int sets = Integer.highestOneBit((int) Math.min(maximumSize / WAYS, 1 << 28));
+        this.enabled = true;
+        this.setMask = sets - 1;
+        this.ttlNanos = ttl.toNanos();
+        this.keys = new long[sets * WAYS];
+        this.countries = new short[sets * WAYS];
+        this.expiresAt = new long[sets * WAYS];
+        this.accessedAt = new long[sets * WAYS];
+        this.versions = new AtomicIntegerArray(sets);
+    }
+
+    private IINLocalCache() {
+        this.enabled = false;
+        this.setMask = 0;
+        this.ttlNanos = 0;
+        this.keys = new long[0];
+        this.countries = new short[0];
+        this.expiresAt = new long[0];
+        this.accessedAt = new long[0];
+        this.versions = new AtomicIntegerArray(0);
+    }
+
+    /**
+     * @return a cache that never stores anything and always misses
+     */
+    public static IINLocalCache disabled() {
+        return new IINLocalCache();
+    }
+
+    /**
+     * Returns the country cached for the key.
+     *
+     * @param key packed IIN
+     * @return ISO2 country code or null if there is no live entry for the key
+     */
+    public String get(final long key) {
+        if (!enabled) {
+            return null;
+        }
+        final int set = setOf(key);
+        final int base = set * WAYS;
+        final long now = System.nanoTime();
+        while (true) {
+            final int version = versions.get(set);
+            if ((version & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            int slot = -1;
+            short country = CountryCodes.UNKNOWN;
+            long expires = 0;
+            for (int i = base; i < base + WAYS; i++) {
+                if (keys[i] == key) {
+                    slot = i;
+                    country = countries[i];
+                    expires = expiresAt[i];
+                    break;
+                }
+            }
+            VarHandle.acquireFence();
+            if (versions.get(set) != version) {
+                continue;
+            }
+            if (slot < 0 || expires - now <= 0) {
+                misses.increment();
+                return null;
+            }
+            accessedAt[slot] = now;
+            hits.increment();
+            return CountryCodes.decode(country);
+        }
+    }
+
+    /**
+     * Stores the country for the key, replacing the previous value if any.
+     * Values which are not valid ISO2 codes are ignored.
+     *
+     * @param key     packed IIN
+     * @param country ISO2 country code
+     */
+    public void put(final long key, final String country) {
+        put(key, country, ttlNanos);
+    }
+
+    /**
+     * Stores the country for the key with a time to live of its own, at most the time to live of the cache.
+     *
+     * @param key     packed IIN
+     * @param country ISO2 country code
+     * @param ttl     time to live of the entry
+     */
+    public void put(final long key, final String country, final Duration ttl) {
+        put(key, country, Math.min(ttl.toNanos(), ttlNanos));
+    }
+
+    private void put(final long key, final String country, final long entryTtlNanos) {
+        final short code = CountryCodes.encode(country);
+        if (!enabled || code == CountryCodes.UNKNOWN || entryTtlNanos <= 0) {
+            return;
+        }
+        final int set = setOf(key);
+        final int base = set * WAYS;
+        final int version = lock(set);
+        try {
+            final long now = System.nanoTime();
+            final int slot = findSlot(key, base, now);
+            if (keys[slot] != EMPTY && keys[slot] != key) {
+                if (expiresAt[slot] - now <= 0) {
+                    expirations.increment();
+                } else {
+                    evictions.increment();
+                }
+            }
+            keys[slot] = key;
+            countries[slot] = code;
+            expiresAt[slot] = now + entryTtlNanos;
+            accessedAt[slot] = now;
+        } finally {
+            versions.set(set, version + 2);
+        }
+    }
+
+    private int findSlot(final long key, final int base, final long now) {
+        int victim = base;
+        for (int i = base; i < base + WAYS; i++) {
+            if (keys[i] == key) {
+                return i;
+            }
+        }
+        for (int i = base; i < base + WAYS; i++) {
+            if (keys[i] == EMPTY || expiresAt[i] - now <= 0) {
+                return i;
+            }
+            if (accessedAt[i] - accessedAt[victim] < 0) {
+                victim = i;
+            }
+        }
+        return victim;
+    }
+
+    private int lock(final int set) {
+        while (true) {
+            final int version = versions.get(set);
+            if ((version & 1) == 0 && versions.compareAndSet(set, version, version + 1)) {
+                return version;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private int setOf(final long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & setMask;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    public long expirationCount() {
+        return expirations.sum();
+    }
+
+}
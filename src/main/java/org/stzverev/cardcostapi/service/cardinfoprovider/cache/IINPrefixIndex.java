@@ -0,0 +1,206 @@
+package org.stzverev.cardcostapi.service.cardinfoprovider.cache;
+
+import org.stzverev.cardcostapi.service.cardinfoprovider.CountryCodes;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Index of countries learned for 6-digit BINs, used to answer longer IINs without an upstream call.
+ * <p>
+ * Card info providers mostly know countries per 6-digit BIN, so every 8-digit IIN under a BIN usually has the
+ * country of the BIN. Upstream answers are generalized to the 6-digit prefix of the IIN: once
+ * {@code confirmations} answers under a prefix agree, any IIN under it is answered by the index. An answer
+ * for an exact 6-digit IIN is authoritative and confirms the prefix at once. When answers under a prefix
+ * disagree, a more specific entry exists and the prefix is marked as ambiguous, so its IINs are resolved
+ * one by one until the mark expires. Exact entries are always looked up before the index, so they win.
+ * <p>
+ * The index is a two-level trie of the first three and the next three digits. Pages of the second level are
+ * allocated on the first write under them, so the memory follows the number of distinct BINs seen. A slot is
+ * a single long holding the expiration in epoch seconds, the number of confirmations and the packed country,
+ * updated with compare-and-set.
+ */
+public class IINPrefixIndex {
+
+    static final int PREFIX_LENGTH = 6;
+
+    private static final int PAGE_SIZE = 1000;
+
+    private static final long EMPTY = 0L;
+
+    private static final int AMBIGUOUS = 0xFFFF;
+
+    private static final int MAX_CONFIRMATIONS = 0xFF;
+
+    private final boolean enabled;
+
+    private final long ttlSeconds;
+
+    private final int confirmations;
+
+    private final AtomicReferenceArray<AtomicLongArray> pages;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder conflicts = new LongAdder();
+
+    /**
+     * Creates an index.
+     *
+     * @param ttl           time to live of a learned prefix
+     * @param confirmations number of agreeing answers needed before a prefix answers IINs under it
+     */
+    public IINPrefixIndex(final Duration ttl, final int confirmations) {
+        if (ttl.toSeconds() <= 0) {
+            throw new IllegalArgumentException("Time to live of IIN prefix index must be at least a second");
+        }
+        if (confirmations < 1 || confirmations > MAX_CONFIRMATIONS) {
+            throw new IllegalArgumentException("Confirmations of IIN prefix index must be in range [1, "
+                    + MAX_CONFIRMATIONS + "]");
+        }
+        this.enabled = true;
+        this.ttlSeconds = ttl.toSeconds();
+        this.confirmations = confirmations;
+        this.pages = new AtomicReferenceArray<>(PAGE_SIZE);
+    }
+
+    private IINPrefixIndex() {
+        this.enabled = false;
+        this.ttlSeconds = 0;
+        this.confirmations = MAX_CONFIRMATIONS;
+        this.pages = new AtomicReferenceArray<>(0);
+    }
+
+    /**
+     * @return an index that never learns anything and always misses
+     */
+    public static IINPrefixIndex disabled() {
+        return new IINPrefixIndex();
+    }
+
+    /**
+     * Returns the country of the 6-digit BIN of the IIN.
+     *
+     * @param iin       IIN of at least 6 digits
+     * @param nowMillis current time in epoch milliseconds
+     * @return ISO2 country code or null if the prefix is unknown, not confirmed yet, ambiguous or expired
+     */
+    public String find(final String iin, final long nowMillis) {
+        if (!enabled) {
+            return null;
+        }
+        final int prefix = prefixOf(iin);
+        final AtomicLongArray page = prefix < 0 ? null : pages.get(prefix / PAGE_SIZE);
+        final long slot = page == null ? EMPTY : page.get(prefix % PAGE_SIZE);
+        if (!isLive(slot, nowMillis / 1000) || country(slot) == AMBIGUOUS || count(slot) < confirmations) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return CountryCodes.decode((short) country(slot));
+    }
+
+    /**
+     * Generalizes an upstream answer to the 6-digit BIN of the IIN.
+     *
+     * @param iin       the IIN the answer is for
+     * @param country   ISO2 country code of the answer, invalid codes are ignored
+     * @param nowMillis current time in epoch milliseconds
+     */
+    public void learn(final String iin, final String country, final long nowMillis) {
+        final short code = CountryCodes.encode(country);
+        final int prefix = prefixOf(iin);
+        if (!enabled || code == CountryCodes.UNKNOWN || prefix < 0) {
+            return;
+        }
+        final AtomicLongArray page = page(prefix / PAGE_SIZE);
+        final int index = prefix % PAGE_SIZE;
+        final long nowSeconds = nowMillis / 1000;
+        final long expiresAt = nowSeconds + ttlSeconds;
+        final boolean authoritative = iin.length() == PREFIX_LENGTH;
+        while (true) {
+            final long slot = page.get(index);
+            final long updated;
+            if (!isLive(slot, nowSeconds)) {
+                updated = slot(expiresAt, authoritative ? MAX_CONFIRMATIONS : 1, code);
+            } else if (country(slot) == AMBIGUOUS) {
+                return;
+            } else if (country(slot) == code) {
+                updated = slot(expiresAt, authoritative ? MAX_CONFIRMATIONS
+                        : Math.min(count(slot) + 1, MAX_CONFIRMATIONS), code);
+            } else {
+                updated = slot(expiresAt, 0, AMBIGUOUS);
+            }
+            if (page.compareAndSet(index, slot, updated)) {
+                if (country(updated) == AMBIGUOUS) {
+                    conflicts.increment();
+                }
+                return;
+            }
+        }
+    }
+
+    private AtomicLongArray page(final int index) {
+        final AtomicLongArray page = pages.get(index);
+        if (page != null) {
+            return page;
+        }
+        pages.compareAndSet(index, null, new AtomicLongArray(PAGE_SIZE));
+        return pages.get(index);
+    }
+
+    /**
+     * @return the first 6 digits of the IIN as a number or -1 if the IIN is too short or has non digit characters
+     */
+    private static int prefixOf(final String iin) {
+        if (iin == null || iin.length() < PREFIX_LENGTH) {
+            return -1;
+        }
+        int prefix = 0;
+        for (int i = 0; i < PREFIX_LENGTH; i++) {
+            final char digit = iin.charAt(i);
+            if (digit < '0' || digit > '9') {
+                return -1;
+            }
+            prefix = prefix * 10 + (digit - '0');
+        }
+        return prefix;
+    }
+
+    private static long slot(final long expiresAt, final int count, final int country) {
+        return expiresAt << 32 | (long) count << 16 | country;
+    }
+
+    private static boolean isLive(final long slot, final long nowSeconds) {
+        return slot != EMPTY && (slot >>> 32) > nowSeconds;
+    }
+
+    private static int count(final long slot) {
+        return (int) (slot >>> 16) & MAX_CONFIRMATIONS;
+    }
+
+    private static int country(final long slot) {
+        return (int) slot & 0xFFFF;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long conflictCount() {
+        return conflicts.sum();
+    }
+
+}
@@ -0,0 +1,61 @@
+package org.stzverev.cardcostapi.service.cardinfoprovider.cache;
+
+import lombok.RequiredArgsConstructor;
+import org.stzverev.cardcostapi.domain.entity.IINCacheEntity;
+import org.stzverev.cardcostapi.service.cardinfoprovider.IINExtractor;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * IIN cache store on an {@link IINLocalCache}, replacing Redis while it is unavailable. Entries expire with their
+ * expiration in the store, at most after the time to live of the local cache. Negative entries are not kept, and
+ * entries are served without a soft expiration, so they are not refreshed while Redis is unavailable.
+ */
+@RequiredArgsConstructor
+public class LocalIINCacheStore implements IINCacheStore {
+
+    private final IINLocalCache cache;
+
+    private final IINExtractor iinExtractor;
+
+    @Override
+    public Mono<IINCacheEntity> get(final String iin) {
+        return Mono.fromSupplier(() -> find(iin));
+    }
+
+    @Override
+    public Mono<List<IINCacheEntity>> multiGet(final List<String> iins) {
+        return Mono.fromSupplier(() -> {
+            final List<IINCacheEntity> found = new ArrayList<>(iins.size());
+            for (final String iin : iins) {
+                found.add(find(iin));
+            }
+            return found;
+        });
+    }
+
+    @Override
+    public Mono<Integer> writeAll(final List<IINCacheWrite> writes) {
+        return Mono.fromSupplier(() -> {
+            putAll(writes);
+            return writes.size();
+        });
+    }
+
+    /**
+     * Keeps the entries written to Redis, so the store is warm when Redis becomes unavailable.
+     */
+    void putAll(final List<IINCacheWrite> writes) {
+        for (final IINCacheWrite write : writes) {
+            cache.put(iinExtractor.getIinKey(write.iin()), write.entity().issuingCountry(), write.ttl());
+        }
+    }
+
+    private IINCacheEntity find(final String iin) {
+        final String country = cache.get(iinExtractor.getIinKey(iin));
+        return country == null ? null : new IINCacheEntity(iin, country, null);
+    }
+
+}
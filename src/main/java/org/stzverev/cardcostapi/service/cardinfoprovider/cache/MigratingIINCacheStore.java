@@ -0,0 +1,57 @@
+package org.stzverev.cardcostapi.service.cardinfoprovider.cache;
+
+import lombok.RequiredArgsConstructor;
+import org.stzverev.cardcostapi.domain.entity.IINCacheEntity;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Dual-read store used while moving the cache to a new layout. Entries are written to the target store only,
+ * reads fall back to the source store for entries missing in the target. Once the hard expiration of entries
+ * has passed since the switch, the source store is empty and the target store can be used on its own.
+ */
+@RequiredArgsConstructor
+public class MigratingIINCacheStore implements IINCacheStore {
+
+    private final IINCacheStore target;
+
+    private final IINCacheStore source;
+
+    @Override
+    public Mono<IINCacheEntity> get(final String iin) {
+        return target.get(iin)
+                .switchIfEmpty(Mono.defer(() -> source.get(iin)));
+    }
+
+    @Override
+    public Mono<List<IINCacheEntity>> multiGet(final List<String> iins) {
+        return target.multiGet(iins)
+                .flatMap(entities -> {
+                    final List<Integer> missing = new ArrayList<>();
+                    for (int i = 0; i < entities.size(); i++) {
+                        if (entities.get(i) == null) {
+                            missing.add(i);
+                        }
+                    }
+                    if (missing.isEmpty()) {
+                        return Mono.just(entities);
+                    }
+                    return source.multiGet(missing.stream().map(iins::get).toList())
+                            .map(sourceEntities -> {
+                                final List<IINCacheEntity> merged = new ArrayList<>(entities);
+                                for (int i = 0; i < missing.size(); i++) {
+                                    merged.set(missing.get(i), sourceEntities.get(i));
+                                }
+                                return merged;
+                            });
+                });
+    }
+
+    @Override
+    public Mono<Integer> writeAll(final List<IINCacheWrite> writes) {
+        return target.writeAll(writes);
+    }
+
+}
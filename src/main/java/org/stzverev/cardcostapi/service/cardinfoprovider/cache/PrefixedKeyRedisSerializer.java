@@ -0,0 +1,47 @@
+package org.stzverev.cardcostapi.service.cardinfoprovider.cache;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Serializes keys with a constant prefix straight into the key bytes, so callers pass bare keys
+ * and no prefixed string is built per command.
+ */
+public class PrefixedKeyRedisSerializer implements RedisSerializer<String> {
+
+    private final byte[] prefix;
+
+    public PrefixedKeyRedisSerializer(final String prefix) {
+        this.prefix = prefix.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public byte[] serialize(final String key) {
+        if (key == null) {
+            return null;
+        }
+        final byte[] bytes = new byte[prefix.length + key.length()];
+        System.arraycopy(prefix, 0, bytes, 0, prefix.length);
+        for (int i = 0; i < key.length(); i++) {
+            final char c = key.charAt(i);
+            if (c > 0x7F) {
+                return (new String(prefix, StandardCharsets.UTF_8) + key).getBytes(StandardCharsets.UTF_8);
+            }
+            bytes[prefix.length + i] = (byte) c;
+        }
+        return bytes;
+    }
+
+    @Override
+    public String deserialize(final byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        if (bytes.length < prefix.length) {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+        return new String(bytes, prefix.length, bytes.length - prefix.length, StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,116 @@
+package org.stzverev.cardcostapi.service.cardinfoprovider.cache;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.ReactiveRedisOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.stzverev.cardcostapi.domain.entity.IINCacheEntity;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hash-bucketed layout: entries are grouped into Redis hashes {@code iin-cache-h-<first 6 digits>} with the rest
+ * of the IIN as the field and the {@link IINCacheCodec binary entry} as the value. A bucket holds at most
+ * a hundred 8-digit IINs, so Redis keeps it in the compact listpack encoding, and the IIN is never repeated
+ * in the value. Hash fields don't expire on their own before Redis 7.4, so the expiration is kept in the value
+ * and the bucket expires with its longest living entry.
+ */
+@RequiredArgsConstructor
+public class RedisHashIINCacheStore implements IINCacheStore {
+
+    /**
+     * Prefix of bucket keys, added by the key serializer of the operations
+     */
+    public static final String REDIS_PREFIX = "iin-cache-h-";
+
+    static final int BUCKET_LENGTH = 6;
+
+    private static final RedisScript<Long> WRITE_SCRIPT = createScript();
+
+    /**
+     * Key serializer adds {@link #REDIS_PREFIX}, hash fields are strings and values are raw bytes.
+     */
+    private final ReactiveRedisOperations<String, byte[]> redisOperationsIINCacheHash;
+
+    @Override
+    public Mono<IINCacheEntity> get(final String iin) {
+        return redisOperationsIINCacheHash.<String, byte[]>opsForHash().get(bucket(iin), field(iin))
+                .mapNotNull(value -> IINCacheCodec.decode(iin, value, System.currentTimeMillis()));
+    }
+
+    /**
+     * IINs are grouped by bucket and every bucket is read with one HMGET, the commands are pipelined.
+     */
+    @Override
+    public Mono<List<IINCacheEntity>> multiGet(final List<String> iins) {
+        final Map<String, List<Integer>> positions = new LinkedHashMap<>();
+        for (int i = 0; i < iins.size(); i++) {
+            positions.computeIfAbsent(bucket(iins.get(i)), bucket -> new ArrayList<>()).add(i);
+        }
+        final IINCacheEntity[] entities = new IINCacheEntity[iins.size()];
+        return Flux.fromIterable(positions.entrySet())
+                .flatMap(bucket -> redisOperationsIINCacheHash.<String, byte[]>opsForHash()
+                        .multiGet(bucket.getKey(), bucket.getValue().stream()
+                                .map(position -> field(iins.get(position)))
+                                .toList())
+                        .doOnNext(values -> {
+                            final long now = System.currentTimeMillis();
+                            for (int i = 0; i < values.size(); i++) {
+                                final int position = bucket.getValue().get(i);
+                                entities[position] = IINCacheCodec.decode(iins.get(position), values.get(i), now);
+                            }
+                        }))
+                .then(Mono.fromSupplier(() -> Arrays.asList(entities)));
+    }
+
+    /**
+     * All entries are written by one script, so the batch takes a single round trip.
+     */
+    @Override
+    public Mono<Integer> writeAll(final List<IINCacheWrite> writes) {
+        final long now = System.currentTimeMillis();
+        final List<String> keys = new ArrayList<>(writes.size());
+        final List<byte[]> args = new ArrayList<>(writes.size() * 3);
+        for (final IINCacheWrite write : writes) {
+            final byte[] value = IINCacheCodec.encode(write.entity(), now + write.ttl().toMillis());
+            if (value == null) {
+                continue;
+            }
+            keys.add(bucket(write.iin()));
+            args.add(field(write.iin()).getBytes(StandardCharsets.US_ASCII));
+            args.add(value);
+            args.add(String.valueOf(write.ttl().toMillis()).getBytes(StandardCharsets.US_ASCII));
+        }
+        if (keys.isEmpty()) {
+            return Mono.just(0);
+        }
+        return redisOperationsIINCacheHash.execute(WRITE_SCRIPT, keys, args)
+                .next()
+                .map(Long::intValue);
+    }
+
+    static String bucket(final String iin) {
+        return iin.substring(0, BUCKET_LENGTH);
+    }
+
+    static String field(final String iin) {
+        return iin.substring(BUCKET_LENGTH);
+    }
+
+    private static RedisScript<Long> createScript() {
+        final DefaultRedisScript<Long> script = new DefaultRedisScript<>();
+        script.setScriptSource(new ResourceScriptSource(new ClassPathResource("scripts/iin-cache-hset.lua")));
+        script.setResultType(Long.class);
+        return script;
+    }
+
+}
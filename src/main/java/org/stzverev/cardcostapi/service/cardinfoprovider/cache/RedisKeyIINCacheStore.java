@@ -0,0 +1,58 @@
+package org.stzverev.cardcostapi.service.cardinfoprovider.cache;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.redis.connection.ReactiveStringCommands.SetCommand;
+import org.springframework.data.redis.core.ReactiveRedisOperations;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializationContext.SerializationPair;
+import org.stzverev.cardcostapi.domain.entity.IINCacheEntity;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Key per IIN layout: every entry is a separate Redis key {@code iin-cache-<iin>} holding the JSON entry
+ * and expiring with it. Simple to inspect, but the per-key overhead of Redis dominates its memory usage.
+ */
+@RequiredArgsConstructor
+public class RedisKeyIINCacheStore implements IINCacheStore {
+
+    /**
+     * Prefix of Redis keys, added by the key serializer of the operations
+     */
+    public static final String REDIS_PREFIX = "iin-cache-";
+
+    /**
+     * Key serializer adds {@link #REDIS_PREFIX}, so the operations are called with bare IINs.
+     */
+    private final ReactiveRedisOperations<String, IINCacheEntity> redisOperationsIINCache;
+
+    @Override
+    public Mono<IINCacheEntity> get(final String iin) {
+        return redisOperationsIINCache.opsForValue().get(iin);
+    }
+
+    @Override
+    public Mono<List<IINCacheEntity>> multiGet(final List<String> iins) {
+        return redisOperationsIINCache.opsForValue().multiGet(iins);
+    }
+
+    /**
+     * Redis has no multi-key SET with expiry, so entries are written by SET commands pipelined over one connection.
+     */
+    @Override
+    public Mono<Integer> writeAll(final List<IINCacheWrite> writes) {
+        final SerializationPair<String> keys = redisOperationsIINCache.getSerializationContext()
+                .getKeySerializationPair();
+        final SerializationPair<IINCacheEntity> values = redisOperationsIINCache.getSerializationContext()
+                .getValueSerializationPair();
+        return redisOperationsIINCache.execute(connection -> connection.stringCommands()
+                        .set(Flux.fromIterable(writes)
+                                .map(write -> SetCommand.set(keys.write(write.iin()))
+                                        .value(values.write(write.entity()))
+                                        .expiring(Expiration.from(write.ttl())))))
+                .reduce(0, (written, response) -> Boolean.TRUE.equals(response.getOutput()) ? written + 1 : written);
+    }
+
+}
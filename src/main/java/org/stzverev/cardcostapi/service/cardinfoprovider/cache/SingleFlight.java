@@ -0,0 +1,78 @@
+package org.stzverev.cardcostapi.service.cardinfoprovider.cache;
+
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Deduplicates concurrent calls by key. While a call for a key is in flight, every other caller
+ * with the same key subscribes to the same shared {@link Mono} instead of starting a new call.
+ * The key is released as soon as the shared call terminates, so results are never kept longer than the call itself.
+ * The call is cancelled and its key released once every caller has cancelled.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of call results
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, Mono<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder executions = new LongAdder();
+
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * Executes the call or joins the one which is already in flight for the key.
+     *
+     * @param key  the key of the call
+     * @param call supplier of the call, invoked only when there is no call in flight for the key
+     * @return a Mono shared between all concurrent callers for the key
+     */
+    public Mono<V> execute(final K key, final Supplier<Mono<V>> call) {
+        return Mono.defer(() -> {
+            final AtomicReference<Mono<V>> created = new AtomicReference<>();
+            final Mono<V> shared = inFlight.computeIfAbsent(key, k -> {
+                final Mono<V> mono = call.get()
+                        .doFinally(signal -> inFlight.remove(k, created.get()))
+                        .flux()
+                        .replay(1)
+                        .refCount()
+                        .singleOrEmpty();
+                created.set(mono);
+                return mono;
+            });
+            if (shared == created.get()) {
+                executions.increment();
+            } else {
+                coalesced.increment();
+            }
+            return shared;
+        });
+    }
+
+    /**
+     * @return number of calls which were actually executed
+     */
+    public long executionCount() {
+        return executions.sum();
+    }
+
+    /**
+     * @return number of calls which joined a call already in flight
+     */
+    public long coalescedCount() {
+        return coalesced.sum();
+    }
+
+    /**
+     * @return number of calls in flight at the moment
+     */
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+}
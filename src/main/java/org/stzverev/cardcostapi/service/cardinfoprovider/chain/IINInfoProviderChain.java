@@ -0,0 +1,243 @@
+package org.stzverev.cardcostapi.service.cardinfoprovider.chain;
+
+import lombok.extern.slf4j.Slf4j;
+import org.stzverev.cardcostapi.exceptions.CardInfoIsNotFoundException;
+import org.stzverev.cardcostapi.service.cardinfoprovider.IINInfo;
+import org.stzverev.cardcostapi.service.cardinfoprovider.IINInfoProvider;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Signal;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Represents an implementation of the {@link IINInfoProvider} interface that resolves card information by
+ * a list of providers, so a single slow or failing provider doesn't decide the latency of lookups.
+ * <p>
+ * Every lookup tries the providers by their score, the observed latency of successful calls plus a cost
+ * of the observed error rate, divided by the weight of the provider. Providers with the same score are tried in
+ * the configured order. The error rate is forgotten over time, so a failed provider is tried again once the others
+ * are worse. A provider error, including an exhausted quota and an open circuit breaker, passes the lookup to the
+ * next provider, while an unknown IIN is the answer. With a hedge delay, the next provider is called as well when
+ * the provider hasn't answered in time, and the first answer wins.
+ */
+@Slf4j
+public class IINInfoProviderChain implements IINInfoProvider {
+
+    /**
+     * Weight of the last call in the observed latency and error rate.
+     */
+    private static final double DECAY = 0.2;
+
+    /**
+     * Cost of a failed call in the score, as if it took this long.
+     */
+    private static final double FAILURE_COST_NANOS = Duration.ofSeconds(1).toNanos();
+
+    /**
+     * A provider of the chain.
+     *
+     * @param name     name of the provider, used in metrics
+     * @param provider the provider
+     * @param weight   a provider with a larger weight is preferred at the same latency and error rate
+     */
+    public record Member(String name, IINInfoProvider provider, int weight) {
+    }
+
+    private final RoutedProvider[] providers;
+
+    private final Duration hedgeDelay;
+
+    private final IINProviderChainMetrics metrics;
+
+    /**
+     * Creates a provider chain.
+     *
+     * @param members       providers in the order they are tried while there are no observations
+     * @param hedgeDelay    time after which the next provider is called as well, null for no hedging
+     * @param errorHalfLife time after which half of the observed error rate of a provider is forgotten
+     * @param metrics       metrics
+     */
+    public IINInfoProviderChain(final List<Member> members, final Duration hedgeDelay, final Duration errorHalfLife,
+                                final IINProviderChainMetrics metrics) {
+        if (members.isEmpty()) {
+            throw new IllegalArgumentException("Provider chain needs at least one provider");
+        }
+        final HashSet<String> names = new HashSet<>();
+        for (Member member : members) {
+            if (member.weight() <= 0 || !names.add(member.name())) {
+                throw new IllegalArgumentException("Providers of the chain need unique names and positive weights: "
+                        + member.name());
+            }
+        }
+        this.providers = members.stream()
+                .map(member -> new RoutedProvider(member, errorHalfLife.toNanos()))
+                .toArray(RoutedProvider[]::new);
+        this.hedgeDelay = hedgeDelay;
+        this.metrics = metrics;
+        for (RoutedProvider provider : providers) {
+            metrics.bind(provider);
+        }
+    }
+
+    /**
+     * Retrieves card information based on the card number.
+     *
+     * @param cardNumber The card number.
+     * @return A Mono containing the card information, or the error of the last provider if all of them failed.
+     */
+    @Override
+    public Mono<IINInfo> getCardInfoByNumber(final String cardNumber) {
+        return Mono.defer(() -> resolve(route(), 0, cardNumber));
+    }
+
+    private Mono<IINInfo> resolve(final RoutedProvider[] ordered, final int index, final String cardNumber) {
+        final RoutedProvider provider = ordered[index];
+        final Mono<IINInfo> call = provider.call(cardNumber);
+        if (index + 1 == ordered.length) {
+            return call;
+        }
+        final AtomicBoolean nextCalled = new AtomicBoolean();
+        final Mono<IINInfo> next = Mono.defer(() -> {
+            nextCalled.set(true);
+            return resolve(ordered, index + 1, cardNumber);
+        }).cache();
+        final Mono<IINInfo> failover = call.onErrorResume(IINInfoProviderChain::isFailover, error -> {
+            metrics.failover(provider.name());
+            log.debug("IIN provider {} failed, the next one is called: {}", provider.name(), error.toString());
+            return next;
+        });
+        if (hedgeDelay == null) {
+            return failover;
+        }
+        // The failover always ends with the answer of the chain, the hedge only brings an answer earlier
+        final Mono<Signal<IINInfo>> hedge = Mono.delay(hedgeDelay)
+                .filter(ignore -> !nextCalled.get())
+                .flatMap(ignore -> {
+                    metrics.hedged(provider.name());
+                    return next;
+                })
+                .materialize()
+                .filter(Signal::hasValue);
+        return Mono.firstWithValue(failover.materialize(), hedge).dematerialize();
+    }
+
+    /**
+     * Orders the providers by their scores, providers with the same score keep the configured order.
+     */
+    private RoutedProvider[] route() {
+        final long now = System.nanoTime();
+        final RoutedProvider[] ordered = providers.clone();
+        final double[] scores = new double[ordered.length];
+        for (int i = 0; i < ordered.length; i++) {
+            scores[i] = ordered[i].score(now);
+        }
+        for (int i = 1; i < ordered.length; i++) {
+            final RoutedProvider provider = ordered[i];
+            final double score = scores[i];
+            int j = i - 1;
+            while (j >= 0 && scores[j] > score) {
+                ordered[j + 1] = ordered[j];
+                scores[j + 1] = scores[j];
+                j--;
+            }
+            ordered[j + 1] = provider;
+            scores[j + 1] = score;
+        }
+        return ordered;
+    }
+
+    /**
+     * An unknown IIN is an answer of the provider, other providers are not asked for it.
+     */
+    private static boolean isFailover(final Throwable throwable) {
+        return !(throwable instanceof CardInfoIsNotFoundException) && !(throwable instanceof IllegalArgumentException);
+    }
+
+    /**
+     * A provider with its observed latency and error rate.
+     */
+    static final class RoutedProvider {
+
+        private final String name;
+
+        private final IINInfoProvider provider;
+
+        private final int weight;
+
+        private final long errorHalfLifeNanos;
+
+        private double latencyNanos;
+
+        private double errorRate;
+
+        private long lastCall;
+
+        private RoutedProvider(final Member member, final long errorHalfLifeNanos) {
+            this.name = member.name();
+            this.provider = member.provider();
+            this.weight = member.weight();
+            this.errorHalfLifeNanos = errorHalfLifeNanos;
+        }
+
+        Mono<IINInfo> call(final String cardNumber) {
+            return Mono.defer(() -> {
+                final long start = System.nanoTime();
+                return provider.getCardInfoByNumber(cardNumber)
+                        .doOnSuccess(ignore -> record(start, false))
+                        .doOnError(error -> record(start, isFailover(error)))
+                        .doOnCancel(() -> recordCancelled(start));
+            });
+        }
+
+        private synchronized void record(final long start, final boolean failed) {
+            final long now = System.nanoTime();
+            errorRate = errorRate(now) * (1 - DECAY) + (failed ? DECAY : 0);
+            lastCall = now;
+            if (!failed) {
+                observeLatency(now - start);
+            }
+        }
+
+        /**
+         * Records a call cancelled because another provider answered first or the lookup was cancelled. Its latency
+         * is at least the time until the cancellation, so the observed latency is raised to it but never lowered,
+         * and a hung provider loses its rank. The error rate is kept, a cancelled call is neither a success nor
+         * a failure.
+         */
+        private synchronized void recordCancelled(final long start) {
+            final long elapsed = System.nanoTime() - start;
+            if (elapsed > latencyNanos) {
+                observeLatency(elapsed);
+            }
+        }
+
+        private void observeLatency(final long latency) {
+            latencyNanos = latencyNanos == 0 ? latency : latencyNanos + DECAY * (latency - latencyNanos);
+        }
+
+        synchronized double score(final long now) {
+            return (latencyNanos + FAILURE_COST_NANOS * errorRate(now)) / weight;
+        }
+
+        private double errorRate(final long now) {
+            return errorRate == 0 ? 0 : errorRate * Math.pow(0.5, (double) (now - lastCall) / errorHalfLifeNanos);
+        }
+
+        String name() {
+            return name;
+        }
+
+        synchronized double latencySeconds() {
+            return latencyNanos / 1e9;
+        }
+
+        synchronized double errorRate() {
+            return errorRate(System.nanoTime());
+        }
+
+    }
+
+}
@@ -0,0 +1,54 @@
+package org.stzverev.cardcostapi.service.cardinfoprovider.chain;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Metrics of {@link IINInfoProviderChain}: failovers and hedged calls by the provider which failed or was slow,
+ * and the observed latency and error rate the providers are routed by.
+ */
+public class IINProviderChainMetrics {
+
+    private final MeterRegistry registry;
+
+    private final Map<String, Counter> failovers = new ConcurrentHashMap<>();
+
+    private final Map<String, Counter> hedges = new ConcurrentHashMap<>();
+
+    public IINProviderChainMetrics(final MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    void bind(final IINInfoProviderChain.RoutedProvider provider) {
+        Gauge.builder("iin.provider.latency", provider, IINInfoProviderChain.RoutedProvider::latencySeconds)
+                .description("Observed latency of successful and cancelled calls of the IIN provider")
+                .baseUnit("seconds")
+                .tag("provider", provider.name())
+                .register(registry);
+        Gauge.builder("iin.provider.error.rate", provider, IINInfoProviderChain.RoutedProvider::errorRate)
+                .description("Observed error rate of the IIN provider")
+                .tag("provider", provider.name())
+                .register(registry);
+        failovers.put(provider.name(), Counter.builder("iin.provider.failovers")
+                .description("Lookups passed to the next IIN provider because the provider failed")
+                .tag("provider", provider.name())
+                .register(registry));
+        hedges.put(provider.name(), Counter.builder("iin.provider.hedges")
+                .description("Lookups sent to the next IIN provider as well because the provider was slow")
+                .tag("provider", provider.name())
+                .register(registry));
+    }
+
+    void failover(final String provider) {
+        failovers.get(provider).increment();
+    }
+
+    void hedged(final String provider) {
+        hedges.get(provider).increment();
+    }
+
+}
@@ -0,0 +1,234 @@
+package org.stzverev.cardcostapi.service.circuitbreaker;
+
+import lombok.extern.slf4j.Slf4j;
+import org.stzverev.cardcostapi.exceptions.CircuitBreakerOpenException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Stops calls to a failing provider, so callers fail fast instead of waiting for timeouts and retries.
+ * <p>
+ * While closed, outcomes of the last {@code slidingWindowSize} calls are kept. Once there are at least
+ * {@code minimumCalls} of them and the share of failed or slow calls reaches its threshold, the breaker opens
+ * and rejects calls with {@link CircuitBreakerOpenException} for {@code openDuration}. Then it's half-open and lets
+ * {@code halfOpenProbes} calls through: it closes once all of them succeed in time and opens again on the
+ * first failed or slow one. Outcomes of calls started before the last transition are ignored.
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    /**
+     * @see #getState()
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private static final byte SUCCESS = 0;
+
+    private static final byte FAILURE = 1;
+
+    private static final byte SLOW = 2;
+
+    private static final long REJECTED = -1;
+
+    private final String name;
+
+    private final Settings settings;
+
+    private final LongSupplier nanoClock;
+
+    private final byte[] window;
+
+    private final LongAdder rejections = new LongAdder();
+
+    private State state = State.CLOSED;
+
+    /**
+     * Number of the current state, incremented on every transition.
+     */
+    private long generation;
+
+    private int windowIndex;
+
+    private int windowCalls;
+
+    private int windowFailures;
+
+    private int windowSlowCalls;
+
+    private long openedAt;
+
+    private int probesInFlight;
+
+    private int probeSuccesses;
+
+    /**
+     * Thresholds of a circuit breaker.
+     *
+     * @param enabled               whether calls are ever rejected
+     * @param slidingWindowSize     number of the last calls the rates are computed over
+     * @param minimumCalls          number of calls in the window before the breaker can open
+     * @param failureRateThreshold  share of failed calls opening the breaker, from 0 to 1
+     * @param slowCallThreshold     calls taking longer are slow
+     * @param slowCallRateThreshold share of slow calls opening the breaker, from 0 to 1
+     * @param openDuration          time the breaker stays open before it lets probes through
+     * @param halfOpenProbes        number of successful probes closing the breaker
+     */
+    public record Settings(boolean enabled, int slidingWindowSize, int minimumCalls, double failureRateThreshold,
+                           Duration slowCallThreshold, double slowCallRateThreshold, Duration openDuration,
+                           int halfOpenProbes) {
+
+        public Settings {
+            if (slidingWindowSize <= 0 || minimumCalls <= 0 || minimumCalls > slidingWindowSize
+                    || halfOpenProbes <= 0) {
+                throw new IllegalArgumentException("Circuit breaker needs a positive window, minimum calls not larger"
+                        + " than the window and positive number of probes");
+            }
+        }
+
+    }
+
+    public CircuitBreaker(final String name, final Settings settings) {
+        this(name, settings, System::nanoTime);
+    }
+
+    CircuitBreaker(final String name, final Settings settings, final LongSupplier nanoClock) {
+        this.name = name;
+        this.settings = settings;
+        this.nanoClock = nanoClock;
+        this.window = new byte[settings.slidingWindowSize()];
+    }
+
+    /**
+     * Makes the call if the breaker lets it through and records its outcome.
+     *
+     * @param call      the call, subscribed only if it's let through
+     * @param isFailure tells errors of the provider from expected errors, which count as successful calls
+     * @return A Mono with the result of the call, or failing with {@link CircuitBreakerOpenException}
+     */
+    public <T> Mono<T> execute(final Mono<T> call, final Predicate<Throwable> isFailure) {
+        if (!settings.enabled()) {
+            return call;
+        }
+        return Mono.defer(() -> {
+            final long permit = tryAcquire();
+            if (permit == REJECTED) {
+                rejections.increment();
+                return Mono.error(new CircuitBreakerOpenException(retryAfter(),
+                        "{} is unavailable, circuit breaker is open", name));
+            }
+            final long start = nanoClock.getAsLong();
+            return call
+                    .doOnSuccess(ignore -> record(permit, start, false))
+                    .doOnError(error -> record(permit, start, isFailure.test(error)))
+                    .doOnCancel(() -> release(permit));
+        });
+    }
+
+    private synchronized long tryAcquire() {
+        if (state == State.OPEN) {
+            if (nanoClock.getAsLong() - openedAt < settings.openDuration().toNanos()) {
+                return REJECTED;
+            }
+            transition(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesInFlight + probeSuccesses >= settings.halfOpenProbes()) {
+                return REJECTED;
+            }
+            probesInFlight++;
+        }
+        return generation;
+    }
+
+    private synchronized void record(final long permit, final long start, final boolean failed) {
+        if (permit != generation) {
+            return;
+        }
+        final boolean slow = nanoClock.getAsLong() - start >= settings.slowCallThreshold().toNanos();
+        if (state == State.HALF_OPEN) {
+            probesInFlight--;
+            if (failed || slow) {
+                transition(State.OPEN);
+            } else if (++probeSuccesses >= settings.halfOpenProbes()) {
+                transition(State.CLOSED);
+            }
+            return;
+        }
+        if (windowCalls == window.length) {
+            final byte evicted = window[windowIndex];
+            windowFailures -= evicted == FAILURE ? 1 : 0;
+            windowSlowCalls -= evicted == SLOW ? 1 : 0;
+        } else {
+            windowCalls++;
+        }
+        final byte outcome = failed ? FAILURE : slow ? SLOW : SUCCESS;
+        window[windowIndex] = outcome;
+        windowIndex = (windowIndex + 1) % window.length;
+        windowFailures += outcome == FAILURE ? 1 : 0;
+        windowSlowCalls += outcome == SLOW ? 1 : 0;
+        if (windowCalls >= settings.minimumCalls()
+                && (windowFailures >= settings.failureRateThreshold() * windowCalls
+                || windowSlowCalls >= settings.slowCallRateThreshold() * windowCalls)) {
+            log.warn("{} calls failed: {}, slow: {} of last {}", name, windowFailures, windowSlowCalls, windowCalls);
+            transition(State.OPEN);
+        }
+    }
+
+    /**
+     * Releases the permit of a cancelled call without recording an outcome.
+     */
+    private synchronized void release(final long permit) {
+        if (permit == generation && state == State.HALF_OPEN) {
+            probesInFlight--;
+        }
+    }
+
+    private void transition(final State newState) {
+        if (newState == State.OPEN) {
+            log.warn("{} circuit breaker is open for {}", name, settings.openDuration());
+        } else {
+            log.info("{} circuit breaker is {}", name, newState);
+        }
+        state = newState;
+        generation++;
+        probesInFlight = 0;
+        probeSuccesses = 0;
+        if (newState == State.OPEN) {
+            openedAt = nanoClock.getAsLong();
+        }
+        if (newState == State.CLOSED) {
+            windowIndex = 0;
+            windowCalls = 0;
+            windowFailures = 0;
+            windowSlowCalls = 0;
+        }
+    }
+
+    private synchronized Duration retryAfter() {
+        if (state != State.OPEN) {
+            return Duration.ZERO;
+        }
+        return Duration.ofNanos(Math.max(0, settings.openDuration().toNanos() - (nanoClock.getAsLong() - openedAt)));
+    }
+
+    /**
+     * @return state of the breaker, an open breaker whose open duration has passed is half-open once it's called
+     */
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * @return number of calls rejected because the breaker is open
+     */
+    public long rejectionCount() {
+        return rejections.sum();
+    }
+
+}
@@ -0,0 +1,168 @@
+package org.stzverev.cardcostapi.service.countrycost;
+
+import org.stzverev.cardcostapi.domain.entity.CurrencyCostEntity;
+import org.stzverev.cardcostapi.service.cardinfoprovider.CountryCodes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable snapshot of the clearing costs. Costs are stored in an array indexed by the packed ISO2 code
+ * (see {@link CountryCodes}), the slot {@link CountryCodes#UNKNOWN} holds the common cost configured for
+ * the empty country. Updates produce a new table, so a snapshot can be read without any synchronization.
+ * <p>
+ * The {@link #getETag() ETag} is a fingerprint of the costs, so nodes holding the same costs answer with the same
+ * ETag regardless of the order of changes and restarts.
+ */
+public final class CountryCostTable {
+
+    /**
+     * Marks a slot without configured cost.
+     */
+    public static final long NO_COST = Long.MIN_VALUE;
+
+    private static final int DEFAULT_SLOT = CountryCodes.UNKNOWN;
+
+    private static final int NO_SLOT = -1;
+
+    public static final CountryCostTable EMPTY = new CountryCostTable(newCosts());
+
+    private final long[] costs;
+
+    private final String eTag;
+
+    private CountryCostTable(final long[] costs) {
+        this.costs = costs;
+        this.eTag = "\"" + Long.toHexString(fingerprint(costs)) + "\"";
+    }
+
+    /**
+     * Builds a table from the stored cost entities. Entities with a country which is neither
+     * an ISO2 code nor an empty string are skipped.
+     *
+     * @param entities the cost entities
+     * @return a new table
+     */
+    public static CountryCostTable of(final Iterable<CurrencyCostEntity> entities) {
+        final long[] costs = newCosts();
+        for (final CurrencyCostEntity entity : entities) {
+            final int slot = slot(entity.getIssuingCountry());
+            if (slot != NO_SLOT) {
+                costs[slot] = entity.getCost();
+            }
+        }
+        return new CountryCostTable(costs);
+    }
+
+    /**
+     * Returns the table to replace this one after a full reload.
+     *
+     * @param reloaded the reloaded table
+     * @return this table if the costs are the same, otherwise the reloaded table
+     */
+    public CountryCostTable replaceWith(final CountryCostTable reloaded) {
+        return Arrays.equals(costs, reloaded.costs) ? this : reloaded;
+    }
+
+    /**
+     * Returns the cost configured exactly for the country.
+     *
+     * @param country ISO2 code or empty string for the common cost
+     * @return the cost or {@link #NO_COST}
+     */
+    public long getCost(final String country) {
+        final int slot = slot(country);
+        return slot == NO_SLOT ? NO_COST : costs[slot];
+    }
+
+    /**
+     * @return the common cost configured for not specified countries or {@link #NO_COST}
+     */
+    public long getDefaultCost() {
+        return costs[DEFAULT_SLOT];
+    }
+
+    /**
+     * Returns a copy of the table with the cost set for the country.
+     *
+     * @param country ISO2 code or empty string for the common cost
+     * @param cost    the clearing cost
+     * @return a new table, or this table if the country can not be stored
+     */
+    public CountryCostTable with(final String country, final long cost) {
+        final int slot = slot(country);
+        if (slot == NO_SLOT || costs[slot] == cost) {
+            return this;
+        }
+        final long[] copy = costs.clone();
+        copy[slot] = cost;
+        return new CountryCostTable(copy);
+    }
+
+    /**
+     * Returns a copy of the table without the cost of the country.
+     *
+     * @param country ISO2 code or empty string for the common cost
+     * @return a new table, or this table if there is no cost for the country
+     */
+    public CountryCostTable without(final String country) {
+        final int slot = slot(country);
+        if (slot == NO_SLOT || costs[slot] == NO_COST) {
+            return this;
+        }
+        final long[] copy = costs.clone();
+        copy[slot] = NO_COST;
+        return new CountryCostTable(copy);
+    }
+
+    /**
+     * @return all costs, the common cost first with the empty country, then by country code
+     */
+    public List<CurrencyCostEntity> toEntities() {
+        final List<CurrencyCostEntity> entities = new ArrayList<>();
+        for (int slot = 0; slot < costs.length; slot++) {
+            if (costs[slot] != NO_COST) {
+                entities.add(CurrencyCostEntity.builder()
+                        .issuingCountry(slot == DEFAULT_SLOT ? "" : CountryCodes.decode((short) slot))
+                        .cost(costs[slot])
+                        .build());
+            }
+        }
+        return entities;
+    }
+
+    /**
+     * @return strong ETag of the costs, quoted, equal for tables with equal costs
+     */
+    public String getETag() {
+        return eTag;
+    }
+
+    private static long fingerprint(final long[] costs) {
+        long hash = 0xcbf29ce484222325L;
+        for (final long cost : costs) {
+            hash = (hash ^ cost) * 0x100000001b3L;
+            hash ^= hash >>> 29;
+        }
+        return hash;
+    }
+
+    private static int slot(final String country) {
+        if (country == null) {
+            return NO_SLOT;
+        }
+        if (country.isEmpty()) {
+            return DEFAULT_SLOT;
+        }
+        final short code = CountryCodes.encode(country);
+        return code == CountryCodes.UNKNOWN ? NO_SLOT : code;
+    }
+
+    private static long[] newCosts() {
+        final long[] costs = new long[CountryCodes.SIZE];
+        Arrays.fill(costs, NO_COST);
+        return costs;
+    }
+
+}
@@ -0,0 +1,206 @@
+package org.stzverev.cardcostapi.service.countrycost;
+
+import com.mongodb.client.model.changestream.OperationType;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.stzverev.cardcostapi.configuration.properties.CountryCostTableConfig;
+import org.stzverev.cardcostapi.domain.entity.CurrencyCostEntity;
+import org.stzverev.cardcostapi.domain.repository.CurrencyCostRepository;
+import org.stzverev.cardcostapi.service.CardCostMetrics;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * Keeps an in-memory {@link CountryCostTable} of the currencyCost collection.
+ * <p>
+ * The table is fully loaded on start, then kept up to date by the change stream of the collection
+ * and by local writes. A periodic full reload repairs the table if change events were missed,
+ * e.g. while the change stream was reconnecting or when Mongo doesn't run as a replica set. A reload is installed
+ * only if the table didn't change while it was read, otherwise a local write made in the meantime would be lost
+ * until the next reload, so the reload is repeated.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CountryCostTableProvider {
+
+    private static final Duration MIN_BACKOFF = Duration.ofSeconds(1);
+
+    private static final Duration MAX_BACKOFF = Duration.ofMinutes(1);
+
+    private static final int MAX_RELOAD_ATTEMPTS = 3;
+
+    private final CurrencyCostRepository costRepository;
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    private final CountryCostTableConfig config;
+
+    private final CardCostMetrics metrics;
+
+    private final AtomicReference<CountryCostTable> table = new AtomicReference<>();
+
+    private final Sinks.Empty<Void> loaded = Sinks.empty();
+
+    private final Disposable.Composite subscriptions = Disposables.composite();
+
+    @PostConstruct
+    void init() {
+        final Duration period = Duration.of(config.getPeriod(), config.getTimeUnit().toChronoUnit());
+        subscriptions.add(reload()
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, MIN_BACKOFF).maxBackoff(MAX_BACKOFF)
+                        .doBeforeRetry(signal -> log.warn("Error loading country cost table, retrying",
+                                signal.failure())))
+                .thenMany(Flux.interval(period, period)
+                        .concatMap(tick -> reload()
+                                .onErrorResume(error -> {
+                                    log.warn("Error reloading country cost table", error);
+                                    return Mono.empty();
+                                })))
+                .subscribe());
+        if (config.isChangeStreamEnabled()) {
+            subscriptions.add(listenToChanges());
+        }
+    }
+
+    @PreDestroy
+    void destroy() {
+        subscriptions.dispose();
+    }
+
+    /**
+     * Returns the current table. Until the first load is finished the returned Mono waits for it, but not longer
+     * than the configured load timeout.
+     *
+     * @return a Mono emitting the current table, or failing with a 503 {@link ResponseStatusException} if the
+     * table is not loaded in time
+     */
+    public Mono<CountryCostTable> getTable() {
+        final CountryCostTable current = table.get();
+        if (current != null) {
+            return Mono.just(current);
+        }
+        return loaded.asMono()
+                .timeout(config.getLoadTimeout(), Mono.error(() -> new ResponseStatusException(
+                        HttpStatus.SERVICE_UNAVAILABLE, "Country cost table is not loaded yet")))
+                .then(Mono.fromSupplier(table::get));
+    }
+
+    /**
+     * @return a Mono completing once the table is loaded for the first time
+     */
+    public Mono<Void> ready() {
+        return loaded.asMono();
+    }
+
+    /**
+     * Applies a local write to the table without waiting for the change stream.
+     *
+     * @param country ISO2 code or empty string for the common cost
+     * @param cost    the new cost
+     */
+    public void put(final String country, final long cost) {
+        update(current -> current.with(country, cost));
+    }
+
+    /**
+     * Applies a local delete to the table without waiting for the change stream.
+     *
+     * @param country ISO2 code or empty string for the common cost
+     */
+    public void remove(final String country) {
+        update(current -> current.without(country));
+    }
+
+    private void update(final UnaryOperator<CountryCostTable> operator) {
+        table.updateAndGet(current -> current == null ? null : operator.apply(current));
+    }
+
+    /**
+     * Reads the whole collection and installs it as the table. The read is repeated if the table changed while
+     * it was running, after {@value #MAX_RELOAD_ATTEMPTS} attempts the reload is left to the next period.
+     *
+     * @return a Mono emitting the installed table or completing empty if the table kept changing
+     */
+    Mono<CountryCostTable> reload() {
+        return Mono.defer(() -> {
+                    final CountryCostTable started = table.get();
+                    return metrics.timeCostTableReload(costRepository.findAll()
+                                    .collectList()
+                                    .map(CountryCostTable::of))
+                            .flatMap(reloaded -> install(started, reloaded));
+                })
+                .repeatWhenEmpty(attempts -> attempts.take(MAX_RELOAD_ATTEMPTS - 1))
+                .doOnSuccess(installed -> {
+                    if (installed == null) {
+                        log.info("Country cost table kept changing during {} reloads, leaving it to the next one",
+                                MAX_RELOAD_ATTEMPTS);
+                    }
+                });
+    }
+
+    private Mono<CountryCostTable> install(final CountryCostTable started, final CountryCostTable reloaded) {
+        final CountryCostTable next = started == null ? reloaded : started.replaceWith(reloaded);
+        if (!table.compareAndSet(started, next)) {
+            log.debug("Country cost table changed during the reload, reloading again");
+            return Mono.empty();
+        }
+        loaded.tryEmitEmpty();
+        log.debug("Country cost table is reloaded");
+        return Mono.just(next);
+    }
+
+    private Disposable listenToChanges() {
+        return mongoTemplate.changeStream(mongoTemplate.getCollectionName(CurrencyCostEntity.class),
+                        ChangeStreamOptions.builder().returnFullDocumentOnUpdate().build(), CurrencyCostEntity.class)
+                .doOnSubscribe(subscription -> log.info("Listening to country cost changes"))
+                .doOnNext(this::applyChange)
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, MIN_BACKOFF).maxBackoff(MAX_BACKOFF)
+                        .doBeforeRetry(signal -> log.warn("Country cost change stream failed, reconnecting: {}",
+                                signal.failure().getMessage())))
+                .subscribe();
+    }
+
+    private void applyChange(final ChangeStreamEvent<CurrencyCostEntity> event) {
+        final OperationType operationType = event.getOperationType();
+        if (operationType == null) {
+            return;
+        }
+        switch (operationType) {
+            case INSERT, UPDATE, REPLACE -> {
+                final CurrencyCostEntity entity = event.getBody();
+                if (entity != null) {
+                    put(entity.getIssuingCountry(), entity.getCost());
+                }
+            }
+            case DELETE -> {
+                final BsonDocument documentKey = event.getRaw() == null ? null : event.getRaw().getDocumentKey();
+                final BsonValue id = documentKey == null ? null : documentKey.get("_id");
+                if (id != null && id.isString()) {
+                    remove(id.asString().getValue());
+                }
+            }
+            default -> reload().subscribe(ignore -> { },
+                    error -> log.warn("Error reloading country cost table after {}", operationType, error));
+        }
+    }
+
+}
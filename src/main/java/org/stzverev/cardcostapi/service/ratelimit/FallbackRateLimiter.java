@@ -0,0 +1,31 @@
+package org.stzverev.cardcostapi.service.ratelimit;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.stzverev.cardcostapi.service.redis.RedisAvailability;
+import reactor.core.publisher.Mono;
+
+/**
+ * Acquires permits from the quota shared through Redis and from the share of the quota of this instance when
+ * Redis is unavailable, so an unavailable Redis neither fails calls nor lets the instance exceed its share.
+ */
+@RequiredArgsConstructor
+@Slf4j
+public class FallbackRateLimiter implements RateLimiter {
+
+    private final RateLimiter shared;
+
+    private final RateLimiter local;
+
+    private final RedisAvailability availability;
+
+    @Override
+    public Mono<RateLimitResult> tryAcquire() {
+        return availability.execute(shared.tryAcquire())
+                .onErrorResume(error -> {
+                    log.debug("Permit is acquired from the local share of the quota: {}", error.toString());
+                    return local.tryAcquire();
+                });
+    }
+
+}
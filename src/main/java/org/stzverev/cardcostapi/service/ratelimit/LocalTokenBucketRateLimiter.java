@@ -0,0 +1,65 @@
+package org.stzverev.cardcostapi.service.ratelimit;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket rate limiter of a single instance, the in-memory counterpart of {@link RedisTokenBucketRateLimiter}
+ * with the same refill. Used for the share of a quota taken by an instance while Redis is unavailable.
+ */
+public class LocalTokenBucketRateLimiter implements RateLimiter {
+
+    private final double capacity;
+
+    /**
+     * Permits added per nanosecond.
+     */
+    private final double rate;
+
+    private final LongSupplier nanoClock;
+
+    private double tokens;
+
+    private long refilledAt;
+
+    /**
+     * Creates a rate limiter with a full bucket.
+     *
+     * @param capacity     maximum number of permits
+     * @param refillPeriod time to refill the empty bucket
+     */
+    public LocalTokenBucketRateLimiter(final long capacity, final Duration refillPeriod) {
+        this(capacity, refillPeriod, System::nanoTime);
+    }
+
+    LocalTokenBucketRateLimiter(final long capacity, final Duration refillPeriod, final LongSupplier nanoClock) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity of rate limiter must be positive");
+        }
+        this.capacity = capacity;
+        this.rate = (double) capacity / refillPeriod.toNanos();
+        this.nanoClock = nanoClock;
+        this.tokens = capacity;
+        this.refilledAt = nanoClock.getAsLong();
+    }
+
+    @Override
+    public Mono<RateLimitResult> tryAcquire() {
+        return Mono.fromSupplier(this::acquire);
+    }
+
+    private synchronized RateLimitResult acquire() {
+        final long now = nanoClock.getAsLong();
+        tokens = Math.min(capacity, tokens + Math.max(0, now - refilledAt) * rate);
+        refilledAt = now;
+        final boolean allowed = tokens >= 1;
+        if (allowed) {
+            tokens -= 1;
+        }
+        final long wait = (long) Math.ceil(Math.max(0, 1 - tokens) / rate);
+        return new RateLimitResult(allowed, (long) Math.floor(tokens), Duration.ofNanos(wait));
+    }
+
+}
@@ -0,0 +1,13 @@
+package org.stzverev.cardcostapi.service.ratelimit;
+
+import java.time.Duration;
+
+/**
+ * Result of a permit acquisition.
+ *
+ * @param allowed    whether the permit is acquired
+ * @param remaining  number of permits left after the acquisition
+ * @param retryAfter time until the next permit is available
+ */
+public record RateLimitResult(boolean allowed, long remaining, Duration retryAfter) {
+}
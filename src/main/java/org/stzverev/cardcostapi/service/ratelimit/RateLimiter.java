@@ -0,0 +1,36 @@
+package org.stzverev.cardcostapi.service.ratelimit;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Limits the number of calls to a rate limited resource.
+ */
+public interface RateLimiter {
+
+    /**
+     * Tries to acquire a single permit.
+     *
+     * @return A Mono emitting the result of the acquisition.
+     */
+    Mono<RateLimitResult> tryAcquire();
+
+    /**
+     * @return A rate limiter which always grants the permit, for resources without a quota.
+     */
+    static RateLimiter unlimited() {
+        final Mono<RateLimitResult> allowed = Mono.just(new RateLimitResult(true, Long.MAX_VALUE, Duration.ZERO));
+        return () -> allowed;
+    }
+
+    /**
+     * @param retryAfter time after which the caller may try again
+     * @return A rate limiter which never grants the permit.
+     */
+    static RateLimiter denied(final Duration retryAfter) {
+        final Mono<RateLimitResult> denied = Mono.just(new RateLimitResult(false, 0, retryAfter));
+        return () -> denied;
+    }
+
+}
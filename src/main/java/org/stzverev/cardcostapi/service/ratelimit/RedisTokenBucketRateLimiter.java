@@ -0,0 +1,67 @@
+package org.stzverev.cardcostapi.service.ratelimit;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.ReactiveRedisOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Token bucket rate limiter shared between all nodes through Redis. The bucket holds up to capacity permits
+ * and is refilled continuously, so the empty bucket is full again after the refill period. Refill and
+ * acquisition are done by a single Lua script, which takes one round trip and is atomic, and the script uses
+ * the Redis clock, so clocks of the nodes don't matter.
+ */
+public class RedisTokenBucketRateLimiter implements RateLimiter {
+
+    private static final RedisScript<List<Long>> SCRIPT = createScript();
+
+    private final ReactiveRedisOperations<String, String> redisOperations;
+
+    private final List<String> keys;
+
+    private final List<String> args;
+
+    /**
+     * Creates a rate limiter.
+     *
+     * @param redisOperations Redis operations
+     * @param key             key of the bucket
+     * @param capacity        maximum number of permits
+     * @param refillPeriod    time to refill the empty bucket
+     */
+    public RedisTokenBucketRateLimiter(final ReactiveRedisOperations<String, String> redisOperations,
+                                       final String key, final long capacity, final Duration refillPeriod) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity of rate limiter must be positive");
+        }
+        this.redisOperations = redisOperations;
+        this.keys = List.of(key);
+        this.args = List.of(String.valueOf(capacity), String.valueOf(refillPeriod.toMillis()), "1");
+    }
+
+    @Override
+    public Mono<RateLimitResult> tryAcquire() {
+        return redisOperations.execute(SCRIPT, keys, args)
+                .reduceWith(ArrayList<Long>::new, (result, values) -> {
+                    result.addAll(values);
+                    return result;
+                })
+                .map(result -> new RateLimitResult(result.get(0) == 1L, result.get(1),
+                        Duration.ofMillis(result.get(2))));
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static RedisScript<List<Long>> createScript() {
+        final DefaultRedisScript script = new DefaultRedisScript<>();
+        script.setScriptSource(new ResourceScriptSource(new ClassPathResource("scripts/token-bucket.lua")));
+        script.setResultType(List.class);
+        return script;
+    }
+
+}
@@ -0,0 +1,263 @@
+package org.stzverev.cardcostapi.service.redis;
+
+import io.lettuce.core.RedisCommandTimeoutException;
+import io.lettuce.core.RedisConnectionException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.stzverev.cardcostapi.exceptions.RedisUnavailableException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Tracks whether Redis is usable, so Redis incidents cost callers a fallback instead of a connection timeout.
+ * <p>
+ * Redis commands run through {@link #execute(Mono)} fail after the command timeout. Only timeouts and connection
+ * failures count as failed commands, other errors, e.g. an error reply or an entry which can't be deserialized,
+ * mean Redis answered. After the failure threshold of consecutive failed commands the mode is {@link Mode#DEGRADED}: commands fail at once with
+ * {@link RedisUnavailableException} without being sent, and callers answer from their local fallbacks. Redis is
+ * pinged every probe interval meanwhile and the mode is {@link Mode#NORMAL} again after the recovery probes
+ * consecutive successful pings.
+ * <p>
+ * Bulk commands run through {@link #executeBulk(Mono)}, e.g. batches of cache writes, fail after a separate bulk
+ * command timeout and don't count as failures or successes, so a slow batch doesn't switch a healthy Redis to the
+ * degraded mode.
+ */
+@Slf4j
+public class RedisAvailability {
+
+    /**
+     * @see #getMode()
+     */
+    public enum Mode {
+        NORMAL, DEGRADED
+    }
+
+    private final boolean enabled;
+
+    private final Supplier<Mono<?>> ping;
+
+    private final Duration commandTimeout;
+
+    private final Duration bulkCommandTimeout;
+
+    private final int failureThreshold;
+
+    private final Duration probeInterval;
+
+    private final int recoveryProbes;
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+    private final LongAdder rejections = new LongAdder();
+
+    private final LongAdder transitions = new LongAdder();
+
+    private volatile Mode mode = Mode.NORMAL;
+
+    private int probeSuccesses;
+
+    private Disposable probes;
+
+    /**
+     * @param ping             command checking that Redis answers
+     * @param commandTimeout     commands taking longer fail
+     * @param bulkCommandTimeout bulk commands taking longer fail
+     * @param failureThreshold number of consecutive failed commands switching to the degraded mode
+     * @param probeInterval    time between pings in the degraded mode
+     * @param recoveryProbes   number of consecutive successful pings switching back to the normal mode
+     */
+    public RedisAvailability(final Supplier<Mono<?>> ping, final Duration commandTimeout,
+                             final Duration bulkCommandTimeout, final int failureThreshold,
+                             final Duration probeInterval, final int recoveryProbes) {
+        if (failureThreshold < 1 || recoveryProbes < 1) {
+            throw new IllegalArgumentException("Redis availability needs a positive failure threshold and number of "
+                    + "recovery probes");
+        }
+        this.enabled = true;
+        this.ping = ping;
+        this.commandTimeout = commandTimeout;
+        this.bulkCommandTimeout = bulkCommandTimeout;
+        this.failureThreshold = failureThreshold;
+        this.probeInterval = probeInterval;
+        this.recoveryProbes = recoveryProbes;
+    }
+
+    private RedisAvailability() {
+        this.enabled = false;
+        this.ping = Mono::empty;
+        this.commandTimeout = null;
+        this.bulkCommandTimeout = null;
+        this.failureThreshold = 1;
+        this.probeInterval = null;
+        this.recoveryProbes = 1;
+    }
+
+    /**
+     * @return availability which runs commands as they are and never switches to the degraded mode
+     */
+    public static RedisAvailability disabled() {
+        return new RedisAvailability();
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        probes = Flux.interval(probeInterval)
+                .filter(tick -> mode == Mode.DEGRADED)
+                .concatMap(tick -> probe())
+                .subscribe();
+    }
+
+    @PreDestroy
+    void stop() {
+        if (probes != null) {
+            probes.dispose();
+        }
+    }
+
+    /**
+     * Runs a Redis command, or fails it at once in the degraded mode.
+     *
+     * @param command the command
+     * @return the command failing after the command timeout, or a Mono failing with
+     * {@link RedisUnavailableException} in the degraded mode
+     */
+    public <T> Mono<T> execute(final Mono<T> command) {
+        if (!enabled) {
+            return command;
+        }
+        return Mono.defer(() -> {
+            if (mode == Mode.DEGRADED) {
+                return rejected();
+            }
+            return command.timeout(commandTimeout)
+                    .doOnSuccess(ignore -> succeeded())
+                    .doOnError(this::failed);
+        });
+    }
+
+    /**
+     * Runs a bulk Redis command, or fails it at once in the degraded mode. The outcome of the command doesn't
+     * switch between the modes.
+     *
+     * @param command the command
+     * @return the command failing after the bulk command timeout, or a Mono failing with
+     * {@link RedisUnavailableException} in the degraded mode
+     */
+    public <T> Mono<T> executeBulk(final Mono<T> command) {
+        if (!enabled) {
+            return command;
+        }
+        return Mono.defer(() -> mode == Mode.DEGRADED ? rejected() : command.timeout(bulkCommandTimeout));
+    }
+
+    /**
+     * Pings Redis once and switches back to the normal mode after enough successful pings.
+     */
+    Mono<Void> probe() {
+        return Mono.defer(ping)
+                .timeout(commandTimeout)
+                .then(Mono.just(true))
+                .onErrorResume(error -> {
+                    log.debug("Redis ping failed: {}", error.toString());
+                    return Mono.just(false);
+                })
+                .doOnNext(this::probed)
+                .then();
+    }
+
+    private <T> Mono<T> rejected() {
+        rejections.increment();
+        return Mono.error(new RedisUnavailableException("Redis is unavailable, the command is not sent"));
+    }
+
+    private void succeeded() {
+        if (consecutiveFailures.get() != 0) {
+            consecutiveFailures.set(0);
+        }
+    }
+
+    private void failed(final Throwable error) {
+        if (!isConnectionFailure(error)) {
+            succeeded();
+            return;
+        }
+        if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            degrade(error);
+        }
+    }
+
+    private static boolean isConnectionFailure(final Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TimeoutException || cause instanceof RedisCommandTimeoutException
+                    || cause instanceof RedisConnectionException || cause instanceof RedisConnectionFailureException
+                    || cause instanceof IOException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private synchronized void degrade(final Throwable error) {
+        if (mode == Mode.DEGRADED) {
+            return;
+        }
+        probeSuccesses = 0;
+        mode = Mode.DEGRADED;
+        transitions.increment();
+        log.warn("Redis is unavailable after {} failed commands, switching to the degraded mode: {}",
+                consecutiveFailures.get(), error.toString());
+    }
+
+    private synchronized void probed(final boolean success) {
+        if (mode == Mode.NORMAL) {
+            return;
+        }
+        probeSuccesses = success ? probeSuccesses + 1 : 0;
+        if (probeSuccesses >= recoveryProbes) {
+            consecutiveFailures.set(0);
+            mode = Mode.NORMAL;
+            transitions.increment();
+            log.info("Redis is available again, switching back to the normal mode");
+        }
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public boolean isDegraded() {
+        return mode == Mode.DEGRADED;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return number of commands failed without being sent in the degraded mode
+     */
+    public long rejectionCount() {
+        return rejections.sum();
+    }
+
+    /**
+     * @return number of switches between the modes
+     */
+    public long transitionCount() {
+        return transitions.sum();
+    }
+
+}
@@ -0,0 +1,27 @@
+package org.stzverev.cardcostapi.service.redis;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports the mode of {@link RedisAvailability} as the {@code redisAvailability} health component. The degraded
+ * mode is still up, the instance serves requests from its local fallbacks, so it is not taken out of service.
+ */
+@Component
+@RequiredArgsConstructor
+public class RedisAvailabilityHealthIndicator implements HealthIndicator {
+
+    private final RedisAvailability availability;
+
+    @Override
+    public Health health() {
+        return Health.up()
+                .withDetail("mode", availability.getMode())
+                .withDetail("enabled", availability.isEnabled())
+                .withDetail("rejectedCommands", availability.rejectionCount())
+                .build();
+    }
+
+}
@@ -0,0 +1,25 @@
+package org.stzverev.cardcostapi.service.redis;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Metrics of {@link RedisAvailability}: the current mode, switches between the modes and commands failed without
+ * being sent in the degraded mode.
+ */
+public class RedisAvailabilityMetrics {
+
+    public RedisAvailabilityMetrics(final MeterRegistry registry, final RedisAvailability availability) {
+        Gauge.builder("redis.mode", availability, redis -> redis.getMode().ordinal())
+                .description("Mode of Redis usage: 0 normal, 1 degraded")
+                .register(registry);
+        FunctionCounter.builder("redis.mode.transitions", availability, RedisAvailability::transitionCount)
+                .description("Switches between the normal and the degraded mode")
+                .register(registry);
+        FunctionCounter.builder("redis.degraded.rejections", availability, RedisAvailability::rejectionCount)
+                .description("Redis commands answered by local fallbacks without being sent in the degraded mode")
+                .register(registry);
+    }
+
+}
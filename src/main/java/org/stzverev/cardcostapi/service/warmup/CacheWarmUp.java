@@ -0,0 +1,184 @@
+package org.stzverev.cardcostapi.service.warmup;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.io.Resource;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+import org.stzverev.cardcostapi.configuration.properties.WarmUpConfig;
+import org.stzverev.cardcostapi.service.cardinfoprovider.CountryCodes;
+import org.stzverev.cardcostapi.service.cardinfoprovider.IINInfo;
+import org.stzverev.cardcostapi.service.cardinfoprovider.cache.IINCacheProvider;
+import org.stzverev.cardcostapi.service.countrycost.CountryCostTableProvider;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Warms the node up on startup, so the first wave of traffic after a deploy or a Redis flush doesn't
+ * miss the IIN cache and spend the binlist quota at once.
+ * <p>
+ * IIN to country mappings are read from the configured snapshot file and Mongo collection and written
+ * to the IIN cache in pipelined batches, while the country cost table is loaded. The progress is reported by
+ * {@link WarmUpHealthIndicator}, which is part of the readiness group, so traffic is sent to the node
+ * once it is warm. A failed or timed out warm-up doesn't keep the node out of service, it starts cold instead.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CacheWarmUp {
+
+    /**
+     * @see #getPhase()
+     */
+    public enum Phase {
+        DISABLED, LOADING, READY, FAILED
+    }
+
+    private final WarmUpConfig config;
+
+    private final CountryCostTableProvider countryCostTableProvider;
+
+    private final ObjectProvider<IINCacheProvider> iinCacheProvider;
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    private final AtomicLong loadedIins = new AtomicLong();
+
+    private final AtomicLong skippedIins = new AtomicLong();
+
+    private volatile Phase phase = Phase.DISABLED;
+
+    private volatile String error;
+
+    private Disposable subscription;
+
+    @PostConstruct
+    void start() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        phase = Phase.LOADING;
+        final long start = System.nanoTime();
+        subscription = Mono.when(countryCostTableProvider.ready(), loadIins())
+                .timeout(config.getTimeout())
+                .subscribe(
+                        ignore -> { },
+                        throwable -> {
+                            error = throwable.toString();
+                            phase = Phase.FAILED;
+                            log.warn("Warm-up failed after {} IINs, the node starts cold", loadedIins.get(), throwable);
+                        },
+                        () -> {
+                            phase = Phase.READY;
+                            log.info("Warm-up is finished. IINs loaded: {}, skipped: {}, took: {} ms",
+                                    loadedIins.get(), skippedIins.get(),
+                                    Duration.ofNanos(System.nanoTime() - start).toMillis());
+                        });
+    }
+
+    @PreDestroy
+    void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    private Mono<Void> loadIins() {
+        final IINCacheProvider cacheProvider = iinCacheProvider.getIfAvailable();
+        if (cacheProvider == null) {
+            log.info("IIN cache is disabled, IINs are not warmed up");
+            return Mono.empty();
+        }
+        return Flux.concat(readSnapshot(), readCollection())
+                .buffer(config.getBatchSize())
+                .flatMap(cacheProvider::preload, config.getConcurrency())
+                .doOnNext(loadedIins::addAndGet)
+                .then();
+    }
+
+    private Flux<IINInfo> readSnapshot() {
+        final Resource snapshot = config.getIinSnapshot();
+        if (snapshot == null) {
+            return Flux.empty();
+        }
+        log.info("Warming IIN cache up from {}", snapshot);
+        return Flux.using(
+                        () -> new BufferedReader(new InputStreamReader(snapshot.getInputStream(),
+                                StandardCharsets.UTF_8)),
+                        reader -> Flux.fromStream(reader.lines()),
+                        CacheWarmUp::close)
+                .subscribeOn(Schedulers.boundedElastic())
+                .filter(line -> !line.isEmpty() && Character.isDigit(line.charAt(0)))
+                .mapNotNull(line -> {
+                    final int comma = line.indexOf(',');
+                    return comma < 0 ? skip() : toIINInfo(line.substring(0, comma), line.substring(comma + 1));
+                });
+    }
+
+    private Flux<IINInfo> readCollection() {
+        final String collection = config.getIinCollection();
+        if (collection == null || collection.isBlank()) {
+            return Flux.empty();
+        }
+        log.info("Warming IIN cache up from collection {}", collection);
+        return mongoTemplate.find(new Query(), Document.class, collection)
+                .mapNotNull(document -> document.get("_id") instanceof String iin
+                        && document.get("country") instanceof String country ? toIINInfo(iin, country) : skip());
+    }
+
+    private IINInfo toIINInfo(final String iin, final String country) {
+        final String trimmedIin = iin.trim();
+        final String trimmedCountry = country.trim().toUpperCase(Locale.ROOT);
+        if (trimmedIin.length() < 6 || trimmedIin.length() > 8 || !trimmedIin.chars().allMatch(Character::isDigit)
+                || CountryCodes.encode(trimmedCountry) == CountryCodes.UNKNOWN) {
+            return skip();
+        }
+        return new IINInfo(trimmedIin, trimmedCountry);
+    }
+
+    private IINInfo skip() {
+        skippedIins.incrementAndGet();
+        return null;
+    }
+
+    private static void close(final BufferedReader reader) {
+        try {
+            reader.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    public long getLoadedIins() {
+        return loadedIins.get();
+    }
+
+    public long getSkippedIins() {
+        return skippedIins.get();
+    }
+
+    public String getError() {
+        return error;
+    }
+
+}
@@ -0,0 +1,31 @@
+package org.stzverev.cardcostapi.service.warmup;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports the progress of {@link CacheWarmUp} as the {@code warmUp} health component. It is out of service
+ * while the warm-up is loading, so the readiness group keeps traffic away from a cold node.
+ */
+@Component
+@RequiredArgsConstructor
+public class WarmUpHealthIndicator implements HealthIndicator {
+
+    private final CacheWarmUp warmUp;
+
+    @Override
+    public Health health() {
+        final CacheWarmUp.Phase phase = warmUp.getPhase();
+        final Health.Builder builder = phase == CacheWarmUp.Phase.LOADING ? Health.outOfService() : Health.up();
+        builder.withDetail("phase", phase)
+                .withDetail("loadedIins", warmUp.getLoadedIins())
+                .withDetail("skippedIins", warmUp.getSkippedIins());
+        if (warmUp.getError() != null) {
+            builder.withDetail("error", warmUp.getError());
+        }
+        return builder.build();
+    }
+
+}
@@ -4,14 +4,29 @@ import jakarta.validation.ConstraintValidator;
 import jakarta.validation.ConstraintValidatorContext;
 import org.stzverev.cardcostapi.validator.constraint.CardNumberConstraint;
 
+/**
+ * Accepts card numbers of at least 6 ASCII digits. Validated on every card cost request,
+ * so characters are checked in place instead of matching a regular expression.
+ */
 public class CardNumberValidator implements ConstraintValidator<CardNumberConstraint, String> {
 
+    private static final int MIN_LENGTH = 6;
+
     @Override
     public boolean isValid(final String value, final ConstraintValidatorContext context) {
         if (value == null) {
             return true;
         }
-        return value.matches("\\d{6,}");
+        if (value.length() < MIN_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
     }
 
 }
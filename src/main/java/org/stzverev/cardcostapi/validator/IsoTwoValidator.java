@@ -4,6 +4,9 @@ import jakarta.validation.ConstraintValidator;
 import jakarta.validation.ConstraintValidatorContext;
 import org.stzverev.cardcostapi.validator.constraint.IsoTwoConstraint;
 
+/**
+ * Accepts two upper case latin letters. Characters are checked in place instead of matching a regular expression.
+ */
 public class IsoTwoValidator implements ConstraintValidator<IsoTwoConstraint, String> {
 
     @Override
@@ -11,7 +14,11 @@ public class IsoTwoValidator implements ConstraintValidator<IsoTwoConstraint, St
         if (value == null || value.isEmpty()) {
             return true;
         }
-        return value.matches("^[A-Z]{2}$");
+        return value.length() == 2 && isUpperLatin(value.charAt(0)) && isUpperLatin(value.charAt(1));
+    }
+
+    private static boolean isUpperLatin(final char c) {
+        return c >= 'A' && c <= 'Z';
     }
 
 }
@@ -0,0 +1,90 @@
+package org.stzverev.cardcostapi.web;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.event.Level;
+import org.slf4j.spi.LoggingEventBuilder;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Writes a single structured record per request to the {@value #LOGGER_NAME} logger. The record is a set of
+ * key-value pairs, so it's rendered by the appender and can be parsed by the log pipeline without a pattern.
+ * <p>
+ * Successful requests are sampled, failed requests (status 4xx, 5xx or an error) and requests slower than
+ * the threshold are always written. A sampled record carries the sample rate, so counts can be scaled back.
+ * The logger is expected to be backed by an asynchronous appender, so writing a record doesn't block the
+ * event loop on the I/O.
+ */
+public class AccessLog {
+
+    public static final String LOGGER_NAME = "access-log";
+
+    /**
+     * Exchange attribute with the issuing country of the requested card, written to the record if present.
+     */
+    public static final String COUNTRY_ATTRIBUTE = AccessLog.class.getName() + ".country";
+
+    private final Logger logger;
+
+    private final double sampleRate;
+
+    private final long slowThresholdNanos;
+
+    public AccessLog(final double sampleRate, final Duration slowThreshold) {
+        this(LoggerFactory.getLogger(LOGGER_NAME), sampleRate, slowThreshold);
+    }
+
+    public AccessLog(final Logger logger, final double sampleRate, final Duration slowThreshold) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("Sample rate of access log must be between 0 and 1");
+        }
+        this.logger = logger;
+        this.sampleRate = sampleRate;
+        this.slowThresholdNanos = slowThreshold.toNanos();
+    }
+
+    /**
+     * Writes the record of a request if it is sampled.
+     *
+     * @param method        HTTP method
+     * @param path          request path
+     * @param status        response status, 0 if no status is set
+     * @param durationNanos time taken to handle the request
+     * @param country       issuing country of the requested card, may be null
+     * @param error         error the request failed with, may be null
+     */
+    public void log(final String method, final String path, final int status, final long durationNanos,
+                    final String country, final Throwable error) {
+        final boolean failed = error != null || status >= 400;
+        final boolean slow = durationNanos >= slowThresholdNanos;
+        if (!failed && !slow && !sampled()) {
+            return;
+        }
+        final Level level = error != null || status >= 500 ? Level.WARN : Level.INFO;
+        if (!logger.isEnabledForLevel(level)) {
+            return;
+        }
+        LoggingEventBuilder record = logger.atLevel(level)
+                .addKeyValue("method", method)
+                .addKeyValue("path", path)
+                .addKeyValue("status", status)
+                .addKeyValue("durationMs", durationNanos / 1_000_000);
+        if (country != null) {
+            record = record.addKeyValue("country", country);
+        }
+        if (error != null) {
+            record = record.addKeyValue("error", error.getClass().getSimpleName());
+        }
+        if (!failed && !slow && sampleRate < 1) {
+            record = record.addKeyValue("sampleRate", sampleRate);
+        }
+        record.log();
+    }
+
+    private boolean sampled() {
+        return sampleRate >= 1 || sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+}
@@ -0,0 +1,62 @@
+package org.stzverev.cardcostapi.web;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.stzverev.cardcostapi.configuration.properties.AccessLogConfig;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Writes the {@link AccessLog} record of every request once the request is handled. The filter is the first one
+ * in the chain, so the duration covers all other filters and the handler.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty("app.access-log.enabled")
+public class AccessLogFilter implements WebFilter {
+
+    private final AccessLog accessLog;
+
+    private final List<String> excludedPaths;
+
+    public AccessLogFilter(final AccessLogConfig config) {
+        this.accessLog = new AccessLog(config.getSampleRate(), config.getSlowThreshold());
+        this.excludedPaths = List.copyOf(config.getExcludedPaths());
+    }
+
+    @Override
+    public Mono<Void> filter(final ServerWebExchange exchange, final WebFilterChain chain) {
+        final String path = exchange.getRequest().getPath().value();
+        if (isExcluded(path)) {
+            return chain.filter(exchange);
+        }
+        final long start = System.nanoTime();
+        return chain.filter(exchange)
+                .doOnSuccess(ignore -> log(exchange, path, start, null))
+                .doOnError(error -> log(exchange, path, start, error));
+    }
+
+    private void log(final ServerWebExchange exchange, final String path, final long start, final Throwable error) {
+        final HttpStatusCode statusCode = exchange.getResponse().getStatusCode();
+        final int status = statusCode != null ? statusCode.value() : error != null ? 500 : 200;
+        accessLog.log(exchange.getRequest().getMethod().name(), path, status, System.nanoTime() - start,
+                exchange.getAttribute(AccessLog.COUNTRY_ATTRIBUTE), error);
+    }
+
+    private boolean isExcluded(final String path) {
+        for (String excludedPath : excludedPaths) {
+            if (path.startsWith(excludedPath)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
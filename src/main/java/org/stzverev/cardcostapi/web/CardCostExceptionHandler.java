@@ -1,6 +1,9 @@
 package org.stzverev.cardcostapi.web;
 
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.ResponseEntity;
@@ -9,8 +12,11 @@ import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.support.WebExchangeBindException;
 import org.springframework.web.server.ResponseStatusException;
+import org.stzverev.cardcostapi.exceptions.CardInfoIsNotFoundException;
+import org.stzverev.cardcostapi.exceptions.CircuitBreakerOpenException;
 import org.stzverev.cardcostapi.exceptions.CountryAlreadyExistException;
 import org.stzverev.cardcostapi.exceptions.CountryIsNotFoundException;
+import org.stzverev.cardcostapi.exceptions.QuotaExceededException;
 import org.stzverev.cardcostapi.exceptions.SearchCountryIsNotFoundException;
 import org.stzverev.cardcostapi.exceptions.ThirdPartyException;
 import org.stzverev.cardcostapi.model.CardCostResponseStatus;
@@ -49,6 +55,13 @@ public class CardCostExceptionHandler {
                         HttpStatus.NOT_FOUND.value()));
     }
 
+    @ExceptionHandler(CardInfoIsNotFoundException.class)
+    public ResponseEntity<CardCostResponseStatus> handleCardInfoIsNotFoundException(CardInfoIsNotFoundException ex) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(
+                new CardCostResponseStatus(Status.ERROR, "Card info is not found: " + ex.getIin(),
+                        HttpStatus.NOT_FOUND.value()));
+    }
+
     @ExceptionHandler(WebExchangeBindException.class)
     public ResponseEntity<CardCostResponseStatus> handleMethodArgumentNotValidException(WebExchangeBindException ex) {
         return ResponseEntity.badRequest().body(CardCostResponseStatus.builder()
@@ -59,6 +72,16 @@ public class CardCostExceptionHandler {
                 .build());
     }
 
+    @ExceptionHandler(ConstraintViolationException.class)
+    public ResponseEntity<CardCostResponseStatus> handleConstraintViolationException(ConstraintViolationException ex) {
+        return ResponseEntity.badRequest().body(CardCostResponseStatus.builder()
+                .message("Validation failed")
+                .errors(getErrors(ex))
+                .status(Status.ERROR)
+                .errorCode(HttpStatus.BAD_REQUEST.value())
+                .build());
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<CardCostResponseStatus> handleException(Exception ex) {
         log.error("Unhandled exception: {}", ex.getMessage(), ex);
@@ -79,6 +102,21 @@ public class CardCostExceptionHandler {
         );
     }
 
+    @ExceptionHandler(QuotaExceededException.class)
+    public ResponseEntity<CardCostResponseStatus> handleQuotaExceededException(QuotaExceededException ex) {
+        return ResponseEntity.status(getCodeBasedOnThirdParty(ex))
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, ex.getRetryAfter().toSeconds())))
+                .body(new CardCostResponseStatus(Status.ERROR, ex.getMessage(), ex.getCode().value()));
+    }
+
+    @ExceptionHandler(CircuitBreakerOpenException.class)
+    public ResponseEntity<CardCostResponseStatus> handleCircuitBreakerOpenException(CircuitBreakerOpenException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, ex.getRetryAfter().toSeconds())))
+                .body(new CardCostResponseStatus(Status.ERROR, ex.getMessage(),
+                        HttpStatus.SERVICE_UNAVAILABLE.value()));
+    }
+
     @ExceptionHandler(ThirdPartyException.class)
     public ResponseEntity<CardCostResponseStatus> handleThirdPartyException(ThirdPartyException ex) {
         return ResponseEntity.status(getCodeBasedOnThirdParty(ex)).body(
@@ -86,14 +124,46 @@ public class CardCostExceptionHandler {
                         ex.getCode().value()));
     }
 
+    /**
+     * Maps the exception to the same response status as the exception handlers do. Used for per-item errors
+     * of streaming endpoints, where a single failed item must not fail the whole response.
+     *
+     * @param ex the exception
+     * @return the response status
+     */
+    public CardCostResponseStatus getResponseStatus(final Throwable ex) {
+        final ResponseEntity<CardCostResponseStatus> response = switch (ex) {
+            case CountryAlreadyExistException e -> handleCountryAlreadyExistException(e);
+            case CountryIsNotFoundException e -> handleCountryIsNotFoundException(e);
+            case SearchCountryIsNotFoundException e -> handleCountryIsNotFoundException(e);
+            case CardInfoIsNotFoundException e -> handleCardInfoIsNotFoundException(e);
+            case WebExchangeBindException e -> handleMethodArgumentNotValidException(e);
+            case ConstraintViolationException e -> handleConstraintViolationException(e);
+            case ResponseStatusException e -> handleResponseStatusException(e);
+            case QuotaExceededException e -> handleQuotaExceededException(e);
+            case CircuitBreakerOpenException e -> handleCircuitBreakerOpenException(e);
+            case ThirdPartyException e -> handleThirdPartyException(e);
+            case Exception e -> handleException(e);
+            default -> handleException(new IllegalStateException(ex));
+        };
+        return response.getBody();
+    }
+
     private static HttpStatusCode getCodeBasedOnThirdParty(final ThirdPartyException ex) {
         return switch (ex.getCode()) {
             case HttpStatus.TOO_MANY_REQUESTS -> HttpStatus.SERVICE_UNAVAILABLE;
             case HttpStatus.BAD_REQUEST -> HttpStatus.BAD_REQUEST;
+            case HttpStatus.GATEWAY_TIMEOUT -> HttpStatus.GATEWAY_TIMEOUT;
             default -> HttpStatus.BAD_GATEWAY;
         };
     }
 
+    private static Map<String, String> getErrors(final ConstraintViolationException ex) {
+        return ex.getConstraintViolations().stream()
+                .collect(Collectors.toMap(violation -> violation.getPropertyPath().toString(),
+                        ConstraintViolation::getMessage, (first, second) -> first));
+    }
+
     private static Map<String, String> getErrors(final WebExchangeBindException ex) {
         return ex.getBindingResult().getFieldErrors().stream()
                 .collect(Collectors.toMap(FieldError::getField,
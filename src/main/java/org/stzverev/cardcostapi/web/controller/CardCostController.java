@@ -7,17 +7,27 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import org.stzverev.cardcostapi.model.CardCostBatchItem;
 import org.stzverev.cardcostapi.model.CardCostRequest;
 import org.stzverev.cardcostapi.model.CardCostResponse;
 import org.stzverev.cardcostapi.model.CardCostResponseStatus;
 import org.stzverev.cardcostapi.model.CountryCost;
+import org.stzverev.cardcostapi.model.CountryCostUpsertResult;
 import org.stzverev.cardcostapi.service.CardCostService;
+import org.stzverev.cardcostapi.service.countrycost.CountryCostTable;
+import org.stzverev.cardcostapi.web.AccessLog;
+import org.stzverev.cardcostapi.web.CardCostExceptionHandler;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.List;
+import java.util.function.Function;
 
 @RestController
 @RequestMapping("/countryCost")
@@ -26,6 +36,8 @@ public class CardCostController {
 
     private final CardCostService service;
 
+    private final CardCostExceptionHandler exceptionHandler;
+
     @Operation(summary = "Get clearing cost by card number")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Card cost successfully received"),
@@ -35,24 +47,60 @@ public class CardCostController {
                     content = @Content(schema = @Schema(implementation = CardCostResponseStatus.class)))
     })
     @PostMapping("/cardCost")
-    public Mono<CardCostResponse> getCardCost(@RequestBody @Validated CardCostRequest request) {
-        return service.getCardCost(request);
+    public Mono<CardCostResponse> getCardCost(@RequestBody @Validated CardCostRequest request,
+                                              ServerWebExchange exchange) {
+        return service.getCardCost(request)
+                .doOnNext(response -> exchange.getAttributes().put(AccessLog.COUNTRY_ATTRIBUTE, response.country()));
     }
 
-    @Operation(summary = "Get clearing cost information for all configured countries")
+    @Operation(summary = """
+            Get clearing costs for a stream of card numbers. Accepts a JSON array or NDJSON stream of requests and
+             returns results in the request order, an invalid or failed card is reported in its own item""")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Card costs are streamed")
+    })
+    @PostMapping(value = "/cardCost/batch",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+            produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public Flux<CardCostBatchItem> getCardCosts(@RequestBody final Flux<CardCostRequest> requests) {
+        return service.getCardCosts(requests)
+                .map(result -> result.error() == null
+                        ? CardCostBatchItem.success(result.index(), result.response())
+                        : CardCostBatchItem.failure(result.index(), exceptionHandler.getResponseStatus(result.error())));
+    }
+
+    @Operation(summary = """
+            Get clearing cost information for all configured countries. The response has an ETag of the cost table,
+             a request with a matching If-None-Match header is answered with 304""")
     @ApiResponses({
-            @ApiResponse(responseCode = "200")
+            @ApiResponse(responseCode = "200"),
+            @ApiResponse(responseCode = "304", description = "Costs are not modified")
     })
     @GetMapping("/all")
-    public Flux<CountryCost> getAllCosts() {
-        return service.getAllCosts();
+    public Mono<ResponseEntity<List<CountryCost>>> getAllCosts(final ServerWebExchange exchange) {
+        return withETag(exchange, table -> Mono.just(service.getAllCosts(table)));
     }
 
-    @Operation(summary = "Get clearing cost information for provided country")
+    @Operation(summary = """
+            Get clearing cost information for provided country. The response has an ETag of the cost table,
+             a request with a matching If-None-Match header is answered with 304""")
     @GetMapping
-    public Mono<CountryCost> getCostByCountry(@Parameter(description = "ISO2 code of requested country")
-                                                  @RequestParam("country") final String country) {
-        return service.getCostByCountry(country);
+    public Mono<ResponseEntity<CountryCost>> getCostByCountry(
+            @Parameter(description = "ISO2 code of requested country") @RequestParam("country") final String country,
+            final ServerWebExchange exchange) {
+        return withETag(exchange, table -> service.getCostByCountry(table, country));
+    }
+
+    /**
+     * Answers with 304 if the cost table is not modified since the ETag of the request, so polling clients
+     * don't get the same costs serialized again.
+     */
+    private <T> Mono<ResponseEntity<T>> withETag(final ServerWebExchange exchange,
+                                                 final Function<CountryCostTable, Mono<T>> body) {
+        return service.getCostTable()
+                .flatMap(table -> exchange.checkNotModified(table.getETag())
+                        ? Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(table.getETag()).build())
+                        : body.apply(table).map(value -> ResponseEntity.ok().eTag(table.getETag()).body(value)));
     }
 
     @Operation(summary = """
@@ -68,8 +116,14 @@ public class CardCostController {
         return service.addCountryCost(countryCost);
     }
 
+    @Operation(summary = """
+            Add or update clearing costs for several countries in one bulk write. A failed country doesn't stop
+             the others, the outcome of every country is returned in the request order""")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Country clearing costs are written")
+    })
     @PutMapping("/batch")
-    public Mono<Void> addCountryCost(@RequestBody @Validated final List<CountryCost> countryCost) {
+    public Flux<CountryCostUpsertResult> addCountryCost(@RequestBody @Validated final List<CountryCost> countryCost) {
         return service.addCountryCosts(countryCost);
     }
 
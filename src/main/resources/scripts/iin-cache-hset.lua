@@ -0,0 +1,14 @@
+-- Writes IIN cache entries into hash buckets.
+-- KEYS: bucket of every entry
+-- ARGV: field, value and time to live in milliseconds of every entry
+-- The bucket expires together with its longest living entry, expired entries of a live bucket
+-- are ignored by readers and overwritten by the next write of the IIN.
+for i, key in ipairs(KEYS) do
+    local base = (i - 1) * 3
+    local ttl = tonumber(ARGV[base + 3])
+    redis.call('HSET', key, ARGV[base + 1], ARGV[base + 2])
+    if redis.call('PTTL', key) < ttl then
+        redis.call('PEXPIRE', key, ttl)
+    end
+end
+return #KEYS
@@ -0,0 +1,40 @@
+-- Token bucket rate limiter.
+-- KEYS[1] - key of the bucket
+-- ARGV[1] - capacity of the bucket
+-- ARGV[2] - time in milliseconds to refill the empty bucket
+-- ARGV[3] - number of requested permits
+-- Returns {allowed (1 or 0), remaining permits, milliseconds until the requested permits are available}
+if redis.replicate_commands then
+    redis.replicate_commands()
+end
+
+local capacity = tonumber(ARGV[1])
+local refill_period = tonumber(ARGV[2])
+local requested = tonumber(ARGV[3])
+local rate = capacity / refill_period
+
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+local bucket = redis.call('HMGET', KEYS[1], 'tokens', 'timestamp')
+local tokens = tonumber(bucket[1])
+local timestamp = tonumber(bucket[2])
+if tokens == nil or timestamp == nil then
+    tokens = capacity
+    timestamp = now
+end
+
+tokens = math.min(capacity, tokens + math.max(0, now - timestamp) * rate)
+
+local allowed = 0
+if tokens >= requested then
+    tokens = tokens - requested
+    allowed = 1
+end
+
+local wait = math.ceil(math.max(0, requested - tokens) / rate)
+
+redis.call('HSET', KEYS[1], 'tokens', tostring(tokens), 'timestamp', tostring(now))
+redis.call('PEXPIRE', KEYS[1], math.ceil((capacity - tokens) / rate) + 1)
+
+return {allowed, math.floor(tokens), wait}
@@ -0,0 +1,206 @@
+package org.stzverev.cardcostapi.service;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.stzverev.cardcostapi.configuration.properties.CardCostBatchConfig;
+import org.stzverev.cardcostapi.configuration.properties.CountryCostTableConfig;
+import org.stzverev.cardcostapi.configuration.properties.IINInfoCacheConfig;
+import org.stzverev.cardcostapi.domain.entity.CurrencyCostEntity;
+import org.stzverev.cardcostapi.domain.repository.CurrencyCostRepository;
+import org.stzverev.cardcostapi.exceptions.SearchCountryIsNotFoundException;
+import org.stzverev.cardcostapi.model.CardCostRequest;
+import org.stzverev.cardcostapi.model.CardCostResponse;
+import org.stzverev.cardcostapi.service.cardinfoprovider.IINExtractor;
+import org.stzverev.cardcostapi.service.cardinfoprovider.IINInfoProvider;
+import org.stzverev.cardcostapi.service.cardinfoprovider.cache.IINAdaptiveTtl;
+import org.stzverev.cardcostapi.service.cardinfoprovider.cache.IINCacheAnalytics;
+import org.stzverev.cardcostapi.service.cardinfoprovider.cache.IINCacheExpiration;
+import org.stzverev.cardcostapi.service.cardinfoprovider.cache.IINCacheMetrics;
+import org.stzverev.cardcostapi.service.cardinfoprovider.cache.IINCacheProvider;
+import org.stzverev.cardcostapi.service.cardinfoprovider.cache.IINCacheStore;
+import org.stzverev.cardcostapi.service.cardinfoprovider.cache.IINCacheWriter;
+import org.stzverev.cardcostapi.service.cardinfoprovider.cache.IINLocalCache;
+import org.stzverev.cardcostapi.service.cardinfoprovider.cache.IINPrefixIndex;
+import org.stzverev.cardcostapi.service.countrycost.CountryCostTableProvider;
+import org.stzverev.cardcostapi.validator.CardNumberValidator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks the allocation budget of the card cost path when the card is in the local cache,
+ * for both a found cost and a missing one.
+ */
+class CardCostAllocationTest {
+
+    /**
+     * Bytes allocated per card cost request, the path allocates about a quarter of it.
+     */
+    private static final long REQUEST_BUDGET = 4096;
+
+    private static final int WARM_UP = 20_000;
+
+    private static final int ITERATIONS = 20_000;
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static final Logger ROOT_LOGGER = (Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME);
+
+    private static Level rootLevel;
+
+    private final IINExtractor iinExtractor = new IINExtractor();
+
+    private CountryCostTableProvider tableProvider;
+
+    private CardCostService cardCostService;
+
+    private Object lastResult;
+
+    private final Consumer<Object> resultConsumer = result -> lastResult = result;
+
+    @BeforeAll
+    static void setUpLogging() {
+        rootLevel = ROOT_LOGGER.getLevel();
+        ROOT_LOGGER.setLevel(Level.INFO);
+    }
+
+    @AfterAll
+    static void restoreLogging() {
+        ROOT_LOGGER.setLevel(rootLevel);
+    }
+
+    @BeforeEach
+    void setUp() {
+        assumeTrue(THREAD_MX_BEAN.isThreadAllocatedMemorySupported(), "Thread allocated memory is not supported");
+        THREAD_MX_BEAN.setThreadAllocatedMemoryEnabled(true);
+
+        final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final IINInfoProvider binList = cardNumber -> Mono.error(new IllegalStateException("Card is not cached"));
+        final IINLocalCache localCache = new IINLocalCache(1_000, Duration.ofHours(1));
+        final IINCacheStore store = mock(IINCacheStore.class);
+        final IINCacheMetrics cacheMetrics = new IINCacheMetrics(meterRegistry);
+        final IINCacheExpiration expiration = new IINCacheExpiration(Duration.ofMinutes(1), Duration.ofHours(1),
+                Duration.ofMinutes(1), 0.1);
+        final IINCacheProvider cacheProvider = new IINCacheProvider(binList, iinExtractor, expiration,
+                store, localCache, IINPrefixIndex.disabled(), cacheMetrics, new IINCacheWriter(store,
+                new IINInfoCacheConfig.WriteBehindConfig(), cacheMetrics),
+                new IINCacheAnalytics(new IINInfoCacheConfig.AnalyticsConfig()),
+                new IINAdaptiveTtl(Duration.ofDays(7), 4, 32_768));
+        ReflectionTestUtils.invokeMethod(cacheProvider, "init");
+
+        final CurrencyCostRepository costRepository = mock(CurrencyCostRepository.class);
+        when(costRepository.findAll()).thenReturn(Flux.just(
+                CurrencyCostEntity.builder().issuingCountry("DK").cost(15).build()));
+        final CountryCostTableConfig tableConfig = new CountryCostTableConfig();
+        tableConfig.setChangeStreamEnabled(false);
+        final CardCostMetrics metrics = new CardCostMetrics(meterRegistry);
+        tableProvider = new CountryCostTableProvider(costRepository, null, tableConfig, metrics);
+        ReflectionTestUtils.invokeMethod(tableProvider, "init");
+        tableProvider.ready().block(Duration.ofSeconds(5));
+
+        cardCostService = new CardCostService(cacheProvider, costRepository, tableProvider, iinExtractor,
+                new CardCostBatchConfig(), metrics, Validation.buildDefaultValidatorFactory().getValidator());
+        localCache.put(iinExtractor.getIinKey("4571736012345678"), "DK");
+        localCache.put(iinExtractor.getIinKey("5571736012345678"), "US");
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (tableProvider != null) {
+            ReflectionTestUtils.invokeMethod(tableProvider, "destroy");
+        }
+    }
+
+    @Test
+    @DisplayName("Card cost request of a cached card should stay within the allocation budget")
+    void testGetCardCost_shouldStayWithinAllocationBudget() {
+        //GIVEN
+        final CardCostRequest request = new CardCostRequest("4571736012345678");
+
+        //WHEN
+        final long allocated = allocatedPerRequest(request);
+
+        //THEN
+        assertEquals(new CardCostResponse("DK", 15L), lastResult);
+        assertTrue(allocated <= REQUEST_BUDGET,
+                "Allocated " + allocated + " bytes per request, budget is " + REQUEST_BUDGET);
+    }
+
+    @Test
+    @DisplayName("Card cost request of a country without cost should stay within the allocation budget")
+    void testGetCardCost_whenCostIsMissing_shouldStayWithinAllocationBudget() {
+        //GIVEN
+        final CardCostRequest request = new CardCostRequest("5571736012345678");
+
+        //WHEN
+        final long allocated = allocatedPerRequest(request);
+
+        //THEN
+        final SearchCountryIsNotFoundException error = assertInstanceOf(SearchCountryIsNotFoundException.class,
+                lastResult);
+        assertEquals(0, error.getStackTrace().length);
+        assertTrue(allocated <= REQUEST_BUDGET,
+                "Allocated " + allocated + " bytes per request, budget is " + REQUEST_BUDGET);
+    }
+
+    @Test
+    @DisplayName("Card number validation should not allocate")
+    void testCardNumberValidator_shouldNotAllocate() {
+        //GIVEN
+        final CardNumberValidator validator = new CardNumberValidator();
+        final String cardNumber = "4571736012345678";
+        boolean valid = true;
+        for (int i = 0; i < WARM_UP; i++) {
+            valid &= validator.isValid(cardNumber, null);
+        }
+
+        //WHEN
+        final long start = THREAD_MX_BEAN.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < ITERATIONS; i++) {
+            valid &= validator.isValid(cardNumber, null);
+        }
+        final long allocated = (THREAD_MX_BEAN.getCurrentThreadAllocatedBytes() - start) / ITERATIONS;
+
+        //THEN
+        assertTrue(valid);
+        assertEquals(0, allocated);
+    }
+
+    /**
+     * Subscribes without blocking, since the whole path completes on the calling thread when the card
+     * and the cost table are in memory, and {@code block()} would add allocations of its own.
+     */
+    private long allocatedPerRequest(final CardCostRequest request) {
+        for (int i = 0; i < WARM_UP; i++) {
+            cardCostService.getCardCost(request).subscribe(resultConsumer, resultConsumer);
+        }
+        lastResult = null;
+        final long start = THREAD_MX_BEAN.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < ITERATIONS; i++) {
+            cardCostService.getCardCost(request).subscribe(resultConsumer, resultConsumer);
+        }
+        return (THREAD_MX_BEAN.getCurrentThreadAllocatedBytes() - start) / ITERATIONS;
+    }
+
+}
@@ -0,0 +1,54 @@
+package org.stzverev.cardcostapi.service.cardinfoprovider.binrange;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BinRangeIndexTest {
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    @DisplayName("Should find country of the range containing card number")
+    void testFindCountry_shouldReturnRangeCountry() throws IOException {
+        final BinRangeIndex index = BinRangeIndex.load(write("""
+                start,end,country
+                400000,400099,US
+                45717300,45717399,dk
+                5,5,GB
+                """));
+
+        assertEquals(3, index.size());
+        assertEquals("US", index.findCountry("4000001234567890"));
+        assertEquals("US", index.findCountry("400099"));
+        assertEquals("DK", index.findCountry("4571736012345678"));
+        assertEquals("GB", index.findCountry("5555555555554444"));
+        assertNull(index.findCountry("4001001234567890"));
+        assertNull(index.findCountry("3782822463100050"));
+    }
+
+    @Test
+    @DisplayName("Should reject overlapping ranges")
+    void testLoad_shouldRejectOverlappingRanges() throws IOException {
+        final Path path = write("""
+                400000,400099,US
+                400050,400199,DK
+                """);
+
+        assertThrows(IllegalArgumentException.class, () -> BinRangeIndex.load(path));
+    }
+
+    private Path write(final String content) throws IOException {
+        return Files.writeString(directory.resolve("bin-ranges.csv"), content);
+    }
+
+}
@@ -0,0 +1,69 @@
+package org.stzverev.cardcostapi.service.cardinfoprovider.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.stzverev.cardcostapi.service.cardinfoprovider.IINExtractor;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class IINAdaptiveTtlTest {
+
+    private static final Duration TTL = Duration.ofMinutes(10);
+
+    private final IINExtractor iinExtractor = new IINExtractor();
+
+    private final long hotIin = iinExtractor.getIinKey("45717360");
+
+    private final long warmIin = iinExtractor.getIinKey("52000010");
+
+    private final long rareIin = iinExtractor.getIinKey("37000000");
+
+    @Test
+    @DisplayName("Should extend the TTL in proportion to the frequency up to the maximum TTL")
+    void testTtl_shouldExtendFrequentIins() {
+        final IINAdaptiveTtl adaptiveTtl = new IINAdaptiveTtl(Duration.ofHours(1), 4, 1024);
+
+        for (int i = 0; i < 100; i++) {
+            adaptiveTtl.record(hotIin);
+        }
+        for (int i = 0; i < 8; i++) {
+            adaptiveTtl.record(warmIin);
+        }
+        adaptiveTtl.record(rareIin);
+
+        assertEquals(Duration.ofHours(1), adaptiveTtl.ttl(hotIin, TTL));
+        assertEquals(Duration.ofMinutes(20), adaptiveTtl.ttl(warmIin, TTL));
+        assertEquals(TTL, adaptiveTtl.ttl(rareIin, TTL));
+        assertEquals(TTL, adaptiveTtl.ttl(iinExtractor.getIinKey("600000"), TTL));
+    }
+
+    @Test
+    @DisplayName("Should forget frequencies of IINs which are not requested anymore")
+    void testTtl_shouldHalveFrequenciesEverySample() {
+        final IINAdaptiveTtl adaptiveTtl = new IINAdaptiveTtl(Duration.ofHours(1), 4, 64);
+        for (int i = 0; i < 8; i++) {
+            adaptiveTtl.record(warmIin);
+        }
+        assertEquals(Duration.ofMinutes(20), adaptiveTtl.ttl(warmIin, TTL));
+
+        for (int i = 8; i < 64 * 3; i++) {
+            adaptiveTtl.record(hotIin);
+        }
+
+        assertEquals(TTL, adaptiveTtl.ttl(warmIin, TTL));
+    }
+
+    @Test
+    @DisplayName("Disabled policy should keep the TTL")
+    void testTtl_shouldKeepTtlWhenDisabled() {
+        final IINAdaptiveTtl adaptiveTtl = IINAdaptiveTtl.disabled();
+        for (int i = 0; i < 100; i++) {
+            adaptiveTtl.record(hotIin);
+        }
+
+        assertEquals(TTL, adaptiveTtl.ttl(hotIin, TTL));
+    }
+
+}
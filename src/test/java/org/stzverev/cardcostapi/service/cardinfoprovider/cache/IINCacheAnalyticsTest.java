@@ -0,0 +1,101 @@
+package org.stzverev.cardcostapi.service.cardinfoprovider.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.stzverev.cardcostapi.configuration.properties.IINInfoCacheConfig;
+import org.stzverev.cardcostapi.service.cardinfoprovider.IINExtractor;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IINCacheAnalyticsTest {
+
+    private final IINExtractor iinExtractor = new IINExtractor();
+
+    @Test
+    @DisplayName("Should estimate the number of distinct IINs within a few percent")
+    void testDistinctIins_shouldEstimateCardinality() {
+        final IINCacheAnalytics analytics = new IINCacheAnalytics(new IINInfoCacheConfig.AnalyticsConfig());
+
+        for (int repeat = 0; repeat < 3; repeat++) {
+            for (int i = 0; i < 50_000; i++) {
+                analytics.record(iinExtractor.getIinKey(String.valueOf(40_000_000 + i)), true);
+            }
+        }
+
+        final long estimate = analytics.distinctIins();
+        assertTrue(Math.abs(estimate - 50_000) < 2_500, "Estimate: " + estimate);
+    }
+
+    @Test
+    @DisplayName("Should report the most requested IINs in descending order")
+    void testReport_shouldReportTopIins() {
+        final IINInfoCacheConfig.AnalyticsConfig config = new IINInfoCacheConfig.AnalyticsConfig();
+        config.setTopSize(3);
+        final IINCacheAnalytics analytics = new IINCacheAnalytics(config);
+
+        for (int i = 0; i < 10_000; i++) {
+            analytics.record(iinExtractor.getIinKey(String.valueOf(50_000_000 + i)), false);
+            if (i % 2 == 0) {
+                analytics.record(iinExtractor.getIinKey("45717360"), true);
+            }
+            if (i % 4 == 0) {
+                analytics.record(iinExtractor.getIinKey("01234567"), true);
+            }
+            if (i % 8 == 0) {
+                analytics.record(iinExtractor.getIinKey("411111"), true);
+            }
+        }
+
+        final List<IINCacheAnalytics.TopIin> top = analytics.report().topIins();
+        assertEquals(List.of("45717360", "01234567", "411111"), top.stream().map(IINCacheAnalytics.TopIin::iin)
+                .toList());
+        assertTrue(top.get(0).requests() >= 5_000);
+    }
+
+    @Test
+    @DisplayName("Should report hits and misses of every window")
+    void testReport_shouldReportHitRatios() {
+        final IINCacheAnalytics analytics = new IINCacheAnalytics(new IINInfoCacheConfig.AnalyticsConfig());
+
+        for (int i = 0; i < 100; i++) {
+            analytics.record(iinExtractor.getIinKey("45717360"), i % 4 != 0);
+        }
+
+        final IINCacheAnalytics.Report report = analytics.report();
+        assertEquals(List.of("1m", "5m", "15m"), List.copyOf(report.hitRatios().keySet()));
+        assertEquals(new IINCacheAnalytics.HitRatio(75, 25, 0.75), report.hitRatios().get("1m"));
+    }
+
+    @Test
+    @DisplayName("Should drop hits and misses older than the window")
+    void testHitRatioWindow_shouldForgetOldSlots() {
+        final HitRatioWindow window = new HitRatioWindow(Duration.ofSeconds(10), Duration.ofMinutes(1));
+        final long start = -Duration.ofMinutes(5).toNanos();
+
+        window.record(start, true);
+        window.record(start + Duration.ofSeconds(30).toNanos(), false);
+
+        final long later = start + Duration.ofSeconds(65).toNanos();
+        assertEquals(new HitRatioWindow.Counts(1, 1), window.counts(later, Duration.ofMinutes(2)));
+        assertEquals(new HitRatioWindow.Counts(0, 1), window.counts(later, Duration.ofSeconds(40)));
+        assertNull(window.counts(start + Duration.ofMinutes(3).toNanos(), Duration.ofMinutes(1)).ratio());
+    }
+
+    @Test
+    @DisplayName("Disabled analytics should report nothing")
+    void testReport_shouldBeEmptyWhenDisabled() {
+        final IINCacheAnalytics analytics = IINCacheAnalytics.disabled();
+
+        analytics.record(iinExtractor.getIinKey("45717360"), true);
+
+        assertFalse(analytics.report().enabled());
+        assertEquals(0, analytics.distinctIins());
+    }
+
+}
@@ -0,0 +1,96 @@
+package org.stzverev.cardcostapi.service.cardinfoprovider.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.stzverev.cardcostapi.domain.entity.IINCacheEntity;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IINCacheExpirationTest {
+
+    private static final Duration TTL = Duration.ofSeconds(100);
+
+    @Test
+    @DisplayName("Should deviate expirations by at most the jitter")
+    void testNextTtl_shouldStayWithinJitter() {
+        final IINCacheExpiration expiration = new IINCacheExpiration(TTL, Duration.ofSeconds(1000),
+                Duration.ofSeconds(10), 0.1);
+        final Set<Duration> ttls = new HashSet<>();
+
+        for (int i = 0; i < 10_000; i++) {
+            final Duration ttl = expiration.nextTtl();
+            final Duration negativeTtl = expiration.nextNegativeTtl();
+            assertTrue(ttl.compareTo(Duration.ofSeconds(90)) >= 0 && ttl.compareTo(Duration.ofSeconds(110)) <= 0,
+                    ttl::toString);
+            assertTrue(negativeTtl.compareTo(Duration.ofSeconds(9)) >= 0
+                    && negativeTtl.compareTo(Duration.ofSeconds(11)) <= 0, negativeTtl::toString);
+            ttls.add(ttl);
+        }
+
+        assertTrue(ttls.size() > 100, "Expirations should be spread");
+    }
+
+    @Test
+    @DisplayName("Should keep expirations without jitter")
+    void testNextTtl_shouldKeepTtlWithoutJitter() {
+        final IINCacheExpiration expiration = new IINCacheExpiration(TTL, Duration.ofSeconds(1000),
+                Duration.ofSeconds(10), 0);
+
+        assertEquals(TTL, expiration.nextTtl());
+        assertEquals(Duration.ofSeconds(1000), expiration.nextHardTtl(TTL));
+        assertEquals(Duration.ofSeconds(10), expiration.nextNegativeTtl());
+    }
+
+    @Test
+    @DisplayName("Should never expire an entry in Redis before its time to live")
+    void testNextHardTtl_shouldNotBeShorterThanTtl() {
+        // The hard TTL equals the TTL, so half of jittered hard TTLs are shorter than jittered TTLs
+        final IINCacheExpiration expiration = new IINCacheExpiration(TTL, TTL, Duration.ZERO, 0.5);
+
+        for (int i = 0; i < 10_000; i++) {
+            final Duration ttl = expiration.nextTtl();
+            final Duration hardTtl = expiration.nextHardTtl(ttl);
+            assertTrue(hardTtl.compareTo(ttl) >= 0, () -> hardTtl + " < " + ttl);
+        }
+    }
+
+    @Test
+    @DisplayName("Should expire entries in Redis after the time to live without refresh-ahead")
+    void testNextHardTtl_shouldUseTtlWithoutRefreshAhead() {
+        final IINCacheExpiration expiration = new IINCacheExpiration(TTL, null, Duration.ZERO, 0.1);
+
+        assertFalse(expiration.isRefreshAhead());
+        assertFalse(expiration.isNegativeEnabled());
+        assertEquals(Duration.ofSeconds(95), expiration.nextHardTtl(Duration.ofSeconds(95)));
+    }
+
+    @Test
+    @DisplayName("Should treat entries past their soft expiration as stale")
+    void testIsStale_shouldCompareSoftExpiration() {
+        final IINCacheExpiration expiration = new IINCacheExpiration(TTL, Duration.ofSeconds(1000),
+                Duration.ofSeconds(10), 0.1);
+        final long now = System.currentTimeMillis();
+
+        assertTrue(expiration.isStale(new IINCacheEntity("45717360", "DK", now - 1), now));
+        assertTrue(expiration.isStale(new IINCacheEntity("45717360", "DK", now), now));
+        assertFalse(expiration.isStale(new IINCacheEntity("45717360", "DK", now + 1), now));
+        assertFalse(expiration.isStale(new IINCacheEntity("45717360", "DK", null), now));
+    }
+
+    @Test
+    @DisplayName("Should reject a jitter out of range")
+    void testConstructor_shouldRejectInvalidJitter() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new IINCacheExpiration(TTL, null, Duration.ZERO, 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> new IINCacheExpiration(TTL, null, Duration.ZERO, -0.1));
+    }
+
+}
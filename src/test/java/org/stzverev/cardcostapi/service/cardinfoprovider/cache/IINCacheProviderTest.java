@@ -0,0 +1,144 @@
+package org.stzverev.cardcostapi.service.cardinfoprovider.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.stzverev.cardcostapi.configuration.properties.IINInfoCacheConfig;
+import org.stzverev.cardcostapi.domain.entity.IINCacheEntity;
+import org.stzverev.cardcostapi.service.cardinfoprovider.IINExtractor;
+import org.stzverev.cardcostapi.service.cardinfoprovider.IINInfo;
+import org.stzverev.cardcostapi.service.cardinfoprovider.IINInfoProvider;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IINCacheProviderTest {
+
+    private static final String CARD_NUMBER = "4571736012345678";
+
+    private static final String IIN = "45717360";
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final Map<String, IINCacheEntity> redis = new ConcurrentHashMap<>();
+
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+
+    private final Sinks.One<IINInfo> upstream = Sinks.one();
+
+    private final IINInfoProvider binList = cardNumber -> {
+        upstreamCalls.incrementAndGet();
+        return upstream.asMono();
+    };
+
+    private final IINCacheStore store = new MapIINCacheStore(redis);
+
+    private final IINCacheMetrics metrics = new IINCacheMetrics(registry);
+
+    private final IINCacheWriter cacheWriter = new IINCacheWriter(store, new IINInfoCacheConfig.WriteBehindConfig(),
+            metrics);
+
+    private final IINCacheProvider provider = new IINCacheProvider(binList, new IINExtractor(),
+            new IINCacheExpiration(Duration.ofMinutes(10), Duration.ofHours(1), Duration.ofMinutes(1), 0.1),
+            store, IINLocalCache.disabled(), IINPrefixIndex.disabled(), metrics, cacheWriter,
+            IINCacheAnalytics.disabled(), IINAdaptiveTtl.disabled());
+
+    @Test
+    @DisplayName("Should serve a stale entry while a single upstream call refreshes it")
+    void testGetCardInfoByNumber_shouldRefreshStaleEntryOnce() {
+        redis.put(IIN, new IINCacheEntity(IIN, "DK", System.currentTimeMillis() - 1));
+
+        for (int i = 0; i < 3; i++) {
+            StepVerifier.create(provider.getCardInfoByNumber(CARD_NUMBER))
+                    .expectNext(new IINInfo(IIN, "DK"))
+                    .verifyComplete();
+            StepVerifier.create(provider.getCardInfoByIins(List.of(IIN)).map(lookup -> lookup.info().country()))
+                    .expectNext("DK")
+                    .verifyComplete();
+        }
+        assertEquals(1, upstreamCalls.get());
+        assertEquals(1, provider.getUpstreamCalls().inFlightCount());
+        assertEquals(6, registry.get("iin.cache.stale.hits").counter().count());
+
+        upstream.tryEmitValue(new IINInfo(IIN, "GB"));
+        cacheWriter.flush().block(Duration.ofSeconds(1));
+
+        assertEquals(0, provider.getUpstreamCalls().inFlightCount());
+        final IINCacheEntity refreshed = redis.get(IIN);
+        assertEquals("GB", refreshed.issuingCountry());
+        assertTrue(refreshed.softExpiresAt() > System.currentTimeMillis());
+        StepVerifier.create(provider.getCardInfoByNumber(CARD_NUMBER))
+                .expectNext(new IINInfo(IIN, "GB"))
+                .verifyComplete();
+        assertEquals(1, upstreamCalls.get());
+    }
+
+    @Test
+    @DisplayName("Should keep serving the stale entry when the refresh fails")
+    void testGetCardInfoByNumber_shouldKeepStaleEntryWhenRefreshFails() {
+        redis.put(IIN, new IINCacheEntity(IIN, "DK", System.currentTimeMillis() - 1));
+
+        StepVerifier.create(provider.getCardInfoByNumber(CARD_NUMBER))
+                .expectNext(new IINInfo(IIN, "DK"))
+                .verifyComplete();
+        upstream.tryEmitError(new IllegalStateException("binlist is unavailable"));
+        cacheWriter.flush().block(Duration.ofSeconds(1));
+
+        assertEquals("DK", redis.get(IIN).issuingCountry());
+        assertEquals(1, registry.get("iin.cache.refresh.failures").counter().count());
+        assertEquals(0, provider.getUpstreamCalls().inFlightCount());
+    }
+
+    @Test
+    @DisplayName("Should not refresh fresh entries")
+    void testGetCardInfoByNumber_shouldNotRefreshFreshEntry() {
+        redis.put(IIN, new IINCacheEntity(IIN, "DK", System.currentTimeMillis() + 60_000));
+
+        StepVerifier.create(provider.getCardInfoByNumber(CARD_NUMBER))
+                .expectNext(new IINInfo(IIN, "DK"))
+                .verifyComplete();
+
+        assertEquals(0, upstreamCalls.get());
+        assertEquals(0, registry.get("iin.cache.stale.hits").counter().count());
+    }
+
+    /**
+     * IIN cache store on a map, entries never expire.
+     */
+    private record MapIINCacheStore(Map<String, IINCacheEntity> data) implements IINCacheStore {
+
+        @Override
+        public Mono<IINCacheEntity> get(final String iin) {
+            return Mono.justOrEmpty(data.get(iin));
+        }
+
+        @Override
+        public Mono<List<IINCacheEntity>> multiGet(final List<String> iins) {
+            final List<IINCacheEntity> values = new ArrayList<>(iins.size());
+            for (final String iin : iins) {
+                values.add(data.get(iin));
+            }
+            return Mono.just(values);
+        }
+
+        @Override
+        public Mono<Integer> writeAll(final List<IINCacheWrite> writes) {
+            for (final IINCacheWrite write : writes) {
+                data.put(write.iin(), write.entity());
+            }
+            return Mono.just(writes.size());
+        }
+
+    }
+
+}
@@ -0,0 +1,135 @@
+package org.stzverev.cardcostapi.service.cardinfoprovider.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.ReactiveRedisOperations;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.stzverev.cardcostapi.BaseSpringBootTestContainersTest;
+import org.stzverev.cardcostapi.domain.entity.IINCacheEntity;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IINCacheStoreMemoryTest extends BaseSpringBootTestContainersTest {
+
+    private static final int ENTRIES = 10_000;
+
+    private static final int FIRST_IIN = 40_000_000;
+
+    private static final RedisScript<Long> MEMORY_USAGE_SCRIPT = RedisScript.of("""
+            local total = 0
+            for _, key in ipairs(KEYS) do
+                total = total + (redis.call('MEMORY', 'USAGE', key, 'SAMPLES', '0') or 0)
+            end
+            return total""", Long.class);
+
+    @Autowired
+    private ReactiveRedisOperations<String, IINCacheEntity> redisOperationsIINCache;
+
+    @Autowired
+    private ReactiveRedisOperations<String, byte[]> redisOperationsIINCacheHash;
+
+    @Autowired
+    private ReactiveStringRedisTemplate redisTemplate;
+
+    @Test
+    @DisplayName("Should store the same entries in several times less memory with the hash layout")
+    void testWriteAll_shouldUseLessMemoryWithHashLayout() {
+        //GIVEN
+        final long softExpiresAt = System.currentTimeMillis() + Duration.ofMinutes(10).toMillis();
+        final List<String> iins = IntStream.range(FIRST_IIN, FIRST_IIN + ENTRIES)
+                .mapToObj(String::valueOf)
+                .toList();
+        final List<IINCacheWrite> writes = iins.stream()
+                .map(iin -> new IINCacheWrite(iin, new IINCacheEntity(iin, "DK", softExpiresAt), Duration.ofHours(1)))
+                .toList();
+        final IINCacheStore keyStore = new RedisKeyIINCacheStore(redisOperationsIINCache);
+        final IINCacheStore hashStore = new RedisHashIINCacheStore(redisOperationsIINCacheHash);
+
+        //WHEN
+        assertEquals(ENTRIES, keyStore.writeAll(writes).block(Duration.ofSeconds(30)));
+        assertEquals(ENTRIES, hashStore.writeAll(writes).block(Duration.ofSeconds(30)));
+        final long keyLayoutBytes = memoryUsage(iins.stream()
+                .map(iin -> RedisKeyIINCacheStore.REDIS_PREFIX + iin)
+                .toList());
+        final long hashLayoutBytes = memoryUsage(iins.stream()
+                .map(iin -> RedisHashIINCacheStore.REDIS_PREFIX + RedisHashIINCacheStore.bucket(iin))
+                .distinct()
+                .toList());
+
+        //THEN
+        assertTrue(hashLayoutBytes > 0);
+        assertTrue(keyLayoutBytes >= 3 * hashLayoutBytes,
+                "Key layout: " + keyLayoutBytes + " bytes, hash layout: " + hashLayoutBytes + " bytes");
+    }
+
+    @Test
+    @DisplayName("Should read the entries written with the hash layout")
+    void testMultiGet_shouldReadEntriesWrittenWithHashLayout() {
+        //GIVEN
+        final long softExpiresAt = System.currentTimeMillis() + Duration.ofMinutes(10).toMillis();
+        final IINCacheStore hashStore = new RedisHashIINCacheStore(redisOperationsIINCacheHash);
+        hashStore.writeAll(List.of(
+                        new IINCacheWrite("51000001", new IINCacheEntity("51000001", "US", softExpiresAt),
+                                Duration.ofHours(1)),
+                        new IINCacheWrite("51000002", IINCacheEntity.unknown("51000002"), Duration.ofHours(1)),
+                        new IINCacheWrite("51000103", new IINCacheEntity("51000103", "DE", null),
+                                Duration.ofHours(1))))
+                .block(Duration.ofSeconds(10));
+
+        //WHEN
+        final List<IINCacheEntity> entities = hashStore.multiGet(List.of("51000001", "51000002", "51000003",
+                "51000103")).block(Duration.ofSeconds(10));
+
+        //THEN
+        assertNotNull(entities);
+        assertEquals(4, entities.size());
+        assertEquals("US", entities.get(0).issuingCountry());
+        assertEquals(softExpiresAt / 1000, entities.get(0).softExpiresAt() / 1000);
+        assertTrue(entities.get(1).isUnknown());
+        assertNull(entities.get(2));
+        assertEquals("DE", entities.get(3).issuingCountry());
+        assertNull(entities.get(3).softExpiresAt());
+        assertEquals("US", hashStore.get("51000001").map(IINCacheEntity::issuingCountry)
+                .block(Duration.ofSeconds(10)));
+    }
+
+    @Test
+    @DisplayName("Should fall back to the key layout for entries missing in the hash layout while migrating")
+    void testMultiGet_shouldFallBackToKeyLayoutWhileMigrating() {
+        //GIVEN
+        final IINCacheStore keyStore = new RedisKeyIINCacheStore(redisOperationsIINCache);
+        final IINCacheStore hashStore = new RedisHashIINCacheStore(redisOperationsIINCacheHash);
+        final IINCacheStore migratingStore = new MigratingIINCacheStore(hashStore, keyStore);
+        keyStore.writeAll(List.of(new IINCacheWrite("52000001", new IINCacheEntity("52000001", "FR", null),
+                Duration.ofHours(1)))).block(Duration.ofSeconds(10));
+        migratingStore.writeAll(List.of(new IINCacheWrite("52000002", new IINCacheEntity("52000002", "IT", null),
+                Duration.ofHours(1)))).block(Duration.ofSeconds(10));
+
+        //WHEN
+        final List<IINCacheEntity> entities = migratingStore.multiGet(List.of("52000001", "52000002", "52000003"))
+                .block(Duration.ofSeconds(10));
+
+        //THEN
+        assertNotNull(entities);
+        assertEquals("FR", entities.get(0).issuingCountry());
+        assertEquals("IT", entities.get(1).issuingCountry());
+        assertNull(entities.get(2));
+        assertNull(keyStore.get("52000002").block(Duration.ofSeconds(10)));
+    }
+
+    private long memoryUsage(final List<String> keys) {
+        final Long bytes = redisTemplate.execute(MEMORY_USAGE_SCRIPT, keys).next().block(Duration.ofSeconds(30));
+        assertNotNull(bytes);
+        return bytes;
+    }
+
+}
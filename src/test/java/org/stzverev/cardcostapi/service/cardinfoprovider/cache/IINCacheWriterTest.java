@@ -0,0 +1,196 @@
+package org.stzverev.cardcostapi.service.cardinfoprovider.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.stzverev.cardcostapi.configuration.properties.IINInfoCacheConfig;
+import org.stzverev.cardcostapi.domain.entity.IINCacheEntity;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IINCacheWriterTest {
+
+    private static final Duration TTL = Duration.ofHours(1);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final RecordingStore store = new RecordingStore();
+
+    private IINCacheWriter writer;
+
+    @AfterEach
+    void tearDown() {
+        if (writer != null) {
+            writer.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Should write full batches as soon as they are queued")
+    void testWrite_shouldWriteFullBatches() {
+        writer = writer(3, Duration.ofHours(1), 100);
+        writer.start();
+
+        for (int i = 0; i < 7; i++) {
+            assertTrue(writer.write(iin(i), entity(i), TTL));
+        }
+
+        assertEquals(List.of(3, 3), store.batches);
+        assertEquals(6, writes("written"));
+    }
+
+    @Test
+    @DisplayName("Should write a partial batch when the flush interval elapses")
+    void testWrite_shouldFlushOnInterval() throws InterruptedException {
+        writer = writer(100, Duration.ofMillis(50), 100);
+        writer.start();
+
+        writer.write(iin(0), entity(0), TTL);
+        writer.write(iin(1), entity(1), TTL);
+
+        assertTrue(store.written.await(1, TimeUnit.SECONDS));
+        assertEquals(List.of(2), store.batches);
+    }
+
+    @Test
+    @DisplayName("Should drop entries when the queue is full")
+    void testWrite_shouldDropWhenQueueIsFull() {
+        writer = writer(10, Duration.ofHours(1), 2);
+        writer.start();
+
+        assertTrue(writer.write(iin(0), entity(0), TTL));
+        assertTrue(writer.write(iin(1), entity(1), TTL));
+        assertFalse(writer.write(iin(2), entity(2), TTL));
+
+        assertEquals(1, writes("dropped"));
+        assertTrue(store.batches.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should drain the queue in batches on shutdown")
+    void testStop_shouldDrainQueue() {
+        writer = writer(2, Duration.ofHours(1), 100);
+        writer.write(iin(0), entity(0), TTL);
+        writer.write(iin(1), entity(1), TTL);
+        writer.write(iin(2), entity(2), TTL);
+
+        writer.stop();
+        writer = null;
+
+        assertEquals(List.of(2, 1), store.batches);
+        assertEquals(3, writes("written"));
+    }
+
+    @Test
+    @DisplayName("Should finish the batch being written before draining the queue on shutdown")
+    void testStop_shouldFinishRunningBatch() {
+        final Sinks.Empty<Void> slowWrite = Sinks.empty();
+        store.pending = slowWrite.asMono();
+        writer = writer(2, Duration.ofHours(1), 100);
+        writer.start();
+
+        writer.write(iin(0), entity(0), TTL);
+        writer.write(iin(1), entity(1), TTL);
+        writer.write(iin(2), entity(2), TTL);
+        assertTrue(store.batches.isEmpty());
+
+        Schedulers.parallel().schedule(slowWrite::tryEmitEmpty, 100, TimeUnit.MILLISECONDS);
+        writer.stop();
+        writer = null;
+
+        assertEquals(List.of(2, 1), store.batches);
+        assertEquals(3, writes("written"));
+    }
+
+    @Test
+    @DisplayName("Should count entries of a failed batch and keep writing the next ones")
+    void testWrite_shouldSurviveFailedBatch() {
+        store.failures = 1;
+        writer = writer(2, Duration.ofHours(1), 100);
+        writer.start();
+
+        for (int i = 0; i < 4; i++) {
+            writer.write(iin(i), entity(i), TTL);
+        }
+
+        assertEquals(List.of(2), store.batches);
+        assertEquals(2, writes("failed"));
+        assertEquals(2, writes("written"));
+    }
+
+    private IINCacheWriter writer(final int batchSize, final Duration flushInterval, final int queueCapacity) {
+        final IINInfoCacheConfig.WriteBehindConfig config = new IINInfoCacheConfig.WriteBehindConfig();
+        config.setBatchSize(batchSize);
+        config.setFlushInterval(flushInterval);
+        config.setQueueCapacity(queueCapacity);
+        config.setShutdownTimeout(Duration.ofSeconds(1));
+        return new IINCacheWriter(store, config, new IINCacheMetrics(registry));
+    }
+
+    private double writes(final String result) {
+        return registry.get("iin.cache.writes").tag("result", result).counter().count();
+    }
+
+    private static String iin(final int i) {
+        return String.valueOf(45717360 + i);
+    }
+
+    private static IINCacheEntity entity(final int i) {
+        return new IINCacheEntity(iin(i), "DK", null);
+    }
+
+    /**
+     * Records sizes of written batches, the first {@link #failures} batches fail and the next batch is written
+     * when {@link #pending} completes.
+     */
+    private static final class RecordingStore implements IINCacheStore {
+
+        private final List<Integer> batches = new CopyOnWriteArrayList<>();
+
+        private final CountDownLatch written = new CountDownLatch(1);
+
+        private volatile int failures;
+
+        private volatile Mono<Void> pending = Mono.empty();
+
+        @Override
+        public Mono<IINCacheEntity> get(final String iin) {
+            return Mono.empty();
+        }
+
+        @Override
+        public Mono<List<IINCacheEntity>> multiGet(final List<String> iins) {
+            return Mono.just(Collections.nCopies(iins.size(), null));
+        }
+
+        @Override
+        public Mono<Integer> writeAll(final List<IINCacheWrite> writes) {
+            if (failures > 0) {
+                failures--;
+                return Mono.error(new IllegalStateException("Redis is unavailable"));
+            }
+            final Mono<Void> delay = pending;
+            pending = Mono.empty();
+            return delay.then(Mono.fromSupplier(() -> {
+                batches.add(writes.size());
+                written.countDown();
+                return writes.size();
+            }));
+        }
+
+    }
+
+}
@@ -0,0 +1,144 @@
+package org.stzverev.cardcostapi.service.cardinfoprovider.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.stzverev.cardcostapi.service.cardinfoprovider.CountryCodes;
+import org.stzverev.cardcostapi.service.cardinfoprovider.IINExtractor;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IINLocalCacheTest {
+
+    private final IINExtractor iinExtractor = new IINExtractor();
+
+    @Test
+    @DisplayName("Should return the cached country and miss unknown IINs")
+    void testGet_shouldHitAndMiss() {
+        final IINLocalCache cache = new IINLocalCache(1024, Duration.ofMinutes(1));
+        cache.put(iinExtractor.getIinKey("45717360"), "DK");
+        cache.put(iinExtractor.getIinKey("52000010"), "US");
+        cache.put(iinExtractor.getIinKey("52000010"), "GB");
+        cache.put(iinExtractor.getIinKey("37000000"), "invalid");
+
+        assertEquals("DK", cache.get(iinExtractor.getIinKey("45717360")));
+        assertEquals("GB", cache.get(iinExtractor.getIinKey("52000010")));
+        assertNull(cache.get(iinExtractor.getIinKey("37000000")));
+        assertNull(cache.get(iinExtractor.getIinKey("457173")));
+        assertEquals(2, cache.hitCount());
+        assertEquals(2, cache.missCount());
+    }
+
+    @Test
+    @DisplayName("Should evict the least recently used entry of a full set")
+    void testPut_shouldEvictLeastRecentlyUsed() {
+        // A single set of four slots, every key maps to it
+        final IINLocalCache cache = new IINLocalCache(4, Duration.ofMinutes(1));
+        final long[] keys = new long[5];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = iinExtractor.getIinKey("40000" + i);
+        }
+        for (int i = 0; i < 4; i++) {
+            cache.put(keys[i], "DK");
+        }
+        assertEquals("DK", cache.get(keys[0]));
+
+        cache.put(keys[4], "GB");
+
+        assertEquals("DK", cache.get(keys[0]));
+        assertNull(cache.get(keys[1]));
+        assertEquals("DK", cache.get(keys[2]));
+        assertEquals("DK", cache.get(keys[3]));
+        assertEquals("GB", cache.get(keys[4]));
+        assertEquals(1, cache.evictionCount());
+        assertEquals(0, cache.expirationCount());
+    }
+
+    @Test
+    @DisplayName("Should miss expired entries and reuse their slots")
+    void testGet_shouldExpireEntries() throws InterruptedException {
+        final IINLocalCache cache = new IINLocalCache(4, Duration.ofMillis(50));
+        final long key = iinExtractor.getIinKey("45717360");
+        cache.put(key, "DK");
+        assertEquals("DK", cache.get(key));
+
+        TimeUnit.MILLISECONDS.sleep(100);
+
+        assertNull(cache.get(key));
+        for (int i = 0; i < 4; i++) {
+            cache.put(iinExtractor.getIinKey("40000" + i), "GB");
+        }
+        assertEquals(1, cache.expirationCount());
+        assertEquals(0, cache.evictionCount());
+    }
+
+    @Test
+    @DisplayName("Should never return a country written for another IIN under concurrent puts")
+    void testGet_shouldNotReadTornEntries() throws InterruptedException {
+        // Two sets of four slots for 64 keys, so writers evict each other's entries all the time
+        final IINLocalCache cache = new IINLocalCache(8, Duration.ofMinutes(1));
+        final long[] keys = new long[64];
+        final String[] countries = new String[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = iinExtractor.getIinKey(String.valueOf(400000 + i));
+            countries[i] = CountryCodes.decode((short) (1 + i * 7));
+        }
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final AtomicLong reads = new AtomicLong();
+        final AtomicReference<String> torn = new AtomicReference<>();
+        final CountDownLatch done = new CountDownLatch(8);
+        final List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            final int offset = t;
+            threads.add(new Thread(() -> {
+                for (int i = offset; running.get(); i++) {
+                    final int index = i % keys.length;
+                    cache.put(keys[index], countries[index]);
+                }
+                done.countDown();
+            }));
+            threads.add(new Thread(() -> {
+                for (int i = offset; running.get(); i++) {
+                    final int index = i % keys.length;
+                    final String country = cache.get(keys[index]);
+                    if (country != null && !country.equals(countries[index])) {
+                        torn.compareAndSet(null, keys[index] + " -> " + country);
+                    }
+                    reads.incrementAndGet();
+                }
+                done.countDown();
+            }));
+        }
+        threads.forEach(Thread::start);
+
+        TimeUnit.MILLISECONDS.sleep(500);
+        running.set(false);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertNull(torn.get(), "Torn read");
+        assertFalse(reads.get() == 0);
+        assertEquals(reads.get(), cache.hitCount() + cache.missCount());
+    }
+
+    @Test
+    @DisplayName("Disabled cache should always miss")
+    void testGet_shouldMissWhenDisabled() {
+        final IINLocalCache cache = IINLocalCache.disabled();
+        final long key = iinExtractor.getIinKey("45717360");
+        cache.put(key, "DK");
+
+        assertNull(cache.get(key));
+    }
+
+}
@@ -0,0 +1,72 @@
+package org.stzverev.cardcostapi.service.cardinfoprovider.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class IINPrefixIndexTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    @Test
+    @DisplayName("Should answer IINs under a BIN once answers under it are confirmed")
+    void testFind_shouldAnswerConfirmedBin() {
+        final IINPrefixIndex index = new IINPrefixIndex(Duration.ofHours(1), 2);
+
+        index.learn("45717360", "DK", NOW);
+        assertNull(index.find("45717369", NOW));
+
+        index.learn("45717361", "DK", NOW);
+        assertEquals("DK", index.find("45717369", NOW));
+        assertEquals("DK", index.find("457173", NOW));
+        assertNull(index.find("45717469", NOW));
+        assertNull(index.find("45717369", NOW + Duration.ofHours(1).toMillis()));
+    }
+
+    @Test
+    @DisplayName("Should confirm a BIN by a single answer for the exact 6-digit BIN")
+    void testFind_shouldTrustExactBinAnswer() {
+        final IINPrefixIndex index = new IINPrefixIndex(Duration.ofHours(1), 3);
+
+        index.learn("400000", "US", NOW);
+
+        assertEquals("US", index.find("40000012", NOW));
+        assertEquals("US", index.find("40000099", NOW));
+    }
+
+    @Test
+    @DisplayName("Should not answer IINs under a BIN with IINs of different countries until the mark expires")
+    void testFind_shouldNotAnswerAmbiguousBin() {
+        final IINPrefixIndex index = new IINPrefixIndex(Duration.ofHours(1), 1);
+
+        index.learn("52000010", "US", NOW);
+        index.learn("52000020", "CA", NOW);
+        index.learn("52000030", "US", NOW);
+
+        assertNull(index.find("52000040", NOW));
+        assertEquals(1, index.conflictCount());
+
+        final long expired = NOW + Duration.ofHours(1).toMillis();
+        index.learn("52000030", "US", expired);
+        assertEquals("US", index.find("52000040", expired));
+    }
+
+    @Test
+    @DisplayName("Should ignore invalid IINs and countries")
+    void testLearn_shouldIgnoreInvalidValues() {
+        final IINPrefixIndex index = new IINPrefixIndex(Duration.ofHours(1), 1);
+
+        index.learn("12345", "US", NOW);
+        index.learn("12a45678", "US", NOW);
+        index.learn("12345678", "usa", NOW);
+
+        assertNull(index.find("12345699", NOW));
+        assertNull(index.find("12a45699", NOW));
+        assertNull(IINPrefixIndex.disabled().find("12345699", NOW));
+    }
+
+}
@@ -0,0 +1,103 @@
+package org.stzverev.cardcostapi.service.cardinfoprovider.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+
+    private static final String KEY = "457173";
+
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>();
+
+    private final AtomicInteger subscriptions = new AtomicInteger();
+
+    @Test
+    @DisplayName("Concurrent callers should share one upstream subscription")
+    void testExecute_shouldShareUpstreamCall() {
+        final Sinks.One<String> upstream = Sinks.one();
+
+        final StepVerifier first = StepVerifier.create(singleFlight.execute(KEY, () -> upstream(upstream)))
+                .expectNext("DK")
+                .expectComplete()
+                .verifyLater();
+        final StepVerifier second = StepVerifier.create(singleFlight.execute(KEY, () -> upstream(upstream)))
+                .expectNext("DK")
+                .expectComplete()
+                .verifyLater();
+        assertEquals(1, singleFlight.inFlightCount());
+
+        upstream.tryEmitValue("DK");
+
+        first.verify(Duration.ofSeconds(1));
+        second.verify(Duration.ofSeconds(1));
+        assertEquals(1, subscriptions.get());
+        assertEquals(1, singleFlight.executionCount());
+        assertEquals(1, singleFlight.coalescedCount());
+        assertEquals(0, singleFlight.inFlightCount());
+    }
+
+    @Test
+    @DisplayName("Should release the key on error")
+    void testExecute_shouldReleaseKeyOnError() {
+        StepVerifier.create(singleFlight.execute(KEY, () -> Mono.error(new IllegalStateException("Upstream"))))
+                .expectError(IllegalStateException.class)
+                .verify();
+
+        assertEquals(0, singleFlight.inFlightCount());
+    }
+
+    @Test
+    @DisplayName("Should cancel the upstream call and release the key when every caller cancels")
+    void testExecute_shouldReleaseKeyOnCancel() {
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        final Mono<String> upstream = Mono.<String>never().doOnCancel(() -> cancelled.set(true));
+
+        final Disposable first = singleFlight.execute(KEY, () -> upstream).subscribe();
+        final Disposable second = singleFlight.execute(KEY, () -> upstream).subscribe();
+        assertEquals(1, singleFlight.inFlightCount());
+
+        first.dispose();
+        assertFalse(cancelled.get());
+        assertEquals(1, singleFlight.inFlightCount());
+
+        second.dispose();
+        assertTrue(cancelled.get());
+        assertEquals(0, singleFlight.inFlightCount());
+    }
+
+    @Test
+    @DisplayName("Should call upstream again after the previous call completed")
+    void testExecute_shouldNotKeepResults() {
+        StepVerifier.create(singleFlight.execute(KEY, () -> upstream(Mono.just("DK"))))
+                .expectNext("DK")
+                .verifyComplete();
+        StepVerifier.create(singleFlight.execute(KEY, () -> upstream(Mono.just("GB"))))
+                .expectNext("GB")
+                .verifyComplete();
+
+        assertEquals(2, subscriptions.get());
+        assertEquals(2, singleFlight.executionCount());
+        assertEquals(0, singleFlight.coalescedCount());
+    }
+
+    private Mono<String> upstream(final Sinks.One<String> sink) {
+        return upstream(sink.asMono());
+    }
+
+    private Mono<String> upstream(final Mono<String> mono) {
+        return mono.doOnSubscribe(subscription -> subscriptions.incrementAndGet());
+    }
+
+}
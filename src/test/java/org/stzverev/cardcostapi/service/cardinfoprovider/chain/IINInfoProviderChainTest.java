@@ -0,0 +1,170 @@
+package org.stzverev.cardcostapi.service.cardinfoprovider.chain;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.stzverev.cardcostapi.configuration.properties.BinListConfig;
+import org.stzverev.cardcostapi.exceptions.CardInfoIsNotFoundException;
+import org.stzverev.cardcostapi.service.cardinfoprovider.IINExtractor;
+import org.stzverev.cardcostapi.service.cardinfoprovider.IINInfo;
+import org.stzverev.cardcostapi.service.cardinfoprovider.IINInfoProvider;
+import org.stzverev.cardcostapi.service.cardinfoprovider.binlist.BinListMetrics;
+import org.stzverev.cardcostapi.service.cardinfoprovider.binlist.IINInfoProviderBinList;
+import org.stzverev.cardcostapi.service.circuitbreaker.CircuitBreaker;
+import org.stzverev.cardcostapi.service.ratelimit.RateLimiter;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlMatching;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the chain against two local stand-ins of binlist-compatible providers.
+ */
+class IINInfoProviderChainTest {
+
+    private static final String CARD_NUMBER = "4571736012345678";
+
+    private static final String IIN_URL = "/45717360";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final WireMockServer primary = new WireMockServer(options().dynamicPort());
+
+    private final WireMockServer secondary = new WireMockServer(options().dynamicPort());
+
+    @BeforeEach
+    void setUp() {
+        primary.start();
+        secondary.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        primary.stop();
+        secondary.stop();
+    }
+
+    @Test
+    @DisplayName("Should pass the lookup to the next provider when the provider answers with 429")
+    void testGetCardInfo_shouldFailOverOnTooManyRequests() {
+        primary.stubFor(get(IIN_URL).willReturn(WireMock.aResponse().withStatus(429)));
+        stubCountry(secondary, "DK", 0);
+        final IINInfoProviderChain chain = chain(null);
+
+        StepVerifier.create(chain.getCardInfoByNumber(CARD_NUMBER))
+                .expectNext(new IINInfo("45717360", "DK"))
+                .verifyComplete();
+
+        primary.verify(1, getRequestedFor(urlMatching(IIN_URL)));
+        secondary.verify(1, getRequestedFor(urlMatching(IIN_URL)));
+        assertEquals(1, meterRegistry.counter("iin.provider.failovers", "provider", "primary").count());
+    }
+
+    @Test
+    @DisplayName("Should not ask other providers for an IIN unknown to the provider")
+    void testGetCardInfo_shouldNotFailOverOnUnknownIin() {
+        primary.stubFor(get(IIN_URL).willReturn(WireMock.notFound()));
+        stubCountry(secondary, "DK", 0);
+        final IINInfoProviderChain chain = chain(null);
+
+        StepVerifier.create(chain.getCardInfoByNumber(CARD_NUMBER))
+                .expectError(CardInfoIsNotFoundException.class)
+                .verify();
+
+        secondary.verify(0, getRequestedFor(urlMatching(IIN_URL)));
+    }
+
+    @Test
+    @DisplayName("Should route lookups to the provider with the lower observed latency")
+    void testGetCardInfo_shouldPreferFasterProvider() {
+        stubCountry(primary, "US", 300);
+        stubCountry(secondary, "DK", 0);
+        final IINInfoProviderChain chain = chain(null);
+
+        for (int i = 0; i < 5; i++) {
+            chain.getCardInfoByNumber(CARD_NUMBER).block(Duration.ofSeconds(5));
+        }
+
+        primary.verify(1, getRequestedFor(urlMatching(IIN_URL)));
+        secondary.verify(4, getRequestedFor(urlMatching(IIN_URL)));
+    }
+
+    @Test
+    @DisplayName("Should call the next provider as well when the provider is slower than the hedge delay")
+    void testGetCardInfo_shouldHedgeSlowProvider() {
+        stubCountry(primary, "US", 1500);
+        stubCountry(secondary, "DK", 0);
+        final IINInfoProviderChain chain = chain(Duration.ofMillis(100));
+
+        final long start = System.nanoTime();
+        StepVerifier.create(chain.getCardInfoByNumber(CARD_NUMBER))
+                .expectNext(new IINInfo("45717360", "DK"))
+                .verifyComplete();
+
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofSeconds(1)) < 0);
+        secondary.verify(1, getRequestedFor(urlMatching(IIN_URL)));
+        assertEquals(1, meterRegistry.counter("iin.provider.hedges", "provider", "primary").count());
+    }
+
+    @Test
+    @DisplayName("Should rank a provider cancelled after losing the hedge by at least the time until the cancel")
+    void testGetCardInfo_shouldNotRewardCancelledProvider() {
+        stubCountry(primary, "US", 1500);
+        stubCountry(secondary, "DK", 0);
+        final IINInfoProviderChain chain = chain(Duration.ofMillis(100));
+
+        for (int i = 0; i < 3; i++) {
+            chain.getCardInfoByNumber(CARD_NUMBER).block(Duration.ofSeconds(5));
+        }
+
+        final double primaryLatency = meterRegistry.get("iin.provider.latency").tag("provider", "primary")
+                .gauge().value();
+        final double secondaryLatency = meterRegistry.get("iin.provider.latency").tag("provider", "secondary")
+                .gauge().value();
+        assertTrue(primaryLatency >= 0.1, () -> "Primary latency: " + primaryLatency);
+        assertTrue(primaryLatency > secondaryLatency);
+        assertEquals(0, meterRegistry.get("iin.provider.error.rate").tag("provider", "primary").gauge().value());
+        assertEquals(1, meterRegistry.counter("iin.provider.hedges", "provider", "primary").count());
+        secondary.verify(3, getRequestedFor(urlMatching(IIN_URL)));
+    }
+
+    private IINInfoProviderChain chain(final Duration hedgeDelay) {
+        return new IINInfoProviderChain(List.of(
+                new IINInfoProviderChain.Member("primary", provider("primary", primary), 1),
+                new IINInfoProviderChain.Member("secondary", provider("secondary", secondary), 1)),
+                hedgeDelay, Duration.ofMinutes(1), new IINProviderChainMetrics(meterRegistry));
+    }
+
+    private IINInfoProvider provider(final String name, final WireMockServer server) {
+        final BinListConfig config = new BinListConfig();
+        config.setBaseUrl(server.baseUrl());
+        config.getRetry().setMaxRetries(0);
+        final CircuitBreaker circuitBreaker = new CircuitBreaker(name, new CircuitBreaker.Settings(false, 1, 1, 1,
+                Duration.ofSeconds(1), 1, Duration.ofSeconds(1), 1));
+        return new IINInfoProviderBinList(new IINExtractor(), RateLimiter.unlimited(), config,
+                WebClient.builder().baseUrl(server.baseUrl()).build(),
+                new BinListMetrics(meterRegistry, name, circuitBreaker), circuitBreaker);
+    }
+
+    private static void stubCountry(final WireMockServer server, final String country, final int delayMillis) {
+        server.stubFor(get(IIN_URL).willReturn(WireMock.aResponse()
+                .withFixedDelay(delayMillis)
+                .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .withBody("{\"country\": {\"alpha2\": \"" + country + "\"}}")));
+    }
+
+}
@@ -0,0 +1,137 @@
+package org.stzverev.cardcostapi.service.circuitbreaker;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.stzverev.cardcostapi.exceptions.CircuitBreakerOpenException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CircuitBreakerTest {
+
+    private static final CircuitBreaker.Settings SETTINGS = new CircuitBreaker.Settings(true, 4, 4, 0.5,
+            Duration.ofSeconds(1), 0.75, Duration.ofSeconds(30), 2);
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker("Test provider", SETTINGS, clock::get);
+
+    @Test
+    @DisplayName("Should open on the failure rate and reject calls without making them")
+    void testExecute_shouldOpenOnFailureRate() {
+        succeed();
+        fail();
+        succeed();
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+
+        fail();
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        StepVerifier.create(circuitBreaker.execute(call(Mono.just("DK")), error -> true))
+                .expectErrorSatisfies(error -> assertEquals(Duration.ofSeconds(30),
+                        ((CircuitBreakerOpenException) error).getRetryAfter()))
+                .verify();
+        assertEquals(4, calls.get());
+        assertEquals(1, circuitBreaker.rejectionCount());
+    }
+
+    @Test
+    @DisplayName("Should open on the slow call rate")
+    void testExecute_shouldOpenOnSlowCallRate() {
+        succeed();
+        slow();
+        slow();
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+
+        slow();
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    @DisplayName("Should not count expected errors as failures")
+    void testExecute_shouldIgnoreExpectedErrors() {
+        for (int i = 0; i < 8; i++) {
+            StepVerifier.create(circuitBreaker.execute(call(Mono.error(new IllegalArgumentException())),
+                            error -> !(error instanceof IllegalArgumentException)))
+                    .expectError(IllegalArgumentException.class)
+                    .verify();
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    @DisplayName("Should close after successful probes and open again on a failed probe")
+    void testExecute_shouldProbeWhenHalfOpen() {
+        openCircuit();
+        clock.addAndGet(Duration.ofSeconds(30).toNanos());
+
+        fail();
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+        clock.addAndGet(Duration.ofSeconds(30).toNanos());
+        succeed();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        succeed();
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    @DisplayName("Should let only the configured number of probes through while half-open")
+    void testExecute_shouldLimitProbes() {
+        openCircuit();
+        clock.addAndGet(Duration.ofSeconds(30).toNanos());
+
+        circuitBreaker.execute(call(Mono.never()), error -> true).subscribe();
+        circuitBreaker.execute(call(Mono.never()), error -> true).subscribe();
+
+        StepVerifier.create(circuitBreaker.execute(call(Mono.just("DK")), error -> true))
+                .expectError(CircuitBreakerOpenException.class)
+                .verify();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+    }
+
+    private void openCircuit() {
+        for (int i = 0; i < 4; i++) {
+            fail();
+        }
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    private void succeed() {
+        StepVerifier.create(circuitBreaker.execute(call(Mono.just("DK")), error -> true))
+                .expectNext("DK")
+                .verifyComplete();
+    }
+
+    private void slow() {
+        StepVerifier.create(circuitBreaker.execute(call(Mono.fromSupplier(() -> {
+                    clock.addAndGet(Duration.ofSeconds(2).toNanos());
+                    return "DK";
+                })), error -> true))
+                .expectNext("DK")
+                .verifyComplete();
+    }
+
+    private void fail() {
+        StepVerifier.create(circuitBreaker.execute(call(Mono.error(new IllegalStateException())), error -> true))
+                .expectError(IllegalStateException.class)
+                .verify();
+    }
+
+    private <T> Mono<T> call(final Mono<T> mono) {
+        return Mono.defer(() -> {
+            calls.incrementAndGet();
+            return mono;
+        });
+    }
+
+}
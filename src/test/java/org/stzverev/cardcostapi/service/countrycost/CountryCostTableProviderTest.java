@@ -0,0 +1,150 @@
+package org.stzverev.cardcostapi.service.countrycost;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import org.stzverev.cardcostapi.configuration.properties.CountryCostTableConfig;
+import org.stzverev.cardcostapi.domain.entity.CurrencyCostEntity;
+import org.stzverev.cardcostapi.domain.repository.CurrencyCostRepository;
+import org.stzverev.cardcostapi.service.CardCostMetrics;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CountryCostTableProviderTest {
+
+    private final CurrencyCostRepository costRepository = mock(CurrencyCostRepository.class);
+
+    private final CountryCostTableProvider provider = new CountryCostTableProvider(costRepository,
+            mock(ReactiveMongoTemplate.class), config(), new CardCostMetrics(new SimpleMeterRegistry()));
+
+    @AfterEach
+    void tearDown() {
+        provider.destroy();
+    }
+
+    @Test
+    @DisplayName("Should serve the loaded table with local writes applied")
+    void testGetTable_shouldApplyLocalWrites() {
+        when(costRepository.findAll()).thenReturn(Flux.just(entity("", 5), entity("DK", 10)));
+        provider.put("GB", 3);
+        provider.init();
+
+        provider.put("US", 7);
+        provider.remove("DK");
+
+        StepVerifier.create(provider.getTable())
+                .assertNext(table -> {
+                    assertEquals(5, table.getDefaultCost());
+                    assertEquals(7, table.getCost("US"));
+                    assertEquals(CountryCostTable.NO_COST, table.getCost("DK"));
+                    assertEquals(CountryCostTable.NO_COST, table.getCost("GB"));
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Should fail with 503 when the table is not loaded in time")
+    void testGetTable_shouldTimeOutBeforeFirstLoad() {
+        when(costRepository.findAll()).thenReturn(Flux.never());
+        provider.init();
+
+        StepVerifier.create(provider.getTable())
+                .expectErrorSatisfies(error -> assertEquals(HttpStatus.SERVICE_UNAVAILABLE,
+                        ((ResponseStatusException) error).getStatusCode()))
+                .verify(Duration.ofSeconds(1));
+    }
+
+    @Test
+    @DisplayName("Should wait for the first load")
+    void testGetTable_shouldWaitForFirstLoad() {
+        final Sinks.Many<CurrencyCostEntity> entities = Sinks.many().unicast().onBackpressureBuffer();
+        when(costRepository.findAll()).thenReturn(entities.asFlux());
+        provider.init();
+
+        final StepVerifier verifier = StepVerifier.create(provider.getTable())
+                .assertNext(table -> assertEquals(10, table.getCost("DK")))
+                .expectComplete()
+                .verifyLater();
+        entities.tryEmitNext(entity("DK", 10));
+        entities.tryEmitComplete();
+
+        verifier.verify(Duration.ofSeconds(1));
+    }
+
+    @Test
+    @DisplayName("Should not lose a local write made while the table was reloaded")
+    void testReload_shouldKeepWritesDuringReload() {
+        final Sinks.Many<CurrencyCostEntity> slowReload = Sinks.many().unicast().onBackpressureBuffer();
+        when(costRepository.findAll()).thenReturn(
+                Flux.just(entity("", 5)),
+                slowReload.asFlux(),
+                Flux.just(entity("", 5), entity("DK", 10), entity("US", 7)));
+        provider.init();
+
+        final StepVerifier reload = StepVerifier.create(provider.reload())
+                .assertNext(table -> assertEquals(7, table.getCost("US")))
+                .expectComplete()
+                .verifyLater();
+        // Saved to Mongo after the slow reload has read the collection
+        provider.put("US", 7);
+        slowReload.tryEmitNext(entity("", 5));
+        slowReload.tryEmitNext(entity("DK", 10));
+        slowReload.tryEmitComplete();
+        reload.verify(Duration.ofSeconds(1));
+
+        StepVerifier.create(provider.getTable())
+                .assertNext(table -> {
+                    assertEquals(10, table.getCost("DK"));
+                    assertEquals(7, table.getCost("US"));
+                })
+                .verifyComplete();
+        verify(costRepository, times(3)).findAll();
+    }
+
+    @Test
+    @DisplayName("Should keep the table when it changes during every reload attempt")
+    void testReload_shouldGiveUpWhenTableKeepsChanging() {
+        final Sinks.Many<CurrencyCostEntity> slowReload = Sinks.many().multicast().onBackpressureBuffer();
+        when(costRepository.findAll()).thenReturn(Flux.just(entity("", 5)),
+                slowReload.asFlux().doOnSubscribe(subscription -> provider.put("US", 7)),
+                slowReload.asFlux().doOnSubscribe(subscription -> provider.put("US", 8)),
+                slowReload.asFlux().doOnSubscribe(subscription -> provider.put("US", 9)));
+        provider.init();
+
+        final StepVerifier reload = StepVerifier.create(provider.reload())
+                .expectComplete()
+                .verifyLater();
+        slowReload.tryEmitComplete();
+        reload.verify(Duration.ofSeconds(1));
+
+        StepVerifier.create(provider.getTable())
+                .assertNext(table -> assertEquals(9, table.getCost("US")))
+                .verifyComplete();
+        verify(costRepository, times(4)).findAll();
+    }
+
+    private static CountryCostTableConfig config() {
+        final CountryCostTableConfig config = new CountryCostTableConfig();
+        config.setChangeStreamEnabled(false);
+        config.setLoadTimeout(Duration.ofMillis(100));
+        return config;
+    }
+
+    private static CurrencyCostEntity entity(final String country, final long cost) {
+        return CurrencyCostEntity.builder().issuingCountry(country).cost(cost).build();
+    }
+
+}
@@ -0,0 +1,86 @@
+package org.stzverev.cardcostapi.service.countrycost;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.stzverev.cardcostapi.domain.entity.CurrencyCostEntity;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class CountryCostTableTest {
+
+    private final CountryCostTable table = CountryCostTable.of(List.of(
+            entity("", 5), entity("DK", 10), entity("US", 7), entity("unknown", 1)));
+
+    @Test
+    @DisplayName("Should read costs of the stored entities and skip invalid countries")
+    void testOf_shouldLoadCosts() {
+        assertEquals(10, table.getCost("DK"));
+        assertEquals(7, table.getCost("US"));
+        assertEquals(5, table.getDefaultCost());
+        assertEquals(5, table.getCost(""));
+        assertEquals(CountryCostTable.NO_COST, table.getCost("GB"));
+        assertEquals(CountryCostTable.NO_COST, table.getCost("unknown"));
+        assertEquals(CountryCostTable.NO_COST, table.getCost(null));
+        assertEquals(CountryCostTable.NO_COST, CountryCostTable.EMPTY.getDefaultCost());
+    }
+
+    @Test
+    @DisplayName("Should copy the table on every change")
+    void testWith_shouldCopyOnChange() {
+        final CountryCostTable updated = table.with("GB", 3).without("US");
+
+        assertEquals(3, updated.getCost("GB"));
+        assertEquals(CountryCostTable.NO_COST, updated.getCost("US"));
+        assertEquals(CountryCostTable.NO_COST, table.getCost("GB"));
+        assertEquals(7, table.getCost("US"));
+    }
+
+    @Test
+    @DisplayName("Should keep the same table when nothing changes")
+    void testWith_shouldKeepTableWithoutChanges() {
+        assertSame(table, table.with("DK", 10));
+        assertSame(table, table.with("unknown", 3));
+        assertSame(table, table.without("GB"));
+        assertSame(table, table.without(null));
+    }
+
+    @Test
+    @DisplayName("Should replace the table only if the reloaded costs differ")
+    void testReplaceWith_shouldKeepEqualTable() {
+        final CountryCostTable updated = table.with("GB", 3);
+
+        assertSame(updated, updated.replaceWith(CountryCostTable.of(updated.toEntities())));
+        final CountryCostTable replaced = updated.replaceWith(table);
+        assertNotSame(updated, replaced);
+        assertEquals(CountryCostTable.NO_COST, replaced.getCost("GB"));
+    }
+
+    @Test
+    @DisplayName("Should list the common cost first and then costs by country code")
+    void testToEntities_shouldListCosts() {
+        assertEquals(List.of(entity("", 5), entity("DK", 10), entity("US", 7)), table.toEntities());
+    }
+
+    @Test
+    @DisplayName("Should change the ETag with the costs only")
+    void testGetETag_shouldFollowCosts() {
+        final CountryCostTable updated = table.with("DK", 11);
+        final CountryCostTable reverted = updated.with("DK", 10);
+
+        assertNotEquals(table.getETag(), updated.getETag());
+        assertNotSame(table, reverted);
+        assertEquals(table.getETag(), reverted.getETag());
+        assertEquals(table.getETag(), CountryCostTable.of(table.toEntities()).getETag());
+        assertEquals('"', table.getETag().charAt(0));
+    }
+
+    private static CurrencyCostEntity entity(final String country, final long cost) {
+        return CurrencyCostEntity.builder().issuingCountry(country).cost(cost).build();
+    }
+
+}
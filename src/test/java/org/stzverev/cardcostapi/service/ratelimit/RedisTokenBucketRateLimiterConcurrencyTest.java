@@ -0,0 +1,60 @@
+package org.stzverev.cardcostapi.service.ratelimit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.stzverev.cardcostapi.BaseSpringBootTestContainersTest;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RedisTokenBucketRateLimiterConcurrencyTest extends BaseSpringBootTestContainersTest {
+
+    private static final int CAPACITY = 5;
+
+    private static final int NODES = 4;
+
+    private static final int CALLS = 400;
+
+    @Autowired
+    private ReactiveStringRedisTemplate redisTemplate;
+
+    @Test
+    @DisplayName("Should never grant more permits than the quota under parallel load from several nodes")
+    void testTryAcquire_shouldNotExceedQuota() {
+        //GIVEN
+        final String key = "rate-limiter-test-" + UUID.randomUUID();
+        final List<RateLimiter> nodes = IntStream.range(0, NODES)
+                .<RateLimiter>mapToObj(node -> new RedisTokenBucketRateLimiter(redisTemplate, key, CAPACITY,
+                        Duration.ofMinutes(30)))
+                .toList();
+
+        //WHEN
+        final List<RateLimitResult> results = Flux.range(0, CALLS)
+                .parallel(NODES)
+                .runOn(Schedulers.parallel())
+                .flatMap(call -> nodes.get(call % NODES).tryAcquire())
+                .sequential()
+                .collectList()
+                .block(Duration.ofSeconds(30));
+
+        //THEN
+        assertNotNull(results);
+        assertEquals(CALLS, results.size());
+        assertEquals(CAPACITY, results.stream().filter(RateLimitResult::allowed).count());
+        assertTrue(results.stream().allMatch(result -> result.remaining() >= 0));
+        assertTrue(results.stream()
+                .filter(result -> !result.allowed())
+                .allMatch(result -> result.retryAfter().isPositive()));
+    }
+
+}
@@ -0,0 +1,143 @@
+package org.stzverev.cardcostapi.service.redis;
+
+import io.lettuce.core.RedisCommandExecutionException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.stzverev.cardcostapi.exceptions.RedisUnavailableException;
+import org.stzverev.cardcostapi.service.ratelimit.FallbackRateLimiter;
+import org.stzverev.cardcostapi.service.ratelimit.LocalTokenBucketRateLimiter;
+import org.stzverev.cardcostapi.service.ratelimit.RateLimitResult;
+import org.stzverev.cardcostapi.service.ratelimit.RateLimiter;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RedisAvailabilityTest {
+
+    private final AtomicBoolean redisUp = new AtomicBoolean();
+
+    private final RedisAvailability availability = new RedisAvailability(
+            () -> redisUp.get() ? Mono.just("PONG") : Mono.error(new IllegalStateException("Connection refused")),
+            Duration.ofMillis(100), Duration.ofMillis(200), 3, Duration.ofSeconds(1), 2);
+
+    @Test
+    @DisplayName("Should fail commands without sending them after consecutive failures")
+    void testExecute_shouldSwitchToDegradedMode() {
+        final AtomicInteger sent = new AtomicInteger();
+        final Mono<String> failing = Mono.defer(() -> {
+            sent.incrementAndGet();
+            return Mono.error(new RedisConnectionFailureException("Connection refused"));
+        });
+
+        StepVerifier.create(availability.execute(Mono.just("ok"))).expectNext("ok").verifyComplete();
+        for (int i = 0; i < 2; i++) {
+            StepVerifier.create(availability.execute(failing))
+                    .expectError(RedisConnectionFailureException.class)
+                    .verify();
+        }
+        StepVerifier.create(availability.execute(Mono.never()))
+                .expectError(TimeoutException.class)
+                .verify(Duration.ofSeconds(1));
+        assertEquals(RedisAvailability.Mode.DEGRADED, availability.getMode());
+
+        StepVerifier.create(availability.execute(failing)).expectError(RedisUnavailableException.class).verify();
+        assertEquals(2, sent.get());
+        assertEquals(1, availability.rejectionCount());
+    }
+
+    @Test
+    @DisplayName("Should not count errors answered by Redis as Redis failures")
+    void testExecute_shouldNotCountErrorReplies() {
+        final Mono<String> errorReply = Mono.error(new RedisSystemException("WRONGTYPE Operation against a key",
+                new RedisCommandExecutionException("WRONGTYPE Operation against a key")));
+
+        for (int i = 0; i < 3; i++) {
+            StepVerifier.create(availability.execute(errorReply)).expectError(RedisSystemException.class).verify();
+            StepVerifier.create(availability.execute(Mono.error(new SerializationException("Corrupt entry"))))
+                    .expectError(SerializationException.class)
+                    .verify();
+        }
+        StepVerifier.create(availability.execute(Mono.error(new RedisConnectionFailureException("Refused"))))
+                .expectError(RedisConnectionFailureException.class)
+                .verify();
+
+        assertEquals(RedisAvailability.Mode.NORMAL, availability.getMode());
+    }
+
+    @Test
+    @DisplayName("Should not count failed bulk commands as Redis failures")
+    void testExecuteBulk_shouldNotSwitchToDegradedMode() {
+        for (int i = 0; i < 3; i++) {
+            StepVerifier.create(availability.executeBulk(Mono.never()))
+                    .expectError(TimeoutException.class)
+                    .verify(Duration.ofSeconds(1));
+        }
+        StepVerifier.create(availability.executeBulk(Mono.delay(Duration.ofMillis(150))))
+                .expectNext(0L)
+                .verifyComplete();
+        assertEquals(RedisAvailability.Mode.NORMAL, availability.getMode());
+
+        degrade();
+        StepVerifier.create(availability.executeBulk(Mono.just("ok")))
+                .expectError(RedisUnavailableException.class)
+                .verify();
+    }
+
+    @Test
+    @DisplayName("Should switch back to the normal mode after consecutive successful pings")
+    void testProbe_shouldRecover() {
+        degrade();
+
+        availability.probe().block();
+        redisUp.set(true);
+        availability.probe().block();
+        assertTrue(availability.isDegraded());
+
+        availability.probe().block();
+        assertEquals(RedisAvailability.Mode.NORMAL, availability.getMode());
+        assertEquals(2, availability.transitionCount());
+        StepVerifier.create(availability.execute(Mono.just("ok"))).expectNext("ok").verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Should take permits from the local share of the quota while Redis is unavailable")
+    void testFallbackRateLimiter_shouldUseLocalShare() {
+        final RateLimiter shared = () -> Mono.error(new RedisConnectionFailureException("Connection refused"));
+        final RateLimiter rateLimiter = new FallbackRateLimiter(shared,
+                new LocalTokenBucketRateLimiter(2, Duration.ofHours(1)), availability);
+
+        for (int i = 0; i < 2; i++) {
+            StepVerifier.create(rateLimiter.tryAcquire().map(RateLimitResult::allowed))
+                    .expectNext(true)
+                    .verifyComplete();
+        }
+        StepVerifier.create(rateLimiter.tryAcquire())
+                .assertNext(result -> {
+                    assertFalse(result.allowed());
+                    assertTrue(result.retryAfter().compareTo(Duration.ofMinutes(29)) > 0);
+                })
+                .verifyComplete();
+        assertTrue(availability.isDegraded());
+    }
+
+    private void degrade() {
+        for (int i = 0; i < 3; i++) {
+            availability.execute(Mono.error(new RedisConnectionFailureException("Connection refused")))
+                    .onErrorResume(error -> Mono.empty())
+                    .block();
+        }
+        assertTrue(availability.isDegraded());
+    }
+
+}
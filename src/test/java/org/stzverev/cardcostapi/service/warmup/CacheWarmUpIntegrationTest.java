@@ -0,0 +1,60 @@
+package org.stzverev.cardcostapi.service.warmup;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.stzverev.cardcostapi.BaseSpringBootTestContainersTest;
+import org.stzverev.cardcostapi.domain.entity.IINCacheEntity;
+import org.stzverev.cardcostapi.service.cardinfoprovider.cache.IINCacheStore;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@TestPropertySource(properties = {
+        "app.warm-up.enabled=true",
+        "app.warm-up.iin-snapshot=classpath:warm-up/iin-snapshot.csv"
+})
+class CacheWarmUpIntegrationTest extends BaseSpringBootTestContainersTest {
+
+    @Autowired
+    private WebTestClient webClient;
+
+    @Autowired
+    private CacheWarmUp warmUp;
+
+    @Autowired
+    private IINCacheStore iinCacheStore;
+
+    @Test
+    @DisplayName("Should load the IIN snapshot into the cache and report readiness once it is loaded")
+    void testWarmUp_shouldLoadSnapshotBeforeReadiness() {
+        //WHEN
+        Mono.fromSupplier(warmUp::getPhase)
+                .filter(phase -> phase != CacheWarmUp.Phase.LOADING)
+                .repeatWhenEmpty(repeat -> repeat.delayElements(Duration.ofMillis(100)))
+                .block(Duration.ofSeconds(30));
+
+        //THEN
+        assertEquals(CacheWarmUp.Phase.READY, warmUp.getPhase());
+        assertEquals(2, warmUp.getLoadedIins());
+        assertEquals(2, warmUp.getSkippedIins());
+        assertEquals("DK", iinCacheStore.get("45717360").map(IINCacheEntity::issuingCountry)
+                .block(Duration.ofSeconds(10)));
+        assertEquals("US", iinCacheStore.get("411111").map(IINCacheEntity::issuingCountry)
+                .block(Duration.ofSeconds(10)));
+        assertNull(iinCacheStore.get("54545454").block(Duration.ofSeconds(10)));
+        webClient.get()
+                .uri("/actuator/health/readiness")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.status").isEqualTo("UP")
+                .jsonPath("$.components.warmUp.details.loadedIins").isEqualTo(2);
+    }
+
+}
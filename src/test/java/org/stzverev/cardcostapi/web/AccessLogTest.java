@@ -0,0 +1,68 @@
+package org.stzverev.cardcostapi.web;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccessLogTest {
+
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    private Logger logger;
+
+    @BeforeEach
+    void setUp() {
+        final LoggerContext context = new LoggerContext();
+        appender.setContext(context);
+        appender.start();
+        logger = context.getLogger(AccessLog.LOGGER_NAME);
+        logger.addAppender(appender);
+    }
+
+    @Test
+    @DisplayName("Should write a structured record of a request")
+    void testLog_shouldWriteStructuredRecord() {
+        final AccessLog accessLog = new AccessLog(logger, 1.0, Duration.ofSeconds(1));
+
+        accessLog.log("POST", "/countryCost/cardCost", 200, 2_000_000, "DK", null);
+
+        assertEquals(1, appender.list.size());
+        assertEquals(Map.of("method", "POST", "path", "/countryCost/cardCost", "status", 200,
+                "durationMs", 2L, "country", "DK"), keyValues(appender.list.get(0)));
+    }
+
+    @Test
+    @DisplayName("Should sample successful requests and write all failed and slow requests")
+    void testLog_shouldSampleOnlySuccessfulRequests() {
+        final AccessLog accessLog = new AccessLog(logger, 0.0, Duration.ofSeconds(1));
+
+        accessLog.log("POST", "/countryCost/cardCost", 200, 1_000_000, "DK", null);
+        assertTrue(appender.list.isEmpty());
+
+        accessLog.log("POST", "/countryCost/cardCost", 404, 1_000_000, null, null);
+        accessLog.log("POST", "/countryCost/cardCost", 200, 1_000_000, null, new IllegalStateException());
+        accessLog.log("POST", "/countryCost/cardCost", 200, Duration.ofSeconds(2).toNanos(), "DK", null);
+
+        assertEquals(3, appender.list.size());
+        assertEquals(ch.qos.logback.classic.Level.INFO, appender.list.get(0).getLevel());
+        assertEquals(ch.qos.logback.classic.Level.WARN, appender.list.get(1).getLevel());
+        assertEquals("IllegalStateException", keyValues(appender.list.get(1)).get("error"));
+    }
+
+    private static Map<String, Object> keyValues(final ILoggingEvent event) {
+        return event.getKeyValuePairs().stream()
+                .collect(Collectors.toMap(pair -> pair.key, pair -> pair.value));
+    }
+
+}
@@ -10,20 +10,30 @@ import org.junit.jupiter.api.parallel.ExecutionMode;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.stzverev.cardcostapi.BaseSpringBootTestContainersTest;
+import org.stzverev.cardcostapi.domain.repository.UpsertResult;
+import org.stzverev.cardcostapi.model.CardCostBatchItem;
+import org.stzverev.cardcostapi.model.CardCostRequest;
 import org.stzverev.cardcostapi.model.CardCostResponse;
 import org.stzverev.cardcostapi.model.CountryCost;
+import org.stzverev.cardcostapi.model.CountryCostUpsertResult;
+import org.stzverev.cardcostapi.service.cardinfoprovider.cache.RedisKeyIINCacheStore;
 import org.stzverev.cardcostapi.util.resourcereader.ResourceReader;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.time.Duration;
+import java.util.List;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.get;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlMatching;
 import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.springframework.web.reactive.function.BodyInserters.fromResource;
 
 class CardCostControllerIntegrationTest extends BaseSpringBootTestContainersTest {
@@ -41,6 +51,9 @@ class CardCostControllerIntegrationTest extends BaseSpringBootTestContainersTest
     @Autowired
     private ResourceReader resourceReader;
 
+    @Autowired
+    private ReactiveStringRedisTemplate redisTemplate;
+
     @Nested
     @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
     @DisplayName("Testing CRUD operations")
@@ -186,6 +199,32 @@ class CardCostControllerIntegrationTest extends BaseSpringBootTestContainersTest
             wireMockServer.verify(0, WireMock.getRequestedFor(urlMatching("/37828224")));
         }
 
+        @DisplayName("Should stream card costs of a batch in request order and report invalid cards per item")
+        @Order(3)
+        @Test
+        void testGetCardCosts_shouldReturnResultsInOrder() {
+            //GIVEN
+            var expectedResponse = resourceReader.from("card-cost-api/cardCost/card-cost-us-response.json")
+                    .mapTo(CardCostResponse.class);
+
+            webClient.post()
+                    .uri("/countryCost/cardCost/batch")
+                    .contentType(MediaType.APPLICATION_NDJSON)
+                    .accept(MediaType.APPLICATION_NDJSON)
+                    .body(fromResource(resourceReader.from("card-cost-api/cardCost/card-cost-batch-request.ndjson")
+                            .getResource()))
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBodyList(CardCostBatchItem.class)
+                    .value(items -> {
+                        assertEquals(3, items.size());
+                        assertEquals(expectedResponse, items.get(0).result());
+                        assertEquals(HttpStatus.BAD_REQUEST.value(), items.get(1).error().errorCode());
+                        assertEquals(expectedResponse, items.get(2).result());
+                    });
+            wireMockServer.verify(0, WireMock.getRequestedFor(urlMatching("/37828224")));
+        }
+
         @AfterAll
         void teardown() {
             webClient.delete()
@@ -198,4 +237,166 @@ class CardCostControllerIntegrationTest extends BaseSpringBootTestContainersTest
 
     }
 
-}
\ No newline at end of file
+    @Nested
+    @DisplayName("Testing conditional and bulk writes of country costs")
+    class CountryCostWritesTest {
+
+        @Test
+        @DisplayName("Should reject adding a country twice and updating or deleting a missing country")
+        void testCountryCostWrites_shouldBeConditional() {
+            final CountryCost countryCost = new CountryCost("GB", 7);
+            webClient.put()
+                    .uri("/countryCost")
+                    .bodyValue(countryCost)
+                    .exchange()
+                    .expectStatus().isOk();
+            webClient.put()
+                    .uri("/countryCost")
+                    .bodyValue(countryCost)
+                    .exchange()
+                    .expectStatus().isEqualTo(HttpStatus.CONFLICT);
+            webClient.patch()
+                    .uri("/countryCost")
+                    .bodyValue(new CountryCost("GB", 8))
+                    .exchange()
+                    .expectStatus().isOk();
+            webClient.get()
+                    .uri(uriBuilder -> uriBuilder.path("/countryCost").queryParam("country", "GB").build())
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody()
+                    .jsonPath("$.cost").isEqualTo(8);
+            webClient.delete()
+                    .uri(uriBuilder -> uriBuilder.path("/countryCost").queryParam("country", "GB").build())
+                    .exchange()
+                    .expectStatus().isOk();
+
+            webClient.patch()
+                    .uri("/countryCost")
+                    .bodyValue(new CountryCost("GB", 9))
+                    .exchange()
+                    .expectStatus().isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+            webClient.delete()
+                    .uri(uriBuilder -> uriBuilder.path("/countryCost").queryParam("country", "GB").build())
+                    .exchange()
+                    .expectStatus().isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+        }
+
+        @Test
+        @DisplayName("Should upsert a batch of country costs and report the outcome of every item")
+        void testAddCountryCosts_shouldReportOutcomes() {
+            webClient.put()
+                    .uri("/countryCost")
+                    .bodyValue(new CountryCost("FR", 3))
+                    .exchange()
+                    .expectStatus().isOk();
+
+            webClient.put()
+                    .uri("/countryCost/batch")
+                    .bodyValue(List.of(new CountryCost("FR", 4), new CountryCost("DE", 5)))
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBodyList(CountryCostUpsertResult.class)
+                    .isEqualTo(List.of(
+                            new CountryCostUpsertResult(0, "FR", UpsertResult.Outcome.UPDATED, null),
+                            new CountryCostUpsertResult(1, "DE", UpsertResult.Outcome.INSERTED, null)));
+            webClient.get()
+                    .uri(uriBuilder -> uriBuilder.path("/countryCost").queryParam("country", "FR").build())
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody()
+                    .jsonPath("$.cost").isEqualTo(4);
+
+            List.of("FR", "DE").forEach(country -> webClient.delete()
+                    .uri(uriBuilder -> uriBuilder.path("/countryCost").queryParam("country", country).build())
+                    .exchange()
+                    .expectStatus().isOk());
+        }
+
+    }
+
+    @Nested
+    @DisplayName("Testing conditional requests of the cost catalogue")
+    class CostCatalogueETagTest {
+
+        @Test
+        @DisplayName("Should answer with 304 while the costs are not modified and with new ETag after a change")
+        void testGetAllCosts_shouldAnswerNotModifiedUntilCostsChange() {
+            final String eTag = webClient.get()
+                    .uri("/countryCost/all")
+                    .exchange()
+                    .expectStatus().isOk()
+                    .returnResult(CountryCost.class)
+                    .getResponseHeaders()
+                    .getETag();
+            webClient.get()
+                    .uri("/countryCost/all")
+                    .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                    .exchange()
+                    .expectStatus().isNotModified()
+                    .expectHeader().valueEquals(HttpHeaders.ETAG, eTag)
+                    .expectBody().isEmpty();
+
+            webClient.put()
+                    .uri("/countryCost")
+                    .bodyValue(new CountryCost("JP", 12))
+                    .exchange()
+                    .expectStatus().isOk();
+            webClient.get()
+                    .uri(uriBuilder -> uriBuilder.path("/countryCost").queryParam("country", "JP").build())
+                    .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectHeader().value(HttpHeaders.ETAG, Matchers.not(equalTo(eTag)))
+                    .expectBody()
+                    .jsonPath("$.cost").isEqualTo(12);
+
+            webClient.delete()
+                    .uri(uriBuilder -> uriBuilder.path("/countryCost").queryParam("country", "JP").build())
+                    .exchange()
+                    .expectStatus().isOk();
+        }
+
+    }
+
+    @Nested
+    @DisplayName("Testing cards unknown to thirdparty provider")
+    class UnknownCardTest {
+
+        private static final String UNKNOWN_IIN = "99999999";
+
+        @Test
+        @DisplayName("Should answer repeated requests of unknown card from cache without calling thirdparty provider")
+        void testGetCardCost_whenCardIsUnknown_shouldCacheNegativeResult() throws URISyntaxException {
+            //GIVEN
+            wireMockServer.stubFor(get("/" + UNKNOWN_IIN)
+                    .withHost(WireMock.urlMatching(new URI(wireMockUrl).getHost()).getPattern())
+                    .willReturn(WireMock.notFound()));
+            final CardCostRequest request = new CardCostRequest(UNKNOWN_IIN + "12345678");
+
+            //WHEN
+            requestCardCost(request);
+            redisTemplate.hasKey(RedisKeyIINCacheStore.REDIS_PREFIX + UNKNOWN_IIN)
+                    .filter(Boolean::booleanValue)
+                    .repeatWhenEmpty(50, repeats -> repeats.delayElements(Duration.ofMillis(100)))
+                    .block(Duration.ofSeconds(10));
+            requestCardCost(request);
+
+            //THEN
+            wireMockServer.verify(1, WireMock.getRequestedFor(urlMatching("/" + UNKNOWN_IIN)));
+        }
+
+        private void requestCardCost(final CardCostRequest request) {
+            webClient.post()
+                    .uri("/countryCost/cardCost")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(request)
+                    .exchange()
+                    .expectStatus().isNotFound()
+                    .expectBody()
+                    .jsonPath("$.message").value(equalTo("Card info is not found: " + UNKNOWN_IIN));
+        }
+
+    }
+
+}